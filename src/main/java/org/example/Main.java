@@ -1,23 +1,32 @@
 package org.example;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Scanner;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
 import java.util.stream.Collectors;
 
-import org.example.dao.BookDAO;
-import org.example.dao.BookDAOImpl;
-import org.example.dao.MemberDAO;
-import org.example.dao.MemberDAOImpl;
+import org.example.context.LibraryContext;
 import org.example.models.Book;
 import org.example.models.Member;
+import org.example.models.Page;
+import org.example.server.LibraryServer;
 import org.example.services.BookService;
 import org.example.services.BorrowingService;
 import org.example.services.MemberService;
+import org.example.utils.AppConfig;
 import org.example.utils.CSVExporter;
 
 public class Main {
+    private static final LibraryContext context = new LibraryContext();
+    private static final int PAGE_SIZE = 20;
 
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("--server")) {
+            runServer(args);
+            return;
+        }
         Scanner scanner = new Scanner(System.in);
         
         while (true) {
@@ -38,6 +47,7 @@ public class Main {
                 case 4 -> {
                     System.out.println("Thank you for using Library Management System. Goodbye!");
                     scanner.close();
+                    context.close();
                     System.exit(0);
                 }
                 default -> System.out.println("Invalid option. Please try again.");
@@ -45,10 +55,41 @@ public class Main {
         }
     }
 
+    /**
+     * Server mode: Main --server [port]. Serves the library over HTTP on
+     * loopback (see LibraryServer) until the process is stopped; the port
+     * defaults to server.port.
+     */
+    private static void runServer(String[] args) {
+        int port = AppConfig.getInt("server.port", 8080);
+        if (args.length > 1) {
+            try {
+                port = Integer.parseInt(args[1]);
+            } catch (NumberFormatException e) {
+                System.out.println(" Invalid port: " + args[1]);
+                return;
+            }
+        }
+
+        LibraryServer server;
+        try {
+            server = new LibraryServer(context, port);
+        } catch (IOException e) {
+            System.out.println(" Error starting server on port " + port + ": " + e.getMessage());
+            context.close();
+            return;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            context.close();
+        }));
+        server.start();
+        System.out.println("Library server listening on http://127.0.0.1:" + server.getPort() + "/");
+    }
+
     public static void manageBook() {
         Scanner scanner = new Scanner(System.in);
-        BookDAO bookDAO = new BookDAOImpl();
-        BookService bookService = new BookService(bookDAO);
+        BookService bookService = context.getBookService();
 
         while (true) {
             System.out.println("\n----- Book Management Menu -----");
@@ -59,7 +100,8 @@ public class Main {
             System.out.println("5. Show all books");
             System.out.println("6. Sort books");
             System.out.println("7. Export books to CSV");
-            System.out.println("8. Return to main menu");
+            System.out.println("8. Import books from CSV");
+            System.out.println("9. Return to main menu");
             System.out.print("\nEnter your choice: ");
 
             int bookAction = scanner.nextInt();
@@ -111,6 +153,8 @@ public class Main {
                     System.out.println("1. Search by title");
                     System.out.println("2. Search by author");
                     System.out.println("3. Search by genre");
+                    System.out.println("4. Free-text search");
+                    System.out.println("5. Autocomplete title or author");
                     System.out.print("Enter your choice: ");
 
                     int searchOption = scanner.nextInt();
@@ -120,9 +164,12 @@ public class Main {
                         case 1 -> {
                             System.out.print("Enter book title to search: ");
                             String searchTitle = scanner.nextLine();
-                            Book book = bookService.searchBookByTitle(searchTitle);
-                            if (book != null) {
-                                System.out.println("\nBook found:\n" + book);
+                            List<Book> books = bookService.findBooksByTitle(searchTitle);
+                            if (books.size() == 1) {
+                                System.out.println("\nBook found:\n" + books.get(0));
+                            } else if (!books.isEmpty()) {
+                                System.out.println("\n" + books.size() + " books titled '" + searchTitle + "':");
+                                books.forEach(book -> System.out.println("- " + book));
                             }
                         }
                         case 2 -> {
@@ -143,15 +190,35 @@ public class Main {
                                 books.forEach(book -> System.out.println("- " + book));
                             }
                         }
+                        case 4 -> {
+                            System.out.print("Search (use \"quotes\" for phrases, word* for prefixes): ");
+                            String query = scanner.nextLine();
+                            List<Book> books = bookService.search(query, 10);
+                            if (!books.isEmpty()) {
+                                System.out.println("\nBest matches for '" + query + "':");
+                                for (int i = 0; i < books.size(); i++) {
+                                    System.out.println((i + 1) + ". " + books.get(i));
+                                }
+                            }
+                        }
+                        case 5 -> {
+                            System.out.print("Start typing a title or author: ");
+                            String prefix = scanner.nextLine();
+                            List<String> completions = bookService.autocomplete(prefix, 10);
+                            if (completions.isEmpty()) {
+                                System.out.println("No titles or authors start with '" + prefix + "'.");
+                            } else {
+                                completions.forEach(completion -> System.out.println("- " + completion));
+                            }
+                        }
                         default -> System.out.println("Invalid search option.");
                     }
                 }
                 case 5 -> {
-                    List<Book> allBooks = bookService.getAllBooks();
-                    if (!allBooks.isEmpty()) {
-                        System.out.println("\nAll Books in Library:");
-                        allBooks.forEach(book -> System.out.println("- " + book));
-                    } else {
+                    int shown = showPages(scanner, "\nAll Books in Library:",
+                            cursor -> bookService.getBooksPage(cursor, PAGE_SIZE),
+                            book -> System.out.println("- " + book));
+                    if (shown == 0) {
                         System.out.println("No books in the library.");
                     }
                 }
@@ -193,6 +260,12 @@ public class Main {
                     }
                 }
                 case 8 -> {
+                    System.out.print("Enter CSV file name to import: ");
+                    String fileName = scanner.nextLine();
+                    int imported = bookService.importBooksFromCSV(fileName);
+                    System.out.println("\nImported " + imported + " books.");
+                }
+                case 9 -> {
                     return;
                 }
                 default -> System.out.println("Invalid option. Please try again.");
@@ -202,8 +275,7 @@ public class Main {
     
     public static void manageMembers() {
         Scanner scanner = new Scanner(System.in);
-        MemberDAO memberDAO = new MemberDAOImpl();
-        MemberService memberService = new MemberService(memberDAO);
+        MemberService memberService = context.getMemberService();
 
         while (true) {
             System.out.println("\n----- Member Management Menu -----");
@@ -276,19 +348,15 @@ public class Main {
                         System.out.println("Phone: " + member.getPhone());
                     }
                 }
-                case 5 -> {
-                    List<Member> allMembers = memberService.getAllMembers();
-                    if (!allMembers.isEmpty()) {
-                        System.out.println("\nAll Library Members:");
-                        for (Member member : allMembers) {
+                case 5 -> showPages(scanner, "\nAll Library Members:",
+                        cursor -> memberService.getMembersPage(cursor, PAGE_SIZE),
+                        member -> {
                             System.out.println("\nID: " + member.getId());
                             System.out.println("Name: " + member.getName());
                             System.out.println("Email: " + member.getEmail());
                             System.out.println("Phone: " + member.getPhone());
                             System.out.println("------------------------");
-                        }
-                    }
-                }
+                        });
                 case 6 -> {
 
                     List<Member> allMembers = memberService.getAllMembers();
@@ -308,9 +376,8 @@ public class Main {
     
     public static void manageBorrowings() {
         Scanner scanner = new Scanner(System.in);
-        BorrowingService borrowingService = new BorrowingService();
-        BookDAO bookDAO = new BookDAOImpl();
-        BookService bookService = new BookService(bookDAO);
+        BorrowingService borrowingService = context.getBorrowingService();
+        BookService bookService = context.getBookService();
 
         while (true) {
             System.out.println("\n----- Borrowing Management Menu -----");
@@ -402,13 +469,12 @@ public class Main {
                 }
                 case 3 -> {
 
-                    List<String> borrowingDetails = borrowingService.getBorrowingDetails();
+                    int shown = showPages(scanner, "\nAll Borrowing Records:",
+                            cursor -> borrowingService.getBorrowingDetailsPage(cursor, PAGE_SIZE),
+                            System.out::println);
                     
-                    if (borrowingDetails.isEmpty()) {
+                    if (shown == 0) {
                         System.out.println("\n No borrowing records found.");
-                    } else {
-                        System.out.println("\nAll Borrowing Records:");
-                        borrowingDetails.forEach(System.out::println);
                     }
                 }
                 case 4 -> {
@@ -444,4 +510,29 @@ public class Main {
             }
         }
     }
+
+    /**
+     * Prints a listing PAGE_SIZE rows at a time, asking before fetching each
+     * further page. Returns how many rows were shown.
+     */
+    private static <T> int showPages(Scanner scanner, String header, IntFunction<Page<T>> fetch, Consumer<T> print) {
+        int shown = 0;
+        int cursor = Page.START;
+        while (true) {
+            Page<T> page = fetch.apply(cursor);
+            if (shown == 0 && !page.getItems().isEmpty()) {
+                System.out.println(header);
+            }
+            page.getItems().forEach(print);
+            shown += page.getItems().size();
+            if (!page.hasNext()) {
+                return shown;
+            }
+            System.out.print("Show more? (y/n): ");
+            if (!scanner.nextLine().trim().equalsIgnoreCase("y")) {
+                return shown;
+            }
+            cursor = page.getNextCursor();
+        }
+    }
 }
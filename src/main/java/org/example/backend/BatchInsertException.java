@@ -0,0 +1,30 @@
+package org.example.backend;
+
+import java.util.List;
+
+/**
+ * A bulk insert that stopped part way. The first getDone() rows were dealt
+ * with (stored, or turned down and listed in getRejected()); the rest were
+ * not tried. Backends that write in order can throw this so a caller only
+ * retries or queues what is left.
+ */
+public class BatchInsertException extends StorageException {
+    private static final long serialVersionUID = 1L;
+
+    private final int done;
+    private final transient List<Integer> rejected;
+
+    public BatchInsertException(StorageException cause, int done, List<Integer> rejected) {
+        super(cause.getCause() != null ? cause.getCause() : cause, cause.isUnavailable(), cause.isRejected());
+        this.done = done;
+        this.rejected = rejected;
+    }
+
+    public int getDone() {
+        return done;
+    }
+
+    public List<Integer> getRejected() {
+        return rejected == null ? List.of() : rejected;
+    }
+}
@@ -0,0 +1,48 @@
+package org.example.backend;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+import org.example.models.Book;
+
+/** System of record for books, underneath BookDAOImpl. */
+public interface BookStore {
+    void insert(Book book) throws StorageException;
+
+    /**
+     * Inserts many books at once. Returns the ids of the books the store
+     * turned down (a duplicate id, say), so the caller can drop them too;
+     * empty if every book was stored or queued.
+     */
+    List<Integer> insertAll(List<Book> books) throws StorageException;
+
+    /** Returns false if no book has that id. */
+    boolean update(Book book) throws StorageException;
+
+    /** Returns false if no book has that id. */
+    boolean delete(int bookId) throws StorageException;
+
+    /**
+     * Hands every book changed after the watermark since to changed and every
+     * id deleted after it to deleted. Returns the new watermark.
+     */
+    long pullChanges(long since, Consumer<Book> changed, IntConsumer deleted) throws StorageException;
+
+    /**
+     * Up to limit books with an id greater than afterId, in id order. Pass
+     * the last id of one page as afterId to get the next, so every page
+     * costs the same however far into the table it is.
+     */
+    List<Book> page(int afterId, int limit) throws StorageException;
+
+    /**
+     * Copies books the caller already has locally into a store that has
+     * never held any, ids and copy counts as they are. Returns false if the
+     * store already has books or does not take seeds; only the embedded
+     * engine does, since a database is the system of record by itself.
+     */
+    default boolean seed(List<Book> books) throws StorageException {
+        return false;
+    }
+}
@@ -0,0 +1,76 @@
+package org.example.backend;
+
+import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+import org.example.models.Borrowing;
+
+/** System of record for borrowings, underneath BorrowingDAOImpl. */
+public interface BorrowingStore {
+    /**
+     * Returned by borrow and returnBook when the backend accepted the call
+     * for later delivery instead of applying it. A queued borrow gets a
+     * provisional (negative) id.
+     */
+    int QUEUED = -2;
+
+    /**
+     * Told when a queued borrow has been delivered: applied is the loan as
+     * the database recorded it, or null if it was rejected (for example
+     * because the last copy went in the meantime).
+     */
+    interface QueuedBorrowListener {
+        void resolved(int provisionalId, Borrowing applied);
+
+        /**
+         * Told when a queued borrow was handed on to a backend that queued it
+         * again: the loan now waits under newProvisionalId, and resolved()
+         * will come for that id instead.
+         */
+        default void requeued(int provisionalId, int newProvisionalId) {
+        }
+    }
+
+    /**
+     * Takes a copy of the book and records the loan as one atomic step. Sets
+     * the borrowing's id and returns the copies left, -1 if none were
+     * available, or QUEUED.
+     */
+    int borrow(Borrowing borrowing) throws StorageException;
+
+    /**
+     * Closes the member's open loan of the book and puts the copy back as one
+     * atomic step. Returns the copies now available, -1 if there was no open
+     * loan, or QUEUED.
+     */
+    int returnBook(int bookId, int memberId, Date returnDate) throws StorageException;
+
+    /** Returns false if no borrowing has that id. */
+    boolean delete(int id) throws StorageException;
+
+    /**
+     * Takes a queued borrow back out of the queue before it is sent. Returns
+     * false if it was already on its way, in which case the listener still
+     * hears the outcome; backends that do not queue always return false.
+     */
+    default boolean cancelQueued(int provisionalId) throws StorageException {
+        return false;
+    }
+
+    /** Only backends that queue writes ever call the listener. */
+    default void setQueuedBorrowListener(QueuedBorrowListener listener) {
+    }
+
+    /** See BookStore.pullChanges. */
+    long pullChanges(long since, Consumer<Borrowing> changed, IntConsumer deleted) throws StorageException;
+
+    /** See BookStore.page. */
+    List<Borrowing> page(int afterId, int limit) throws StorageException;
+
+    /** See BookStore.seed. The loans are stored as they are; copy counts are left alone. */
+    default boolean seed(List<Borrowing> borrowings) throws StorageException {
+        return false;
+    }
+}
@@ -0,0 +1,66 @@
+package org.example.backend;
+
+/**
+ * Stops calling a backend that keeps failing. After failureThreshold
+ * consecutive failures the breaker opens and every call is refused at once;
+ * once openMillis has passed it lets a single probe call through (half-open)
+ * and closes again if that succeeds, or reopens for another period if not.
+ */
+public class CircuitBreaker {
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openMillis;
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMillis = openMillis;
+    }
+
+    /** Returns false if the call should fail fast without touching the backend. */
+    public synchronized boolean allowRequest() {
+        switch (state) {
+            case CLOSED -> {
+                return true;
+            }
+            case OPEN -> {
+                if (System.currentTimeMillis() - openedAt < openMillis) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                return true;
+            }
+            default -> {
+                // A probe is already in flight.
+                return false;
+            }
+        }
+    }
+
+    public synchronized void recordSuccess() {
+        if (state != State.CLOSED) {
+            System.out.println(" Database reachable again.");
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+    }
+
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            if (state == State.CLOSED) {
+                System.out.println(" Database unreachable after " + consecutiveFailures
+                        + " attempts; using local storage for " + openMillis + " ms before retrying.");
+            }
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+}
@@ -0,0 +1,672 @@
+package org.example.backend;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.ToIntFunction;
+
+import org.example.models.Book;
+import org.example.models.Borrowing;
+import org.example.models.Member;
+import org.example.storage.LogRecord;
+import org.example.storage.RecordStore;
+import org.example.storage.RecordType;
+import org.example.storage.SnapshotFile;
+import org.example.utils.IntHashMap;
+
+/**
+ * In-process storage engine for running without a database. The three tables
+ * live in memory and every transaction is appended to one record store
+ * (library-db.wal, compacted into library-db.snap) as a single checksummed
+ * record, so a borrow that changes both a book and a loan is either entirely
+ * in the log or not at all.
+ *
+ * A transaction is checked and staged under the engine lock, appended to the
+ * log outside it, and only then applied to the tables. Reads see applied
+ * rows only, so nothing is visible that is not in the log yet. Writes check
+ * against staged rows too, so two borrows in flight cannot take the same
+ * last copy. A transaction that read another's staged rows waits for that
+ * one to be logged before it appends, and fails if that one failed, so the
+ * log never holds a write checked against values that never made it.
+ *
+ * Compaction snapshots the applied rows, so it must not run between a
+ * transaction's append and its apply: the log records it would drop would
+ * be the only copy. Commits hold the commit gate for reading across both
+ * steps and snapshotRows() takes it for writing.
+ *
+ * Every row and tombstone carries the change sequence of the write that
+ * produced it. That drives pullChanges(), and it lets replay keep the newest
+ * version of a row whatever order two transactions reached the log in.
+ * pullChanges() stops below the oldest transaction still in flight, so a
+ * watermark never passes a change that has yet to be applied.
+ *
+ * The first time each table is used it is empty; the DAOs seed it from their
+ * own files (see BookStore.seed), so an existing catalog carries over.
+ */
+public final class EmbeddedBackend implements StorageBackend {
+    private static final String STORE_NAME = "library-db";
+    private static final int BOOKS = 0;
+    private static final int MEMBERS = 1;
+    private static final int BORROWINGS = 2;
+
+    private final Table[] tables = {new Table(), new Table(), new Table()};
+    // Open loans keyed by (book id, member id), so returns do not scan the history.
+    private final Map<Long, Integer> openLoans = new HashMap<>();
+    // Lower-cased, trimmed email -> member id, like MemberDAOImpl's index.
+    private final Map<String, Integer> memberEmails = new HashMap<>();
+    // Change sequences staged but not applied yet.
+    private final TreeSet<Long> inFlight = new TreeSet<>();
+    // Guards the tables; never held while the log is written.
+    private final ReentrantLock engineLock = new ReentrantLock();
+    // Read-held from a transaction's append until it is applied; see the class comment.
+    private final ReentrantReadWriteLock commitGate = new ReentrantReadWriteLock();
+    private final RecordStore store;
+    private long lastSeq;
+    private int lastBorrowingId;
+
+    private final BookStore books = new EmbeddedBookStore();
+    private final MemberStore members = new EmbeddedMemberStore();
+    private final BorrowingStore borrowings = new EmbeddedBorrowingStore();
+
+    public EmbeddedBackend() {
+        RecordStore opened = null;
+        try {
+            opened = RecordStore.open(STORE_NAME, null);
+            opened.setSnapshotSource(2, 2, this::snapshotRows);
+            opened.replay(this::loadSnapshot, this::replayRecord);
+            System.out.println(" Embedded database opened: " + tables[BOOKS].rows.size() + " books, "
+                    + tables[MEMBERS].rows.size() + " members, " + tables[BORROWINGS].rows.size() + " borrowings.");
+        } catch (IOException | RuntimeException e) {
+            System.out.println(" Error opening embedded database: " + e.getMessage());
+        }
+        this.store = opened;
+    }
+
+    @Override
+    public String getName() {
+        return "embedded";
+    }
+
+    @Override
+    public BookStore books() {
+        return books;
+    }
+
+    @Override
+    public MemberStore members() {
+        return members;
+    }
+
+    @Override
+    public BorrowingStore borrowings() {
+        return borrowings;
+    }
+
+    @Override
+    public void close() {
+        if (store == null) {
+            return;
+        }
+        try {
+            store.close();
+        } catch (IOException e) {
+            System.out.println(" Error closing embedded database: " + e.getMessage());
+        }
+    }
+
+    private final class EmbeddedBookStore implements BookStore {
+        @Override
+        public void insert(Book book) throws StorageException {
+            Transaction tx = new Transaction();
+            engineLock.lock();
+            try {
+                if (current(tx, BOOKS, book.getBookId()) != null) {
+                    throw new StorageException("Book with ID " + book.getBookId() + " already exists", false, true);
+                }
+                tx.put(BOOKS, book.getBookId(), RowCodec.bookFields(book));
+            } finally {
+                engineLock.unlock();
+            }
+            commit(tx);
+        }
+
+        @Override
+        public List<Integer> insertAll(List<Book> list) throws StorageException {
+            Transaction tx = new Transaction();
+            List<Integer> rejected = new ArrayList<>();
+            engineLock.lock();
+            try {
+                for (Book book : list) {
+                    if (current(tx, BOOKS, book.getBookId()) != null) {
+                        rejected.add(book.getBookId());
+                    } else {
+                        tx.put(BOOKS, book.getBookId(), RowCodec.bookFields(book));
+                    }
+                }
+            } finally {
+                engineLock.unlock();
+            }
+            commit(tx);
+            return rejected;
+        }
+
+        @Override
+        public boolean update(Book book) throws StorageException {
+            return replaceRow(BOOKS, book.getBookId(), RowCodec.bookFields(book));
+        }
+
+        @Override
+        public boolean delete(int bookId) throws StorageException {
+            return deleteRow(BOOKS, bookId);
+        }
+
+        @Override
+        public long pullChanges(long since, Consumer<Book> changed, IntConsumer deleted) {
+            return pull(BOOKS, since, RowCodec::toBook, changed, deleted);
+        }
+
+        @Override
+        public List<Book> page(int afterId, int limit) {
+            return pageRows(BOOKS, afterId, limit, RowCodec::toBook);
+        }
+
+        @Override
+        public boolean seed(List<Book> list) throws StorageException {
+            return seedTable(BOOKS, list, Book::getBookId, RowCodec::bookFields);
+        }
+    }
+
+    private final class EmbeddedMemberStore implements MemberStore {
+        @Override
+        public void insert(Member member) throws StorageException {
+            Transaction tx = new Transaction();
+            engineLock.lock();
+            try {
+                if (current(tx, MEMBERS, member.getId()) != null) {
+                    throw new StorageException("Member with ID " + member.getId() + " already exists", false, true);
+                }
+                tx.put(MEMBERS, member.getId(), RowCodec.memberFields(member));
+            } finally {
+                engineLock.unlock();
+            }
+            commit(tx);
+        }
+
+        @Override
+        public boolean update(Member member) throws StorageException {
+            return replaceRow(MEMBERS, member.getId(), RowCodec.memberFields(member));
+        }
+
+        @Override
+        public boolean delete(int memberId) throws StorageException {
+            return deleteRow(MEMBERS, memberId);
+        }
+
+        @Override
+        public Member findById(int memberId) {
+            engineLock.lock();
+            try {
+                Row row = tables[MEMBERS].rows.get(memberId);
+                return row == null ? null : RowCodec.toMember(memberId, row.fields());
+            } finally {
+                engineLock.unlock();
+            }
+        }
+
+        @Override
+        public Member findByEmail(String email) {
+            engineLock.lock();
+            try {
+                Integer id = memberEmails.get(emailKey(email));
+                return id == null ? null : RowCodec.toMember(id, tables[MEMBERS].rows.get(id).fields());
+            } finally {
+                engineLock.unlock();
+            }
+        }
+
+        @Override
+        public long pullChanges(long since, Consumer<Member> changed, IntConsumer deleted) {
+            return pull(MEMBERS, since, RowCodec::toMember, changed, deleted);
+        }
+
+        @Override
+        public List<Member> page(int afterId, int limit) {
+            return pageRows(MEMBERS, afterId, limit, RowCodec::toMember);
+        }
+
+        @Override
+        public boolean seed(List<Member> list) throws StorageException {
+            return seedTable(MEMBERS, list, Member::getId, RowCodec::memberFields);
+        }
+    }
+
+    private final class EmbeddedBorrowingStore implements BorrowingStore {
+        @Override
+        public int borrow(Borrowing borrowing) throws StorageException {
+            Transaction tx = new Transaction();
+            int remaining;
+            engineLock.lock();
+            try {
+                Row bookRow = current(tx, BOOKS, borrowing.getBookId());
+                if (bookRow == null || Integer.parseInt(bookRow.fields()[3]) <= 0) {
+                    return -1;
+                }
+                String[] bookFields = bookRow.fields().clone();
+                remaining = Integer.parseInt(bookFields[3]) - 1;
+                bookFields[3] = String.valueOf(remaining);
+
+                int id = lastBorrowingId + 1;
+                tx.put(BOOKS, borrowing.getBookId(), bookFields);
+                tx.put(BORROWINGS, id, RowCodec.borrowingFields(borrowing));
+                borrowing.setId(id);
+            } finally {
+                engineLock.unlock();
+            }
+            commit(tx);
+            return remaining;
+        }
+
+        @Override
+        public int returnBook(int bookId, int memberId, Date returnDate) throws StorageException {
+            Transaction tx = new Transaction();
+            int available;
+            engineLock.lock();
+            try {
+                Integer loanId = openLoans.get(loanKey(bookId, memberId));
+                Row loanRow = loanId == null ? null : current(tx, BORROWINGS, loanId);
+                Row bookRow = current(tx, BOOKS, bookId);
+                // A return still in flight has already closed the loan.
+                if (loanRow == null || loanRow.fields()[3] != null || bookRow == null) {
+                    return -1;
+                }
+                String[] loanFields = loanRow.fields().clone();
+                loanFields[3] = String.valueOf(returnDate.getTime());
+                String[] bookFields = bookRow.fields().clone();
+                available = Integer.parseInt(bookFields[3]) + 1;
+                bookFields[3] = String.valueOf(available);
+
+                tx.put(BORROWINGS, loanId, loanFields);
+                tx.put(BOOKS, bookId, bookFields);
+            } finally {
+                engineLock.unlock();
+            }
+            commit(tx);
+            return available;
+        }
+
+        @Override
+        public boolean delete(int id) throws StorageException {
+            return deleteRow(BORROWINGS, id);
+        }
+
+        @Override
+        public long pullChanges(long since, Consumer<Borrowing> changed, IntConsumer deleted) {
+            return pull(BORROWINGS, since, RowCodec::toBorrowing, changed, deleted);
+        }
+
+        @Override
+        public List<Borrowing> page(int afterId, int limit) {
+            return pageRows(BORROWINGS, afterId, limit, RowCodec::toBorrowing);
+        }
+
+        @Override
+        public boolean seed(List<Borrowing> list) throws StorageException {
+            return seedTable(BORROWINGS, list, Borrowing::getId, RowCodec::borrowingFields);
+        }
+    }
+
+    private boolean replaceRow(int table, int id, String[] fields) throws StorageException {
+        Transaction tx = new Transaction();
+        engineLock.lock();
+        try {
+            if (current(tx, table, id) == null) {
+                return false;
+            }
+            tx.put(table, id, fields);
+        } finally {
+            engineLock.unlock();
+        }
+        commit(tx);
+        return true;
+    }
+
+    private boolean deleteRow(int table, int id) throws StorageException {
+        Transaction tx = new Transaction();
+        engineLock.lock();
+        try {
+            if (current(tx, table, id) == null) {
+                return false;
+            }
+            tx.put(table, id, null);
+        } finally {
+            engineLock.unlock();
+        }
+        commit(tx);
+        return true;
+    }
+
+    /** Fills a table that has never held a row with rows from elsewhere, in one transaction. */
+    private <T> boolean seedTable(int table, List<T> list, ToIntFunction<T> id, Function<T, String[]> fields)
+            throws StorageException {
+        Transaction tx = new Transaction();
+        engineLock.lock();
+        try {
+            Table t = tables[table];
+            if (!t.rows.isEmpty() || !t.tombstones.isEmpty() || !t.staged.isEmpty()) {
+                return false;
+            }
+            for (T row : list) {
+                tx.put(table, id.applyAsInt(row), fields.apply(row));
+            }
+        } finally {
+            engineLock.unlock();
+        }
+        commit(tx);
+        return true;
+    }
+
+    /**
+     * Waits for the transactions this one read from, then appends it to the
+     * log and, once it is there, applies it.
+     */
+    private void commit(Transaction tx) throws StorageException {
+        if (tx.size() == 0) {
+            return;
+        }
+        for (Transaction earlier : tx.dependsOn) {
+            boolean logged;
+            try {
+                logged = earlier.awaitOutcome();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                finish(tx, false);
+                throw new StorageException("Interrupted while waiting for an earlier write");
+            }
+            if (!logged) {
+                finish(tx, false);
+                throw new StorageException("An earlier write this one depended on could not be saved");
+            }
+        }
+
+        commitGate.readLock().lock();
+        try {
+            try {
+                if (store != null) {
+                    store.append(RecordType.UPDATE, tx.payload.toString());
+                }
+            } catch (IOException e) {
+                finish(tx, false);
+                throw new StorageException(e);
+            }
+            finish(tx, true);
+        } finally {
+            commitGate.readLock().unlock();
+        }
+    }
+
+    /**
+     * Applies a logged transaction, or drops one that failed, clears what it
+     * staged and wakes the transactions waiting on it.
+     */
+    private void finish(Transaction tx, boolean logged) {
+        engineLock.lock();
+        try {
+            for (Write write : tx.writes) {
+                if (logged) {
+                    apply(write.table(), write.id(), write.fields(), write.seq());
+                }
+                Table t = tables[write.table()];
+                if (t.staged.get(write.id()) == write) {
+                    t.staged.remove(write.id());
+                }
+                inFlight.remove(write.seq());
+            }
+        } finally {
+            engineLock.unlock();
+        }
+        tx.logged = logged;
+        tx.outcome.countDown();
+    }
+
+    /**
+     * The newest version of a row, staged or applied, or null if there is
+     * none or it is deleted. Writes check against this; reading a row another
+     * transaction staged makes tx depend on that one. Caller holds the engine
+     * lock.
+     */
+    private Row current(Transaction tx, int table, int id) {
+        Table t = tables[table];
+        Write staged = t.staged.get(id);
+        if (staged != null) {
+            if (staged.tx() != tx && !tx.dependsOn.contains(staged.tx())) {
+                tx.dependsOn.add(staged.tx());
+            }
+            return staged.fields() == null ? null : new Row(staged.fields(), staged.seq());
+        }
+        return t.rows.get(id);
+    }
+
+    private <T> long pull(int table, long since, RowMapper<T> mapper, Consumer<T> changed, IntConsumer deleted) {
+        List<T> rows = new ArrayList<>();
+        List<Integer> tombstones = new ArrayList<>();
+        long watermark = since;
+        engineLock.lock();
+        try {
+            Table t = tables[table];
+            long limit = inFlight.isEmpty() ? Long.MAX_VALUE : Math.max(since, inFlight.first());
+            for (Map.Entry<Long, Integer> change : t.changes.subMap(since, false, limit, false).entrySet()) {
+                Row row = t.rows.get(change.getValue());
+                if (row != null) {
+                    rows.add(mapper.map(change.getValue(), row.fields()));
+                } else {
+                    tombstones.add(change.getValue());
+                }
+                watermark = change.getKey();
+            }
+        } finally {
+            engineLock.unlock();
+        }
+        rows.forEach(changed);
+        tombstones.forEach(deleted::accept);
+        return watermark;
+    }
+
+    private <T> List<T> pageRows(int table, int afterId, int limit, RowMapper<T> mapper) {
+        List<T> page = new ArrayList<>();
+        engineLock.lock();
+        try {
+            Table t = tables[table];
+            for (Integer id : t.ids.tailSet(afterId, false)) {
+                if (page.size() >= limit) {
+                    break;
+                }
+                page.add(mapper.map(id, t.rows.get(id).fields()));
+            }
+        } finally {
+            engineLock.unlock();
+        }
+        return page;
+    }
+
+    /**
+     * Installs one row version (fields == null for a delete) unless the table
+     * already holds a newer one. Caller holds the engine lock.
+     */
+    private void apply(int table, int id, String[] fields, long seq) {
+        Table t = tables[table];
+        Row previous = t.rows.get(id);
+        Long previousSeq = previous != null ? Long.valueOf(previous.seq()) : t.tombstones.get(id);
+        if (previousSeq != null && previousSeq >= seq) {
+            return;
+        }
+        if (previousSeq != null) {
+            t.changes.remove(previousSeq);
+        }
+        if (fields == null) {
+            t.rows.remove(id);
+            t.ids.remove(id);
+            t.tombstones.put(id, seq);
+        } else {
+            t.rows.put(id, new Row(fields, seq));
+            t.ids.add(id);
+            t.tombstones.remove(id);
+        }
+        t.changes.put(seq, id);
+        lastSeq = Math.max(lastSeq, seq);
+
+        if (table == MEMBERS) {
+            if (previous != null && previous.fields()[1] != null) {
+                memberEmails.remove(emailKey(previous.fields()[1]), id);
+            }
+            if (fields != null && fields[1] != null) {
+                memberEmails.put(emailKey(fields[1]), id);
+            }
+        }
+        if (table == BORROWINGS) {
+            lastBorrowingId = Math.max(lastBorrowingId, id);
+            if (previous != null) {
+                openLoans.remove(loanKey(previous.fields()), id);
+            }
+            if (fields != null && fields[3] == null) {
+                openLoans.putIfAbsent(loanKey(fields), id);
+            }
+        }
+    }
+
+    private void replayRecord(LogRecord record) {
+        engineLock.lock();
+        try {
+            for (String line : record.payload().split("\n")) {
+                String[] parts = line.split("\t", -1);
+                int table = Integer.parseInt(parts[0]);
+                int id = Integer.parseInt(parts[1]);
+                long seq = Long.parseLong(parts[2]);
+                apply(table, id, parts.length > 3 ? RowCodec.decodeFields(parts, 3) : null, seq);
+            }
+        } finally {
+            engineLock.unlock();
+        }
+    }
+
+    /**
+     * Adds every row and tombstone to a snapshot; called by the background
+     * compactor. Waits for transactions already in the log to be applied.
+     */
+    private void snapshotRows(SnapshotFile.Writer writer) {
+        commitGate.writeLock().lock();
+        engineLock.lock();
+        try {
+            for (int table = 0; table < tables.length; table++) {
+                long tableKey = (long) table << 32;
+                tables[table].rows.forEach((id, row) ->
+                        writer.addRow(new long[]{tableKey | (id & 0xFFFFFFFFL), row.seq()}, "U", RowCodec.encodeFields(row.fields())));
+                tables[table].tombstones.forEach((id, seq) ->
+                        writer.addRow(new long[]{tableKey | (id & 0xFFFFFFFFL), seq}, "D", null));
+            }
+        } finally {
+            engineLock.unlock();
+            commitGate.writeLock().unlock();
+        }
+    }
+
+    private void loadSnapshot(SnapshotFile snapshot) {
+        engineLock.lock();
+        try {
+            for (int row = 0; row < snapshot.rowCount(); row++) {
+                long key = snapshot.getLong(row, 0);
+                String[] fields = "D".equals(snapshot.getString(row, 0))
+                        ? null
+                        : RowCodec.decodeFields(snapshot.getString(row, 1).split("\t", -1), 0);
+                apply((int) (key >>> 32), (int) key, fields, snapshot.getLong(row, 1));
+            }
+        } finally {
+            engineLock.unlock();
+        }
+    }
+
+    /**
+     * Row changes made together, logged as one record. Each is staged as it
+     * is added, under the engine lock, and applied by commit().
+     */
+    private final class Transaction {
+        private final StringBuilder payload = new StringBuilder();
+        private final List<Write> writes = new ArrayList<>();
+        // Earlier transactions whose staged rows this one read.
+        private final List<Transaction> dependsOn = new ArrayList<>();
+        private final CountDownLatch outcome = new CountDownLatch(1);
+        private volatile boolean logged;
+
+        void put(int table, int id, String[] fields) {
+            long seq = ++lastSeq;
+            Write write = new Write(table, id, fields, seq, this);
+            tables[table].staged.put(id, write);
+            inFlight.add(seq);
+            if (table == BORROWINGS) {
+                lastBorrowingId = Math.max(lastBorrowingId, id);
+            }
+            if (!writes.isEmpty()) {
+                payload.append('\n');
+            }
+            writes.add(write);
+            payload.append(table).append('\t').append(id).append('\t').append(seq);
+            if (fields != null) {
+                payload.append('\t').append(RowCodec.encodeFields(fields));
+            }
+        }
+
+        int size() {
+            return writes.size();
+        }
+
+        /** Waits until this transaction is applied or dropped; true if it was logged. */
+        boolean awaitOutcome() throws InterruptedException {
+            outcome.await();
+            return logged;
+        }
+    }
+
+    private record Write(int table, int id, String[] fields, long seq, Transaction tx) {
+    }
+
+    private static final class Table {
+        private final IntHashMap<Row> rows = new IntHashMap<>();
+        private final IntHashMap<Long> tombstones = new IntHashMap<>();
+        // newest write to each row still in flight; null fields for a delete
+        private final IntHashMap<Write> staged = new IntHashMap<>();
+        // live row ids in order, for paging
+        private final TreeSet<Integer> ids = new TreeSet<>();
+        // change sequence -> id, for both live rows and tombstones
+        private final TreeMap<Long, Integer> changes = new TreeMap<>();
+    }
+
+    private record Row(String[] fields, long seq) {
+    }
+
+    private interface RowMapper<T> {
+        T map(int id, String[] fields);
+    }
+
+    private static String emailKey(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static long loanKey(int bookId, int memberId) {
+        return ((long) bookId << 32) | (memberId & 0xFFFFFFFFL);
+    }
+
+    private static long loanKey(String[] borrowingFields) {
+        return loanKey(Integer.parseInt(borrowingFields[0]), Integer.parseInt(borrowingFields[1]));
+    }
+}
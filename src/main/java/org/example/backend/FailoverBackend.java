@@ -0,0 +1,445 @@
+package org.example.backend;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+
+import org.example.models.Book;
+import org.example.models.Borrowing;
+import org.example.models.Member;
+import org.example.utils.AppConfig;
+
+/**
+ * Wraps a remote backend with a circuit breaker and an outbox.
+ *
+ * While the breaker is open every call fails fast instead of waiting for a
+ * connect timeout: reads throw an unavailable StorageException (the DAOs then
+ * keep serving what they hold locally) and writes go to the durable outbox
+ * and report success. The outbox is replayed in order, before any new write,
+ * as soon as the breaker lets a call through again; a background thread
+ * retries every db.breaker.openMillis so it drains even when the desk is idle.
+ */
+public final class FailoverBackend implements StorageBackend {
+    private final StorageBackend primary;
+    private final CircuitBreaker breaker;
+    private final Outbox outbox;
+    private final ReentrantLock drainLock = new ReentrantLock();
+    private final ScheduledExecutorService retrier;
+    private volatile boolean draining = false;
+    private volatile BorrowingStore.QueuedBorrowListener borrowListener;
+
+    private final BookStore books = new FailoverBookStore();
+    private final MemberStore members = new FailoverMemberStore();
+    private final BorrowingStore borrowings = new FailoverBorrowingStore();
+
+    public FailoverBackend(StorageBackend primary) {
+        this.primary = primary;
+        long openMillis = AppConfig.getLong("db.breaker.openMillis", 10_000);
+        this.breaker = new CircuitBreaker(AppConfig.getInt("db.breaker.failureThreshold", 3), openMillis);
+
+        Outbox opened = null;
+        try {
+            opened = new Outbox("outbox", 0);
+            if (!opened.isEmpty()) {
+                System.out.println(" " + opened.size() + " queued database writes waiting to be sent.");
+            }
+        } catch (IOException | RuntimeException e) {
+            System.out.println(" Error opening outbox; writes will not be queued: " + e.getMessage());
+        }
+        this.outbox = opened;
+
+        this.retrier = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "db-failover");
+            thread.setDaemon(true);
+            return thread;
+        });
+        retrier.scheduleWithFixedDelay(this::drain, openMillis, openMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public String getName() {
+        return primary.getName();
+    }
+
+    @Override
+    public BookStore books() {
+        return books;
+    }
+
+    @Override
+    public MemberStore members() {
+        return members;
+    }
+
+    @Override
+    public BorrowingStore borrowings() {
+        return borrowings;
+    }
+
+    @Override
+    public boolean isDegraded() {
+        return breaker.getState() != CircuitBreaker.State.CLOSED || hasQueuedWrites();
+    }
+
+    public CircuitBreaker.State getBreakerState() {
+        return breaker.getState();
+    }
+
+    /** Stops retrying, makes a last attempt to send queued writes, then closes the primary. */
+    @Override
+    public void close() {
+        retrier.shutdown();
+        try {
+            retrier.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        drain();
+        if (hasQueuedWrites()) {
+            System.out.println(" " + outbox.size() + " queued database writes will be sent on the next start.");
+        }
+        primary.close();
+    }
+
+    private final class FailoverBookStore implements BookStore {
+        @Override
+        public void insert(Book book) throws StorageException {
+            write("book.insert", book.getBookId(), RowCodec.bookFields(book), entry -> null, () -> {
+                primary.books().insert(book);
+                return null;
+            });
+        }
+
+        @Override
+        public List<Integer> insertAll(List<Book> list) throws StorageException {
+            drain();
+            List<Integer> rejected = List.of();
+            List<Book> unsent = list;
+            if (!hasQueuedWrites()) {
+                try {
+                    return call(() -> primary.books().insertAll(list));
+                } catch (StorageException e) {
+                    if (!e.isUnavailable() || outbox == null) {
+                        throw e;
+                    }
+                    if (e instanceof BatchInsertException partial) {
+                        // The chunks before the connection went are in; only queue the rest.
+                        rejected = partial.getRejected();
+                        unsent = list.subList(partial.getDone(), list.size());
+                    }
+                }
+            }
+            List<Integer> ids = new ArrayList<>(unsent.size());
+            List<String[]> fields = new ArrayList<>(unsent.size());
+            for (Book book : unsent) {
+                ids.add(book.getBookId());
+                fields.add(RowCodec.bookFields(book));
+            }
+            try {
+                outbox.addAll("book.insert", ids, fields);
+            } catch (IOException e) {
+                throw new StorageException(e);
+            }
+            System.out.println(" Database unavailable; queued " + unsent.size() + " books to send later.");
+            return rejected;
+        }
+
+        @Override
+        public boolean update(Book book) throws StorageException {
+            return write("book.update", book.getBookId(), RowCodec.bookFields(book), entry -> true,
+                    () -> primary.books().update(book));
+        }
+
+        @Override
+        public boolean delete(int bookId) throws StorageException {
+            return write("book.delete", bookId, new String[0], entry -> true, () -> primary.books().delete(bookId));
+        }
+
+        @Override
+        public long pullChanges(long since, Consumer<Book> changed, IntConsumer deleted) throws StorageException {
+            drain();
+            return call(() -> primary.books().pullChanges(since, changed, deleted));
+        }
+
+        @Override
+        public List<Book> page(int afterId, int limit) throws StorageException {
+            drainBeforePage();
+            return call(() -> primary.books().page(afterId, limit));
+        }
+    }
+
+    private final class FailoverMemberStore implements MemberStore {
+        @Override
+        public void insert(Member member) throws StorageException {
+            write("member.insert", member.getId(), RowCodec.memberFields(member), entry -> null, () -> {
+                primary.members().insert(member);
+                return null;
+            });
+        }
+
+        @Override
+        public boolean update(Member member) throws StorageException {
+            return write("member.update", member.getId(), RowCodec.memberFields(member), entry -> true,
+                    () -> primary.members().update(member));
+        }
+
+        @Override
+        public boolean delete(int memberId) throws StorageException {
+            return write("member.delete", memberId, new String[0], entry -> true, () -> primary.members().delete(memberId));
+        }
+
+        @Override
+        public Member findById(int memberId) throws StorageException {
+            return call(() -> primary.members().findById(memberId));
+        }
+
+        @Override
+        public Member findByEmail(String email) throws StorageException {
+            return call(() -> primary.members().findByEmail(email));
+        }
+
+        @Override
+        public long pullChanges(long since, Consumer<Member> changed, IntConsumer deleted) throws StorageException {
+            drain();
+            return call(() -> primary.members().pullChanges(since, changed, deleted));
+        }
+
+        @Override
+        public List<Member> page(int afterId, int limit) throws StorageException {
+            drainBeforePage();
+            return call(() -> primary.members().page(afterId, limit));
+        }
+    }
+
+    private final class FailoverBorrowingStore implements BorrowingStore {
+        @Override
+        public int borrow(Borrowing borrowing) throws StorageException {
+            return write("borrow", 0, RowCodec.borrowingFields(borrowing),
+                    entry -> {
+                        borrowing.setId(entry.id());
+                        return QUEUED;
+                    },
+                    () -> primary.borrowings().borrow(borrowing));
+        }
+
+        @Override
+        public int returnBook(int bookId, int memberId, Date returnDate) throws StorageException {
+            String[] fields = {String.valueOf(bookId), String.valueOf(memberId), String.valueOf(returnDate.getTime())};
+            return write("return", 0, fields, entry -> QUEUED,
+                    () -> primary.borrowings().returnBook(bookId, memberId, returnDate));
+        }
+
+        @Override
+        public boolean delete(int id) throws StorageException {
+            return write("borrowing.delete", id, new String[0], entry -> true, () -> primary.borrowings().delete(id));
+        }
+
+        @Override
+        public boolean cancelQueued(int provisionalId) throws StorageException {
+            return cancel("borrow", provisionalId);
+        }
+
+        @Override
+        public void setQueuedBorrowListener(QueuedBorrowListener listener) {
+            borrowListener = listener;
+        }
+
+        @Override
+        public long pullChanges(long since, Consumer<Borrowing> changed, IntConsumer deleted) throws StorageException {
+            drain();
+            return call(() -> primary.borrowings().pullChanges(since, changed, deleted));
+        }
+
+        @Override
+        public List<Borrowing> page(int afterId, int limit) throws StorageException {
+            drainBeforePage();
+            return call(() -> primary.borrowings().page(afterId, limit));
+        }
+    }
+
+    private interface StorageCall<T> {
+        T run() throws StorageException;
+    }
+
+    /**
+     * Sends a write to the primary, or queues it if the primary cannot be
+     * reached or older writes are still waiting (so they cannot be overtaken).
+     */
+    private <T> T write(String op, int id, String[] fields, Function<Outbox.Entry, T> onQueued,
+                        StorageCall<T> action) throws StorageException {
+        drain();
+        if (!hasQueuedWrites()) {
+            try {
+                return call(action);
+            } catch (StorageException e) {
+                if (!e.isUnavailable() || outbox == null) {
+                    throw e;
+                }
+            }
+        }
+        if (outbox == null) {
+            throw new StorageException("Database unavailable and no outbox to queue the write", true);
+        }
+        Outbox.Entry entry;
+        try {
+            entry = outbox.add(op, id, fields);
+        } catch (IOException e) {
+            throw new StorageException(e);
+        }
+        System.out.println(" Database unavailable; queued " + op + " to send later (" + outbox.size() + " waiting).");
+        return onQueued.apply(entry);
+    }
+
+    /**
+     * Takes a queued write back out of the outbox. Holds the drain lock, so
+     * a write already being sent is not reported as taken back.
+     */
+    private boolean cancel(String op, int id) throws StorageException {
+        if (outbox == null) {
+            return false;
+        }
+        drainLock.lock();
+        try {
+            return outbox.remove(op, id);
+        } catch (IOException e) {
+            throw new StorageException(e);
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    /** Runs a call through the breaker; fails at once while it is open. */
+    private <T> T call(StorageCall<T> action) throws StorageException {
+        if (!breaker.allowRequest()) {
+            throw new StorageException("Database unavailable (circuit breaker open)", true);
+        }
+        try {
+            T result = action.run();
+            breaker.recordSuccess();
+            return result;
+        } catch (StorageException e) {
+            if (e.isUnavailable()) {
+                breaker.recordFailure();
+            } else {
+                breaker.recordSuccess();
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            breaker.recordSuccess();
+            throw e;
+        }
+    }
+
+    /**
+     * A page read from the primary would leave out writes still in the
+     * outbox, so refuse it until they are all delivered; callers then page
+     * through their local copy instead.
+     */
+    private void drainBeforePage() throws StorageException {
+        drain();
+        if (hasQueuedWrites()) {
+            throw new StorageException("Database is still catching up on queued writes", true);
+        }
+    }
+
+    private boolean hasQueuedWrites() {
+        return outbox != null && (draining || !outbox.isEmpty());
+    }
+
+    /**
+     * Replays queued writes oldest first until the outbox is empty or the
+     * primary stops answering. A write the database rejects outright (say a
+     * duplicate id) is reported and dropped, since retrying cannot fix it.
+     * Any other failure keeps the write at the head of the queue for the
+     * next attempt: a queued write was reported as saved, so it is only given
+     * up when the database has definitely refused it.
+     */
+    private void drain() {
+        if (outbox == null || outbox.isEmpty() || !drainLock.tryLock()) {
+            return;
+        }
+        draining = true;
+        int sent = 0;
+        try {
+            Outbox.Entry entry;
+            while ((entry = outbox.peek()) != null) {
+                Outbox.Entry current = entry;
+                try {
+                    call(() -> {
+                        replay(current);
+                        return null;
+                    });
+                } catch (StorageException e) {
+                    if (!e.isRejected()) {
+                        if (!e.isUnavailable()) {
+                            System.out.println(" Error sending queued " + entry.op() + " for ID " + entry.id()
+                                    + "; will retry: " + e.getMessage());
+                        }
+                        break;
+                    }
+                    System.out.println(" Dropping queued " + entry.op() + " for ID " + entry.id() + ": " + e.getMessage());
+                } catch (RuntimeException e) {
+                    System.out.println(" Dropping unreadable queued " + entry.op() + ": " + e.getMessage());
+                }
+                outbox.remove(entry);
+                sent++;
+            }
+        } catch (IOException e) {
+            System.out.println(" Error updating outbox: " + e.getMessage());
+        } finally {
+            draining = false;
+            drainLock.unlock();
+        }
+        if (sent > 0) {
+            System.out.println(" Sent " + sent + " queued writes to the database"
+                    + (outbox.isEmpty() ? "." : "; " + outbox.size() + " still waiting."));
+        }
+    }
+
+    private void replay(Outbox.Entry entry) throws StorageException {
+        String[] fields = entry.fields();
+        switch (entry.op()) {
+            case "book.insert" -> primary.books().insert(RowCodec.toBook(entry.id(), fields));
+            case "book.update" -> primary.books().update(RowCodec.toBook(entry.id(), fields));
+            case "book.delete" -> primary.books().delete(entry.id());
+            case "member.insert" -> primary.members().insert(RowCodec.toMember(entry.id(), fields));
+            case "member.update" -> primary.members().update(RowCodec.toMember(entry.id(), fields));
+            case "member.delete" -> primary.members().delete(entry.id());
+            case "borrow" -> {
+                Borrowing borrowing = RowCodec.toBorrowing(entry.id(), fields);
+                int remaining = primary.borrowings().borrow(borrowing);
+                if (remaining < 0) {
+                    System.out.println(" Queued loan of book " + borrowing.getBookId() + " to member "
+                            + borrowing.getMemberId() + " was rejected: no copies left.");
+                }
+                BorrowingStore.QueuedBorrowListener listener = borrowListener;
+                if (listener != null) {
+                    listener.resolved(entry.id(), remaining < 0 ? null : borrowing);
+                }
+            }
+            case "return" -> {
+                int bookId = Integer.parseInt(fields[0]);
+                int memberId = Integer.parseInt(fields[1]);
+                if (primary.borrowings().returnBook(bookId, memberId, new Date(Long.parseLong(fields[2]))) < 0) {
+                    System.out.println(" Queued return of book " + bookId + " by member " + memberId
+                            + " found no open loan in the database.");
+                }
+            }
+            case "borrowing.delete" -> {
+                // A provisional id was never known to the database; its loan is resolved through the listener.
+                if (entry.id() > 0) {
+                    primary.borrowings().delete(entry.id());
+                }
+            }
+            default -> System.out.println(" Skipping unknown queued write: " + entry.op());
+        }
+    }
+}
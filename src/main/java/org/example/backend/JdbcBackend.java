@@ -0,0 +1,81 @@
+package org.example.backend;
+
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+
+import org.example.database.ChangeTracking;
+import org.example.database.DatabaseConnection;
+
+/** The PostgreSQL database configured by db.url, reached through the shared pool. */
+public class JdbcBackend implements StorageBackend {
+    private final JdbcBookStore books = new JdbcBookStore();
+    private final JdbcMemberStore members = new JdbcMemberStore();
+    private final JdbcBorrowingStore borrowings = new JdbcBorrowingStore();
+
+    public JdbcBackend() {
+        migrate();
+    }
+
+    /**
+     * Brings the schema up to date once, when the backend starts: the
+     * borrowings table, then change tracking on the three synced tables. If
+     * the database can't be reached yet, incremental syncs fail (and the
+     * DAOs keep their local copy) until the next start.
+     */
+    private void migrate() {
+        try {
+            borrowings.createTable();
+            ChangeTracking.install("books", "book_id");
+            ChangeTracking.install("members", "member_id");
+            ChangeTracking.install("borrowings", "id");
+        } catch (SQLException e) {
+            System.out.println(" Error preparing database schema: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "jdbc";
+    }
+
+    @Override
+    public BookStore books() {
+        return books;
+    }
+
+    @Override
+    public MemberStore members() {
+        return members;
+    }
+
+    @Override
+    public BorrowingStore borrowings() {
+        return borrowings;
+    }
+
+    @Override
+    public void close() {
+        DatabaseConnection.shutdown();
+    }
+
+    /**
+     * Wraps a JDBC failure. Transient errors mean the same call may succeed
+     * later: no connection (SQLSTATE class 08, or the pool had none to give),
+     * a rolled-back transaction (40), a server short of resources (53) or an
+     * operator stepping in (57). Classes 22 (data exception) and 23
+     * (integrity constraint violation) mean the database rejected the
+     * statement for good. Anything else is left undecided.
+     */
+    static StorageException failure(SQLException e) {
+        String state = e.getSQLState();
+        String stateClass = state == null || state.length() < 2 ? "" : state.substring(0, 2);
+        boolean unavailable = e instanceof SQLTransientException || e instanceof SQLRecoverableException
+                || switch (stateClass) {
+                    case "08", "40", "53", "57" -> true;
+                    default -> false;
+                };
+        boolean rejected = stateClass.equals("22") || stateClass.equals("23");
+        return new StorageException(e, unavailable, rejected);
+    }
+}
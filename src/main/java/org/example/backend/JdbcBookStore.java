@@ -0,0 +1,171 @@
+package org.example.backend;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+import org.example.database.ChangeTracking;
+import org.example.database.DatabaseConnection;
+import org.example.models.Book;
+import org.example.utils.AppConfig;
+
+public class JdbcBookStore implements BookStore {
+    private static final String INSERT_SQL =
+            "INSERT INTO books (title, author, genre, available_copies, book_id) VALUES (?, ?, ?, ?, ?)";
+    private final int batchSize = Math.max(1, AppConfig.getInt("db.batchSize", 500));
+
+    @Override
+    public void insert(Book book) throws StorageException {
+        try (Connection conn = DatabaseConnection.connect();
+             PreparedStatement stmt = conn.prepareStatement(INSERT_SQL)) {
+            setInsertParameters(stmt, book);
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            throw JdbcBackend.failure(e);
+        }
+    }
+
+    /**
+     * Inserts books with JDBC batching, one transaction per chunk of
+     * db.batchSize rows. If the database turns a chunk down, its rows are
+     * tried one at a time so only the bad ones are left out; their ids are
+     * returned. A lost connection is passed up as an unavailable
+     * BatchInsertException that says how far the insert got, since the
+     * chunks before it are committed.
+     */
+    @Override
+    public List<Integer> insertAll(List<Book> books) throws StorageException {
+        List<Integer> rejected = new ArrayList<>();
+        int done = 0;
+
+        try (Connection conn = DatabaseConnection.connect();
+             PreparedStatement stmt = conn.prepareStatement(INSERT_SQL)) {
+            conn.setAutoCommit(false);
+
+            for (int start = 0; start < books.size(); start += batchSize) {
+                List<Book> chunk = books.subList(start, Math.min(start + batchSize, books.size()));
+                try {
+                    for (Book book : chunk) {
+                        setInsertParameters(stmt, book);
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
+                    conn.commit();
+                } catch (SQLException e) {
+                    stmt.clearBatch();
+                    rollbackAfter(conn, e);
+                    insertOneByOne(conn, stmt, chunk, rejected);
+                }
+                done += chunk.size();
+                System.out.println(" Saved " + (done - rejected.size()) + "/" + books.size() + " books to database.");
+            }
+        } catch (SQLException e) {
+            throw new BatchInsertException(JdbcBackend.failure(e), done, rejected);
+        }
+
+        if (!rejected.isEmpty()) {
+            System.out.println(" " + rejected.size() + " of " + books.size() + " books were not saved to the database.");
+        }
+        return rejected;
+    }
+
+    /** Inserts a chunk row by row, each in its own transaction, adding the ids the database refuses to rejected. */
+    private static void insertOneByOne(Connection conn, PreparedStatement stmt, List<Book> chunk,
+                                       List<Integer> rejected) throws SQLException {
+        for (Book book : chunk) {
+            try {
+                setInsertParameters(stmt, book);
+                stmt.executeUpdate();
+                conn.commit();
+            } catch (SQLException e) {
+                rollbackAfter(conn, e);
+                rejected.add(book.getBookId());
+                System.out.println(" Error saving book " + book.getBookId() + " to database: " + e.getMessage());
+            }
+        }
+    }
+
+    /** Rolls back after a failed statement, unless the connection itself is gone; then e is passed up. */
+    private static void rollbackAfter(Connection conn, SQLException e) throws SQLException {
+        if (JdbcBackend.failure(e).isUnavailable()) {
+            throw e;
+        }
+        conn.rollback();
+    }
+
+    @Override
+    public boolean update(Book book) throws StorageException {
+        String sql = "UPDATE books SET title = ?, author = ?, genre = ?, available_copies = ? WHERE book_id = ?";
+
+        try (Connection conn = DatabaseConnection.connect();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, book.getTitle());
+            stmt.setString(2, book.getAuthor());
+            stmt.setString(3, book.getGenre());
+            stmt.setInt(4, book.getAvailableCopies());
+            stmt.setInt(5, book.getBookId());
+            return stmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            throw JdbcBackend.failure(e);
+        }
+    }
+
+    @Override
+    public boolean delete(int bookId) throws StorageException {
+        String sql = "DELETE FROM books WHERE book_id = ?";
+
+        try (Connection conn = DatabaseConnection.connect();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, bookId);
+            return stmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            throw JdbcBackend.failure(e);
+        }
+    }
+
+    @Override
+    public long pullChanges(long since, Consumer<Book> changed, IntConsumer deleted) throws StorageException {
+        try {
+            return ChangeTracking.pullChanges("books", "book_id, title, author, genre, available_copies", since,
+                    rs -> changed.accept(new Book(rs.getInt(1), rs.getString(2), rs.getString(3),
+                            rs.getString(4), rs.getInt(5))),
+                    deleted);
+        } catch (SQLException e) {
+            throw JdbcBackend.failure(e);
+        }
+    }
+
+    @Override
+    public List<Book> page(int afterId, int limit) throws StorageException {
+        String sql = "SELECT book_id, title, author, genre, available_copies FROM books"
+                + " WHERE book_id > ? ORDER BY book_id LIMIT ?";
+        List<Book> books = new ArrayList<>();
+
+        try (Connection conn = DatabaseConnection.connect();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, afterId);
+            stmt.setInt(2, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    books.add(new Book(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getInt(5)));
+                }
+            }
+        } catch (SQLException e) {
+            throw JdbcBackend.failure(e);
+        }
+        return books;
+    }
+
+    private static void setInsertParameters(PreparedStatement stmt, Book book) throws SQLException {
+        stmt.setString(1, book.getTitle());
+        stmt.setString(2, book.getAuthor());
+        stmt.setString(3, book.getGenre());
+        stmt.setInt(4, book.getAvailableCopies());
+        stmt.setInt(5, book.getBookId());
+    }
+}
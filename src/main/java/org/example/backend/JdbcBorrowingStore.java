@@ -0,0 +1,164 @@
+package org.example.backend;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+import org.example.database.ChangeTracking;
+import org.example.database.DatabaseConnection;
+import org.example.models.Borrowing;
+
+public class JdbcBorrowingStore implements BorrowingStore {
+    private final ReentrantLock tableLock = new ReentrantLock();
+    private boolean tableChecked = false;
+
+    /**
+     * Takes a copy and records the loan in one statement, so two terminals
+     * cannot both take the last copy.
+     */
+    @Override
+    public int borrow(Borrowing borrowing) throws StorageException {
+        String sql = "WITH taken AS ("
+                + " UPDATE books SET available_copies = available_copies - 1"
+                + " WHERE book_id = ? AND available_copies > 0"
+                + " RETURNING book_id, available_copies"
+                + "), loan AS ("
+                + " INSERT INTO borrowings (book_id, member_id, borrow_date, return_date)"
+                + " SELECT book_id, ?, ?, NULL FROM taken"
+                + " RETURNING id"
+                + ")"
+                + " SELECT loan.id, taken.available_copies FROM loan CROSS JOIN taken";
+
+        try (Connection conn = DatabaseConnection.connect();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, borrowing.getBookId());
+            stmt.setInt(2, borrowing.getMemberId());
+            stmt.setTimestamp(3, new Timestamp(borrowing.getBorrowDate().getTime()));
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return -1;
+                }
+                borrowing.setId(rs.getInt(1));
+                return rs.getInt(2);
+            }
+        } catch (SQLException e) {
+            throw JdbcBackend.failure(e);
+        }
+    }
+
+    @Override
+    public int returnBook(int bookId, int memberId, Date returnDate) throws StorageException {
+        String sql = "WITH closed AS ("
+                + " UPDATE borrowings SET return_date = ?"
+                + " WHERE id = (SELECT id FROM borrowings"
+                + "   WHERE book_id = ? AND member_id = ? AND return_date IS NULL"
+                + "   ORDER BY borrow_date LIMIT 1 FOR UPDATE)"
+                + " RETURNING book_id"
+                + "), restocked AS ("
+                + " UPDATE books SET available_copies = available_copies + 1"
+                + " FROM closed WHERE books.book_id = closed.book_id"
+                + " RETURNING books.available_copies"
+                + ")"
+                + " SELECT available_copies FROM restocked";
+
+        try (Connection conn = DatabaseConnection.connect();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setTimestamp(1, new Timestamp(returnDate.getTime()));
+            stmt.setInt(2, bookId);
+            stmt.setInt(3, memberId);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : -1;
+            }
+        } catch (SQLException e) {
+            throw JdbcBackend.failure(e);
+        }
+    }
+
+    @Override
+    public boolean delete(int id) throws StorageException {
+        String sql = "DELETE FROM borrowings WHERE id = ?";
+
+        try (Connection conn = DatabaseConnection.connect();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, id);
+            return stmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            throw JdbcBackend.failure(e);
+        }
+    }
+
+    @Override
+    public long pullChanges(long since, Consumer<Borrowing> changed, IntConsumer deleted) throws StorageException {
+        try {
+            createTable();
+            return ChangeTracking.pullChanges("borrowings", "id, book_id, member_id, borrow_date, return_date", since,
+                    rs -> changed.accept(new Borrowing(rs.getInt(1), rs.getInt(2), rs.getInt(3),
+                            rs.getTimestamp(4), rs.getTimestamp(5))),
+                    deleted);
+        } catch (SQLException e) {
+            throw JdbcBackend.failure(e);
+        }
+    }
+
+    @Override
+    public List<Borrowing> page(int afterId, int limit) throws StorageException {
+        String sql = "SELECT id, book_id, member_id, borrow_date, return_date FROM borrowings"
+                + " WHERE id > ? ORDER BY id LIMIT ?";
+        List<Borrowing> borrowings = new ArrayList<>();
+
+        try {
+            createTable();
+            try (Connection conn = DatabaseConnection.connect();
+                 PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setInt(1, afterId);
+                stmt.setInt(2, limit);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        borrowings.add(new Borrowing(rs.getInt(1), rs.getInt(2), rs.getInt(3),
+                                rs.getTimestamp(4), rs.getTimestamp(5)));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw JdbcBackend.failure(e);
+        }
+        return borrowings;
+    }
+
+    void createTable() throws SQLException {
+        tableLock.lock();
+        try {
+            if (tableChecked) {
+                return;
+            }
+            String sql = "CREATE TABLE IF NOT EXISTS borrowings ("
+                    + "id SERIAL PRIMARY KEY,"
+                    + "book_id INTEGER NOT NULL,"
+                    + "member_id INTEGER NOT NULL,"
+                    + "borrow_date TIMESTAMP NOT NULL,"
+                    + "return_date TIMESTAMP,"
+                    + "FOREIGN KEY (book_id) REFERENCES books(book_id),"
+                    + "FOREIGN KEY (member_id) REFERENCES members(member_id)"
+                    + ")";
+
+            try (Connection conn = DatabaseConnection.connect();
+                 Statement stmt = conn.createStatement()) {
+                stmt.execute(sql);
+            }
+            tableChecked = true;
+        } finally {
+            tableLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package org.example.backend;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+import org.example.database.ChangeTracking;
+import org.example.database.DatabaseConnection;
+import org.example.models.Member;
+
+public class JdbcMemberStore implements MemberStore {
+    private boolean emailIndexChecked = false;
+
+    @Override
+    public void insert(Member member) throws StorageException {
+        String sql = "INSERT INTO members (member_id, name, email, phone) VALUES (?, ?, ?, ?)";
+
+        try (Connection conn = DatabaseConnection.connect();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, member.getId());
+            stmt.setString(2, member.getName());
+            stmt.setString(3, member.getEmail());
+            stmt.setString(4, member.getPhone());
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            throw JdbcBackend.failure(e);
+        }
+    }
+
+    @Override
+    public boolean update(Member member) throws StorageException {
+        String sql = "UPDATE members SET name = ?, email = ?, phone = ? WHERE member_id = ?";
+
+        try (Connection conn = DatabaseConnection.connect();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, member.getName());
+            stmt.setString(2, member.getEmail());
+            stmt.setString(3, member.getPhone());
+            stmt.setInt(4, member.getId());
+            return stmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            throw JdbcBackend.failure(e);
+        }
+    }
+
+    @Override
+    public boolean delete(int memberId) throws StorageException {
+        String sql = "DELETE FROM members WHERE member_id = ?";
+
+        try (Connection conn = DatabaseConnection.connect();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, memberId);
+            return stmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            throw JdbcBackend.failure(e);
+        }
+    }
+
+    @Override
+    public Member findById(int memberId) throws StorageException {
+        String sql = "SELECT member_id, name, email, phone FROM members WHERE member_id = ?";
+
+        try (Connection conn = DatabaseConnection.connect();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, memberId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? readMember(rs) : null;
+            }
+        } catch (SQLException e) {
+            throw JdbcBackend.failure(e);
+        }
+    }
+
+    @Override
+    public Member findByEmail(String email) throws StorageException {
+        ensureEmailIndex();
+        String sql = "SELECT member_id, name, email, phone FROM members WHERE lower(email) = lower(?)";
+
+        try (Connection conn = DatabaseConnection.connect();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, email.trim());
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? readMember(rs) : null;
+            }
+        } catch (SQLException e) {
+            throw JdbcBackend.failure(e);
+        }
+    }
+
+    @Override
+    public long pullChanges(long since, Consumer<Member> changed, IntConsumer deleted) throws StorageException {
+        try {
+            return ChangeTracking.pullChanges("members", "member_id, name, email, phone", since,
+                    rs -> changed.accept(readMember(rs)),
+                    deleted);
+        } catch (SQLException e) {
+            throw JdbcBackend.failure(e);
+        }
+    }
+
+    @Override
+    public List<Member> page(int afterId, int limit) throws StorageException {
+        String sql = "SELECT member_id, name, email, phone FROM members"
+                + " WHERE member_id > ? ORDER BY member_id LIMIT ?";
+        List<Member> members = new ArrayList<>();
+
+        try (Connection conn = DatabaseConnection.connect();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, afterId);
+            stmt.setInt(2, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    members.add(readMember(rs));
+                }
+            }
+        } catch (SQLException e) {
+            throw JdbcBackend.failure(e);
+        }
+        return members;
+    }
+
+    /** Makes sure the database can answer the case-insensitive email lookup without a table scan. */
+    private void ensureEmailIndex() {
+        if (emailIndexChecked) {
+            return;
+        }
+        String sql = "CREATE INDEX IF NOT EXISTS idx_members_email_lower ON members (lower(email))";
+        try (Connection conn = DatabaseConnection.connect();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+            emailIndexChecked = true;
+        } catch (SQLException e) {
+            System.out.println(" Error creating member email index: " + e.getMessage());
+        }
+    }
+
+    private static Member readMember(ResultSet rs) throws SQLException {
+        return new Member(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4));
+    }
+}
@@ -0,0 +1,35 @@
+package org.example.backend;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+import org.example.models.Member;
+
+/** System of record for members, underneath MemberDAOImpl. */
+public interface MemberStore {
+    void insert(Member member) throws StorageException;
+
+    /** Returns false if no member has that id. */
+    boolean update(Member member) throws StorageException;
+
+    /** Returns false if no member has that id. */
+    boolean delete(int memberId) throws StorageException;
+
+    /** Returns null if no member has that id. */
+    Member findById(int memberId) throws StorageException;
+
+    /** Case-insensitive; returns null if no member has that email. */
+    Member findByEmail(String email) throws StorageException;
+
+    /** See BookStore.pullChanges. */
+    long pullChanges(long since, Consumer<Member> changed, IntConsumer deleted) throws StorageException;
+
+    /** See BookStore.page. */
+    List<Member> page(int afterId, int limit) throws StorageException;
+
+    /** See BookStore.seed. */
+    default boolean seed(List<Member> members) throws StorageException {
+        return false;
+    }
+}
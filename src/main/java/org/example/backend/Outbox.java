@@ -0,0 +1,216 @@
+package org.example.backend;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.example.storage.LogRecord;
+import org.example.storage.RecordStore;
+import org.example.storage.RecordType;
+import org.example.storage.SnapshotFile;
+
+/**
+ * Durable queue of writes waiting for the database, kept in a record store so
+ * they survive a restart. Entries are replayed in the order they were added
+ * and deleted from the store once applied.
+ */
+final class Outbox {
+
+    record Entry(long seq, String op, int id, String[] fields) {
+    }
+
+    private final TreeMap<Long, Entry> pending = new TreeMap<>();
+    // Held across appends, so entries reach the log in seq order.
+    private final ReentrantLock lock = new ReentrantLock();
+    private final RecordStore store;
+    private final int provisionalBase;
+    private long lastSeq;
+
+    /**
+     * Provisional ids handed out by this queue are -(provisionalBase + seq);
+     * queues that can both hold borrows use bases far enough apart that
+     * their ids never meet.
+     */
+    Outbox(String storeName, int provisionalBase) throws IOException {
+        this.provisionalBase = provisionalBase;
+        this.store = RecordStore.open(storeName, null);
+        store.setSnapshotSource(1, 1, this::snapshotEntries);
+        store.replay(this::loadSnapshot, record -> {
+            if (record.type() == RecordType.DELETE) {
+                pending.remove(Long.parseLong(record.payload()));
+            } else {
+                Entry entry = parse(record.payload());
+                pending.put(entry.seq(), entry);
+                lastSeq = Math.max(lastSeq, entry.seq());
+            }
+        });
+    }
+
+    /**
+     * Queues one write. An id of 0 is replaced by a provisional (negative) id
+     * for a row the database has not numbered yet, which cannot clash with
+     * ids the database hands out.
+     */
+    Entry add(String op, int id, String[] fields) throws IOException {
+        lock.lock();
+        try {
+            long seq = lastSeq + 1;
+            Entry entry = new Entry(seq, op, id == 0 ? (int) -(provisionalBase + seq) : id, fields);
+            store.append(RecordType.INSERT, format(entry));
+            lastSeq = seq;
+            pending.put(seq, entry);
+            return entry;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Queues several writes of the same kind with one append. */
+    void addAll(String op, List<Integer> ids, List<String[]> fields) throws IOException {
+        lock.lock();
+        try {
+            List<Entry> entries = new ArrayList<>(ids.size());
+            List<LogRecord> records = new ArrayList<>(ids.size());
+            for (int i = 0; i < ids.size(); i++) {
+                Entry entry = new Entry(lastSeq + 1 + i, op, ids.get(i), fields.get(i));
+                entries.add(entry);
+                records.add(new LogRecord(RecordType.INSERT, format(entry)));
+            }
+            store.appendAll(records);
+            for (Entry entry : entries) {
+                pending.put(entry.seq(), entry);
+            }
+            lastSeq += entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    Entry peek() {
+        lock.lock();
+        try {
+            Map.Entry<Long, Entry> first = pending.firstEntry();
+            return first == null ? null : first.getValue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Returns up to max of the oldest entries, oldest first. */
+    List<Entry> peek(int max) {
+        lock.lock();
+        try {
+            List<Entry> batch = new ArrayList<>(Math.min(max, pending.size()));
+            for (Entry entry : pending.values()) {
+                if (batch.size() == max) {
+                    break;
+                }
+                batch.add(entry);
+            }
+            return batch;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void removeAll(List<Entry> entries) throws IOException {
+        lock.lock();
+        try {
+            List<LogRecord> records = new ArrayList<>(entries.size());
+            for (Entry entry : entries) {
+                records.add(new LogRecord(RecordType.DELETE, String.valueOf(entry.seq())));
+            }
+            store.appendAll(records);
+            for (Entry entry : entries) {
+                pending.remove(entry.seq());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long lastSeq() {
+        lock.lock();
+        try {
+            return lastSeq;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void remove(Entry entry) throws IOException {
+        lock.lock();
+        try {
+            store.append(RecordType.DELETE, String.valueOf(entry.seq()));
+            pending.remove(entry.seq());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Removes the queued write with that op and id; false if there is none. */
+    boolean remove(String op, int id) throws IOException {
+        lock.lock();
+        try {
+            for (Entry entry : pending.values()) {
+                if (entry.id() == id && entry.op().equals(op)) {
+                    store.append(RecordType.DELETE, String.valueOf(entry.seq()));
+                    pending.remove(entry.seq());
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    boolean isEmpty() {
+        lock.lock();
+        try {
+            return pending.isEmpty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int size() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void snapshotEntries(SnapshotFile.Writer writer) {
+        lock.lock();
+        try {
+            for (Entry entry : pending.values()) {
+                writer.addRow(new long[]{entry.seq()}, format(entry));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void loadSnapshot(SnapshotFile snapshot) {
+        for (int row = 0; row < snapshot.rowCount(); row++) {
+            Entry entry = parse(snapshot.getString(row, 0));
+            pending.put(entry.seq(), entry);
+            lastSeq = Math.max(lastSeq, entry.seq());
+        }
+    }
+
+    private static String format(Entry entry) {
+        return entry.seq() + "\t" + entry.op() + "\t" + entry.id() + "\t" + RowCodec.encodeFields(entry.fields());
+    }
+
+    private static Entry parse(String payload) {
+        String[] parts = payload.split("\t", -1);
+        return new Entry(Long.parseLong(parts[0]), parts[1], Integer.parseInt(parts[2]), RowCodec.decodeFields(parts, 3));
+    }
+}
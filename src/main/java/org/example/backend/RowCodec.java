@@ -0,0 +1,96 @@
+package org.example.backend;
+
+import java.util.Date;
+
+import org.example.models.Book;
+import org.example.models.Borrowing;
+import org.example.models.Member;
+
+/**
+ * Text form of rows for the local stores: fields joined by tabs, with
+ * backslash, tab and newline escaped and null written as \N, so any title or
+ * name survives a round trip.
+ */
+public final class RowCodec {
+    private static final String NULL_FIELD = "\\N";
+
+    private RowCodec() {
+    }
+
+    public static String[] bookFields(Book book) {
+        return new String[]{book.getTitle(), book.getAuthor(), book.getGenre(), String.valueOf(book.getAvailableCopies())};
+    }
+
+    public static Book toBook(int id, String[] fields) {
+        return new Book(id, fields[0], fields[1], fields[2], Integer.parseInt(fields[3]));
+    }
+
+    public static String[] memberFields(Member member) {
+        return new String[]{member.getName(), member.getEmail(), member.getPhone()};
+    }
+
+    public static Member toMember(int id, String[] fields) {
+        return new Member(id, fields[0], fields[1], fields[2]);
+    }
+
+    static String[] borrowingFields(Borrowing borrowing) {
+        return new String[]{
+                String.valueOf(borrowing.getBookId()),
+                String.valueOf(borrowing.getMemberId()),
+                String.valueOf(borrowing.getBorrowDate().getTime()),
+                borrowing.getReturnDate() == null ? null : String.valueOf(borrowing.getReturnDate().getTime())
+        };
+    }
+
+    static Borrowing toBorrowing(int id, String[] fields) {
+        return new Borrowing(id, Integer.parseInt(fields[0]), Integer.parseInt(fields[1]),
+                new Date(Long.parseLong(fields[2])),
+                fields[3] == null ? null : new Date(Long.parseLong(fields[3])));
+    }
+
+    public static String encodeFields(String[] fields) {
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                out.append('\t');
+            }
+            String field = fields[i];
+            if (field == null) {
+                out.append(NULL_FIELD);
+                continue;
+            }
+            for (int c = 0; c < field.length(); c++) {
+                char ch = field.charAt(c);
+                switch (ch) {
+                    case '\\' -> out.append("\\\\");
+                    case '\t' -> out.append("\\t");
+                    case '\n' -> out.append("\\n");
+                    default -> out.append(ch);
+                }
+            }
+        }
+        return out.toString();
+    }
+
+    public static String[] decodeFields(String[] parts, int from) {
+        String[] fields = new String[parts.length - from];
+        for (int i = 0; i < fields.length; i++) {
+            String part = parts[from + i];
+            if (part.equals(NULL_FIELD)) {
+                continue;
+            }
+            StringBuilder field = new StringBuilder(part.length());
+            for (int c = 0; c < part.length(); c++) {
+                char ch = part.charAt(c);
+                if (ch == '\\' && c + 1 < part.length()) {
+                    char next = part.charAt(++c);
+                    field.append(next == 't' ? '\t' : next == 'n' ? '\n' : next);
+                } else {
+                    field.append(ch);
+                }
+            }
+            fields[i] = field.toString();
+        }
+        return fields;
+    }
+}
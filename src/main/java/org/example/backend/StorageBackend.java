@@ -0,0 +1,67 @@
+package org.example.backend;
+
+import java.io.IOException;
+import java.util.Locale;
+
+import org.example.utils.AppConfig;
+
+/**
+ * Where the DAOs keep their system of record. Chosen with storage.backend:
+ * "jdbc" (the default) uses the PostgreSQL database, "embedded" uses an
+ * in-process engine on local files, for running without a database. The
+ * jdbc backend is wrapped in a FailoverBackend unless db.breaker.enabled is
+ * false, and either one in a WriteBehindBackend if
+ * storage.writeBehind.enabled is true.
+ */
+public interface StorageBackend extends AutoCloseable {
+    /** Short name, used to keep sync watermarks of different backends apart. */
+    String getName();
+
+    BookStore books();
+
+    MemberStore members();
+
+    BorrowingStore borrowings();
+
+    /**
+     * True while writes may be queued rather than applied, so callers should
+     * check what they can against their own state first.
+     */
+    default boolean isDegraded() {
+        return false;
+    }
+
+    /**
+     * Waits until every write made so far has reached the system of record.
+     * Returns false if that did not happen within the timeout. Backends that
+     * write synchronously are always up to date.
+     */
+    default boolean awaitDurable(long timeoutMillis) {
+        return true;
+    }
+
+    @Override
+    void close();
+
+    static StorageBackend fromConfig() {
+        String name = AppConfig.get("storage.backend", "jdbc").trim().toLowerCase(Locale.ROOT);
+        StorageBackend backend = switch (name) {
+            case "jdbc" -> AppConfig.getBoolean("db.breaker.enabled", true)
+                    ? new FailoverBackend(new JdbcBackend())
+                    : new JdbcBackend();
+            case "embedded" -> new EmbeddedBackend();
+            default -> {
+                System.out.println(" Unknown storage.backend '" + name + "', using jdbc.");
+                yield new JdbcBackend();
+            }
+        };
+        if (AppConfig.getBoolean("storage.writeBehind.enabled", false)) {
+            try {
+                backend = new WriteBehindBackend(backend);
+            } catch (IOException e) {
+                System.out.println(" Error opening intents store; writing synchronously: " + e.getMessage());
+            }
+        }
+        return backend;
+    }
+}
@@ -0,0 +1,55 @@
+package org.example.backend;
+
+/**
+ * Raised by a storage backend when a read or write could not be carried out.
+ * Wraps the backend's own exception (SQLException, IOException, ...) so the
+ * DAOs handle every backend the same way.
+ *
+ * An unavailable failure means the backend could not be reached at all (as
+ * opposed to rejecting the request), so the same call may succeed later. A
+ * rejected failure is the opposite: the backend turned the request down for
+ * good (a constraint or bad data), so retrying it cannot help. A failure that
+ * is neither may have been either.
+ */
+public class StorageException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    private final boolean unavailable;
+    private final boolean rejected;
+
+    public StorageException(String message) {
+        this(message, false);
+    }
+
+    public StorageException(String message, boolean unavailable) {
+        this(message, unavailable, false);
+    }
+
+    public StorageException(String message, boolean unavailable, boolean rejected) {
+        super(message);
+        this.unavailable = unavailable;
+        this.rejected = rejected;
+    }
+
+    public StorageException(Throwable cause) {
+        this(cause, false);
+    }
+
+    public StorageException(Throwable cause, boolean unavailable) {
+        this(cause, unavailable, false);
+    }
+
+    public StorageException(Throwable cause, boolean unavailable, boolean rejected) {
+        super(cause.getMessage(), cause);
+        this.unavailable = unavailable;
+        this.rejected = rejected;
+    }
+
+    public boolean isUnavailable() {
+        return unavailable;
+    }
+
+    public boolean isRejected() {
+        return rejected;
+    }
+}
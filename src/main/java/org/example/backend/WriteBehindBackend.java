@@ -0,0 +1,595 @@
+package org.example.backend;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+import org.example.models.Book;
+import org.example.models.Borrowing;
+import org.example.models.Member;
+import org.example.utils.AppConfig;
+
+/**
+ * Write-behind mode (storage.writeBehind.enabled). A write is recorded as an
+ * intent in the durable "intents" store and acknowledged at once; the DAOs
+ * have already updated their own state, so the desk does not wait for the
+ * database. A background writer sends the intents to the wrapped backend in
+ * batches, at most storage.writeBehind.maxLagMillis after the first one was
+ * queued, or sooner once storage.writeBehind.batchSize are waiting.
+ *
+ * Within a batch, book and member writes to the same row are coalesced (an
+ * insert followed by updates becomes one insert, an insert followed by a
+ * delete disappears) and new books go in one batched insert. Borrows, returns
+ * and loan deletes are never merged or reordered: each one is a barrier that
+ * the writes before it are flushed ahead of.
+ *
+ * Borrows are answered with BorrowingStore.QUEUED and a provisional id; the
+ * queued-borrow listener hears about the real loan once it is written. If the
+ * wrapped backend queues the borrow again (a failover outbox), the listener
+ * is only told the new provisional id, and the real loan comes from there. Use
+ * awaitDurable() when a caller must know its writes have reached the backend.
+ * Syncs wait for the queue to drain; page reads never wait and are refused
+ * while writes are queued, so the DAOs page through their own copy.
+ * Closing flushes everything still queued.
+ */
+public final class WriteBehindBackend implements StorageBackend {
+    /** Keeps provisional loan ids apart from the ones the failover outbox hands out. */
+    private static final int PROVISIONAL_BASE = 1 << 30;
+
+    private final StorageBackend primary;
+    private final Outbox intents;
+    private final long maxLagMillis;
+    private final int batchSize;
+    private final int maxPending;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition queued = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+    private final Thread writer;
+    private long appliedThrough;
+    private long firstQueuedAt;
+    private boolean closing = false;
+    private volatile BorrowingStore.QueuedBorrowListener borrowListener;
+
+    private final BookStore books = new WriteBehindBookStore();
+    private final MemberStore members = new WriteBehindMemberStore();
+    private final BorrowingStore borrowings = new WriteBehindBorrowingStore();
+
+    public WriteBehindBackend(StorageBackend primary) throws IOException {
+        this.primary = primary;
+        this.maxLagMillis = Math.max(1, AppConfig.getLong("storage.writeBehind.maxLagMillis", 200));
+        this.batchSize = Math.max(1, AppConfig.getInt("storage.writeBehind.batchSize", 500));
+        this.maxPending = Math.max(batchSize, AppConfig.getInt("storage.writeBehind.maxPending", 10_000));
+        this.intents = new Outbox("intents", PROVISIONAL_BASE);
+        if (!intents.isEmpty()) {
+            System.out.println(" " + intents.size() + " queued writes from the last run will be sent.");
+        }
+        this.appliedThrough = intents.isEmpty() ? intents.lastSeq() : intents.peek().seq() - 1;
+        this.firstQueuedAt = System.currentTimeMillis();
+
+        this.writer = new Thread(this::runWriter, "write-behind");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public String getName() {
+        return primary.getName();
+    }
+
+    @Override
+    public BookStore books() {
+        return books;
+    }
+
+    @Override
+    public MemberStore members() {
+        return members;
+    }
+
+    @Override
+    public BorrowingStore borrowings() {
+        return borrowings;
+    }
+
+    /** Writes are always queued here, so callers must check their own state first. */
+    @Override
+    public boolean isDegraded() {
+        return true;
+    }
+
+    /**
+     * Waits until every write queued before this call has been handed to the
+     * wrapped backend. Returns false if that did not happen within the timeout.
+     */
+    @Override
+    public boolean awaitDurable(long timeoutMillis) {
+        long target = intents.lastSeq();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        lock.lock();
+        try {
+            queued.signal();
+            while (appliedThrough < target) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || !writer.isAlive()) {
+                    return false;
+                }
+                flushed.awaitNanos(remaining);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Flushes every queued write, then closes the wrapped backend. */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closing = true;
+            queued.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!intents.isEmpty()) {
+            System.out.println(" " + intents.size() + " queued writes will be sent on the next start.");
+        }
+        primary.close();
+    }
+
+    private final class WriteBehindBookStore implements BookStore {
+        @Override
+        public void insert(Book book) throws StorageException {
+            enqueue("book.insert", book.getBookId(), RowCodec.bookFields(book));
+        }
+
+        @Override
+        public List<Integer> insertAll(List<Book> list) throws StorageException {
+            List<Integer> ids = new ArrayList<>(list.size());
+            List<String[]> fields = new ArrayList<>(list.size());
+            for (Book book : list) {
+                ids.add(book.getBookId());
+                fields.add(RowCodec.bookFields(book));
+            }
+            try {
+                intents.addAll("book.insert", ids, fields);
+            } catch (IOException e) {
+                throw new StorageException(e);
+            }
+            queuedWrite();
+            return List.of();
+        }
+
+        @Override
+        public boolean update(Book book) throws StorageException {
+            enqueue("book.update", book.getBookId(), RowCodec.bookFields(book));
+            return true;
+        }
+
+        @Override
+        public boolean delete(int bookId) throws StorageException {
+            enqueue("book.delete", bookId, new String[0]);
+            return true;
+        }
+
+        @Override
+        public long pullChanges(long since, Consumer<Book> changed, IntConsumer deleted) throws StorageException {
+            flushBeforeRead();
+            return primary.books().pullChanges(since, changed, deleted);
+        }
+
+        @Override
+        public List<Book> page(int afterId, int limit) throws StorageException {
+            refuseWhileQueued();
+            return primary.books().page(afterId, limit);
+        }
+
+        /** Straight to the wrapped backend; a queued insert of a seeded book is then dropped as a duplicate. */
+        @Override
+        public boolean seed(List<Book> list) throws StorageException {
+            return primary.books().seed(list);
+        }
+    }
+
+    private final class WriteBehindMemberStore implements MemberStore {
+        @Override
+        public void insert(Member member) throws StorageException {
+            enqueue("member.insert", member.getId(), RowCodec.memberFields(member));
+        }
+
+        @Override
+        public boolean update(Member member) throws StorageException {
+            enqueue("member.update", member.getId(), RowCodec.memberFields(member));
+            return true;
+        }
+
+        @Override
+        public boolean delete(int memberId) throws StorageException {
+            enqueue("member.delete", memberId, new String[0]);
+            return true;
+        }
+
+        @Override
+        public Member findById(int memberId) throws StorageException {
+            return primary.members().findById(memberId);
+        }
+
+        @Override
+        public Member findByEmail(String email) throws StorageException {
+            return primary.members().findByEmail(email);
+        }
+
+        @Override
+        public long pullChanges(long since, Consumer<Member> changed, IntConsumer deleted) throws StorageException {
+            flushBeforeRead();
+            return primary.members().pullChanges(since, changed, deleted);
+        }
+
+        @Override
+        public List<Member> page(int afterId, int limit) throws StorageException {
+            refuseWhileQueued();
+            return primary.members().page(afterId, limit);
+        }
+
+        @Override
+        public boolean seed(List<Member> list) throws StorageException {
+            return primary.members().seed(list);
+        }
+    }
+
+    private final class WriteBehindBorrowingStore implements BorrowingStore {
+        @Override
+        public int borrow(Borrowing borrowing) throws StorageException {
+            Outbox.Entry entry = enqueue("borrow", 0, RowCodec.borrowingFields(borrowing));
+            borrowing.setId(entry.id());
+            return QUEUED;
+        }
+
+        @Override
+        public int returnBook(int bookId, int memberId, Date returnDate) throws StorageException {
+            String[] fields = {String.valueOf(bookId), String.valueOf(memberId), String.valueOf(returnDate.getTime())};
+            enqueue("return", 0, fields);
+            return QUEUED;
+        }
+
+        @Override
+        public boolean delete(int id) throws StorageException {
+            enqueue("borrowing.delete", id, new String[0]);
+            return true;
+        }
+
+        /** Also registered below, so loans a failover outbox queues again still get resolved. */
+        @Override
+        public void setQueuedBorrowListener(QueuedBorrowListener listener) {
+            borrowListener = listener;
+            primary.borrowings().setQueuedBorrowListener(listener);
+        }
+
+        @Override
+        public long pullChanges(long since, Consumer<Borrowing> changed, IntConsumer deleted) throws StorageException {
+            flushBeforeRead();
+            return primary.borrowings().pullChanges(since, changed, deleted);
+        }
+
+        @Override
+        public List<Borrowing> page(int afterId, int limit) throws StorageException {
+            refuseWhileQueued();
+            return primary.borrowings().page(afterId, limit);
+        }
+
+        @Override
+        public boolean seed(List<Borrowing> list) throws StorageException {
+            return primary.borrowings().seed(list);
+        }
+    }
+
+    private Outbox.Entry enqueue(String op, int id, String[] fields) throws StorageException {
+        Outbox.Entry entry;
+        try {
+            entry = intents.add(op, id, fields);
+        } catch (IOException e) {
+            throw new StorageException(e);
+        }
+        queuedWrite();
+        return entry;
+    }
+
+    /**
+     * Wakes the writer and, once more than maxPending writes are waiting,
+     * holds the caller back until it catches up.
+     */
+    private void queuedWrite() {
+        lock.lock();
+        try {
+            queued.signal();
+            while (intents.size() > maxPending && !closing && writer.isAlive()) {
+                flushed.await(maxLagMillis, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * A sync must not pull rows older than the writes still queued here, or
+     * it would put stale values back into the DAOs' caches.
+     */
+    private void flushBeforeRead() throws StorageException {
+        if (!awaitDurable(Math.max(5_000, maxLagMillis * 10))) {
+            throw new StorageException("Queued writes have not reached " + primary.getName() + " yet", true);
+        }
+    }
+
+    /**
+     * A page read from the backend would leave out the writes still queued
+     * here. Rather than hold the reader until the writer catches up, refuse
+     * it at once; the DAOs then page through their own copy, which already
+     * has those writes.
+     */
+    private void refuseWhileQueued() throws StorageException {
+        if (!intents.isEmpty()) {
+            throw new StorageException("Queued writes have not reached " + primary.getName() + " yet", true);
+        }
+    }
+
+    private void runWriter() {
+        while (true) {
+            lock.lock();
+            try {
+                while (intents.isEmpty() && !closing) {
+                    firstQueuedAt = 0;
+                    queued.await();
+                }
+                if (intents.isEmpty()) {
+                    return;
+                }
+                if (firstQueuedAt == 0) {
+                    firstQueuedAt = System.currentTimeMillis();
+                }
+                long lag;
+                while (!closing && intents.size() < batchSize
+                        && (lag = firstQueuedAt + maxLagMillis - System.currentTimeMillis()) > 0) {
+                    queued.await(lag, TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            List<Outbox.Entry> batch = intents.peek(batchSize);
+            int sent = flush(batch);
+
+            lock.lock();
+            try {
+                if (sent > 0) {
+                    appliedThrough = batch.get(sent - 1).seq();
+                    firstQueuedAt = System.currentTimeMillis();
+                }
+                flushed.signalAll();
+                if (sent < batch.size()) {
+                    if (closing) {
+                        return;
+                    }
+                    // The backend is unreachable; try again after a pause.
+                    queued.await(Math.max(1_000, maxLagMillis), TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Sends a batch and removes what was sent from the intents store. Returns
+     * how many entries, from the start of the batch, are done; the rest stay
+     * queued because the backend could not be reached.
+     */
+    private int flush(List<Outbox.Entry> batch) {
+        int done = 0;
+        try {
+            int start = 0;
+            while (start < batch.size()) {
+                int end = start;
+                while (end < batch.size() && !isBarrier(batch.get(end).op())) {
+                    end++;
+                }
+                if (end > start) {
+                    sendRows(batch.subList(start, end));
+                    done = end;
+                }
+                if (end < batch.size()) {
+                    Outbox.Entry barrier = batch.get(end);
+                    send(barrier);
+                    intents.remove(barrier);
+                    done = end + 1;
+                }
+                start = done;
+            }
+        } catch (StorageException e) {
+            System.out.println(" Error writing queued changes to " + primary.getName() + ": " + e.getMessage());
+        } catch (IOException e) {
+            System.out.println(" Error updating intents store: " + e.getMessage());
+        }
+        return done;
+    }
+
+    private static boolean isBarrier(String op) {
+        return !op.startsWith("book.") && !op.startsWith("member.");
+    }
+
+    /**
+     * Sends a run of book and member writes, merged per row, and removes them
+     * from the intents store. Rows are independent of one another, so only
+     * the order within a row matters.
+     *
+     * New books go in one batch. A book the batch turns down gets one more
+     * try on its own through send(), which drops it only if the backend
+     * refuses it again. If the backend goes away part way, the writes to the
+     * books it had not stored stay queued and the rest are removed.
+     */
+    private void sendRows(List<Outbox.Entry> rows) throws StorageException, IOException {
+        Map<String, List<Outbox.Entry>> byRow = new LinkedHashMap<>();
+        for (Outbox.Entry entry : rows) {
+            String table = entry.op().substring(0, entry.op().indexOf('.'));
+            byRow.computeIfAbsent(table + ":" + entry.id(), key -> new ArrayList<>()).add(entry);
+        }
+
+        List<Book> newBooks = new ArrayList<>();
+        Map<Integer, Outbox.Entry> inserts = new HashMap<>();
+        for (List<Outbox.Entry> writes : byRow.values()) {
+            for (Outbox.Entry entry : coalesce(writes)) {
+                if (entry.op().equals("book.insert")) {
+                    newBooks.add(RowCodec.toBook(entry.id(), entry.fields()));
+                    inserts.put(entry.id(), entry);
+                } else {
+                    send(entry);
+                }
+            }
+        }
+
+        List<Integer> notStored = List.of();
+        StorageException lost = null;
+        if (!newBooks.isEmpty()) {
+            List<Integer> retry = List.of();
+            try {
+                retry = primary.books().insertAll(newBooks);
+            } catch (BatchInsertException e) {
+                if (!e.isUnavailable()) {
+                    throw e;
+                }
+                lost = e;
+                notStored = new ArrayList<>(e.getRejected());
+                for (Book book : newBooks.subList(e.getDone(), newBooks.size())) {
+                    notStored.add(book.getBookId());
+                }
+            }
+            for (int i = 0; lost == null && i < retry.size(); i++) {
+                try {
+                    send(inserts.get(retry.get(i)));
+                } catch (StorageException e) {
+                    lost = e;
+                    notStored = retry.subList(i, retry.size());
+                }
+            }
+        }
+
+        Set<String> kept = new HashSet<>();
+        for (int bookId : notStored) {
+            kept.add("book:" + bookId);
+        }
+        List<Outbox.Entry> sent = new ArrayList<>(rows.size());
+        for (Map.Entry<String, List<Outbox.Entry>> row : byRow.entrySet()) {
+            if (!kept.contains(row.getKey())) {
+                sent.addAll(row.getValue());
+            }
+        }
+        intents.removeAll(sent);
+        if (lost != null) {
+            throw lost;
+        }
+    }
+
+    /** Merges the writes to one row, oldest first, into at most a delete and an insert or update. */
+    private static List<Outbox.Entry> coalesce(List<Outbox.Entry> writes) {
+        List<Outbox.Entry> merged = new ArrayList<>();
+        for (Outbox.Entry entry : writes) {
+            String kind = entry.op().substring(entry.op().indexOf('.') + 1);
+            Outbox.Entry last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            String lastKind = last == null ? null : last.op().substring(last.op().indexOf('.') + 1);
+            if (kind.equals("update") && ("insert".equals(lastKind) || "update".equals(lastKind))) {
+                merged.set(merged.size() - 1, new Outbox.Entry(entry.seq(), last.op(), entry.id(), entry.fields()));
+            } else if (kind.equals("delete") && "insert".equals(lastKind)) {
+                merged.remove(merged.size() - 1);
+            } else if (kind.equals("delete") && "update".equals(lastKind)) {
+                merged.set(merged.size() - 1, entry);
+            } else {
+                merged.add(entry);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Sends one write. A write the backend rejects outright (say a duplicate
+     * id) is reported and dropped, since retrying cannot fix it; any other
+     * failure is passed up and the write stays queued.
+     */
+    private void send(Outbox.Entry entry) throws StorageException {
+        String[] fields = entry.fields();
+        try {
+            switch (entry.op()) {
+                case "book.insert" -> primary.books().insert(RowCodec.toBook(entry.id(), fields));
+                case "book.update" -> primary.books().update(RowCodec.toBook(entry.id(), fields));
+                case "book.delete" -> primary.books().delete(entry.id());
+                case "member.insert" -> primary.members().insert(RowCodec.toMember(entry.id(), fields));
+                case "member.update" -> primary.members().update(RowCodec.toMember(entry.id(), fields));
+                case "member.delete" -> primary.members().delete(entry.id());
+                case "borrow" -> {
+                    Borrowing borrowing = RowCodec.toBorrowing(entry.id(), fields);
+                    int remaining = primary.borrowings().borrow(borrowing);
+                    BorrowingStore.QueuedBorrowListener listener = borrowListener;
+                    if (remaining == BorrowingStore.QUEUED) {
+                        // Not decided yet; the wrapped backend resolves it under its own id.
+                        if (listener != null) {
+                            listener.requeued(entry.id(), borrowing.getId());
+                        }
+                        return;
+                    }
+                    if (remaining == -1) {
+                        System.out.println(" Queued loan of book " + borrowing.getBookId() + " to member "
+                                + borrowing.getMemberId() + " was rejected: no copies left.");
+                    }
+                    if (listener != null) {
+                        listener.resolved(entry.id(), remaining == -1 ? null : borrowing);
+                    }
+                }
+                case "return" -> {
+                    int bookId = Integer.parseInt(fields[0]);
+                    int memberId = Integer.parseInt(fields[1]);
+                    if (primary.borrowings().returnBook(bookId, memberId, new Date(Long.parseLong(fields[2]))) == -1) {
+                        System.out.println(" Queued return of book " + bookId + " by member " + memberId
+                                + " found no open loan.");
+                    }
+                }
+                case "borrowing.delete" -> {
+                    // A provisional id was never known to the backend; its loan is resolved through the listener.
+                    if (entry.id() > 0) {
+                        primary.borrowings().delete(entry.id());
+                    }
+                }
+                default -> System.out.println(" Skipping unknown queued write: " + entry.op());
+            }
+        } catch (StorageException e) {
+            if (!e.isRejected()) {
+                throw e;
+            }
+            System.out.println(" Dropping queued " + entry.op() + " for ID " + entry.id() + ": " + e.getMessage());
+        } catch (RuntimeException e) {
+            System.out.println(" Dropping unreadable queued " + entry.op() + ": " + e.getMessage());
+        }
+    }
+}
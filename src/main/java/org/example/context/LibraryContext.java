@@ -0,0 +1,148 @@
+package org.example.context;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.example.backend.StorageBackend;
+import org.example.dao.BookDAO;
+import org.example.dao.BookDAOImpl;
+import org.example.dao.BorrowingDAO;
+import org.example.dao.BorrowingDAOImpl;
+import org.example.dao.MemberDAO;
+import org.example.dao.MemberDAOImpl;
+import org.example.services.BookService;
+import org.example.services.BorrowingService;
+import org.example.services.MemberService;
+import org.example.storage.LogCompactor;
+import org.example.storage.RecordStore;
+
+/**
+ * Owns the single instance of each DAO and service. Everything is created on
+ * first use, so a menu that never touches borrowings never loads them, and
+ * every service shares the same in-memory catalog.
+ */
+public class LibraryContext implements AutoCloseable {
+    // The first call to each getter opens files and may connect to the database.
+    private final ReentrantLock lock = new ReentrantLock();
+    private StorageBackend storageBackend;
+    private BookDAO bookDAO;
+    private MemberDAO memberDAO;
+    private BorrowingDAO borrowingDAO;
+    private BookService bookService;
+    private MemberService memberService;
+    private BorrowingService borrowingService;
+
+    /** The backend chosen by storage.backend; see StorageBackend.fromConfig(). */
+    public StorageBackend getStorageBackend() {
+        lock.lock();
+        try {
+            if (storageBackend == null) {
+                storageBackend = StorageBackend.fromConfig();
+            }
+            return storageBackend;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public BookDAO getBookDAO() {
+        lock.lock();
+        try {
+            if (bookDAO == null) {
+                bookDAO = new BookDAOImpl(getStorageBackend());
+            }
+            return bookDAO;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public MemberDAO getMemberDAO() {
+        lock.lock();
+        try {
+            if (memberDAO == null) {
+                memberDAO = new MemberDAOImpl(getStorageBackend());
+            }
+            return memberDAO;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public BorrowingDAO getBorrowingDAO() {
+        lock.lock();
+        try {
+            if (borrowingDAO == null) {
+                borrowingDAO = new BorrowingDAOImpl(getBookDAO(), getStorageBackend());
+            }
+            return borrowingDAO;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public BookService getBookService() {
+        lock.lock();
+        try {
+            if (bookService == null) {
+                bookService = new BookService(getBookDAO());
+            }
+            return bookService;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public MemberService getMemberService() {
+        lock.lock();
+        try {
+            if (memberService == null) {
+                memberService = new MemberService(getMemberDAO());
+            }
+            return memberService;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public BorrowingService getBorrowingService() {
+        lock.lock();
+        try {
+            if (borrowingService == null) {
+                borrowingService = new BorrowingService(getBorrowingDAO(), getBookDAO(), getMemberDAO());
+            }
+            return borrowingService;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until every write made so far has reached the storage backend;
+     * only write-behind mode ever has to wait. Returns false on timeout.
+     */
+    public boolean awaitDurable(long timeoutMillis) {
+        StorageBackend backend;
+        lock.lock();
+        try {
+            backend = storageBackend;
+        } finally {
+            lock.unlock();
+        }
+        return backend == null || backend.awaitDurable(timeoutMillis);
+    }
+
+    /** Stops background work and releases files and database connections. */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            LogCompactor.shutdown();
+            if (storageBackend != null) {
+                storageBackend.close();
+            }
+            RecordStore.closeAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
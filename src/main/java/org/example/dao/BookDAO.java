@@ -1,16 +1,109 @@
 package org.example.dao;
 
 import org.example.models.Book;
+import org.example.models.Page;
+import org.example.utils.CopyInventory;
+import java.util.Collection;
 import java.util.List;
 
+/**
+ * The catalog. Every method is safe to call from many threads at once.
+ *
+ * Writes to one book are linearizable: add, update, delete and copy-count
+ * changes for the same id take effect one at a time, in the same order in
+ * memory, in the database and in the file log, and a read that starts after
+ * one returns sees it. Writes to different books run in parallel.
+ *
+ * The Book objects handed out are the catalog's own entries, updated in
+ * place; a caller that reads several fields of one while it is being
+ * changed may see some old and some new values.
+ */
 public interface BookDAO {
-    void addBook(Book book);
+    /**
+     * Atomic: the id and title+author duplicate checks and the insert happen
+     * as one step. Returns false if the book was a duplicate.
+     */
+    boolean addBook(Book book);
+
+    /**
+     * Atomic as a whole in memory: no other write to any of these ids runs
+     * while the import is checked, added, logged and stored.
+     */
+    int addBooks(Collection<Book> books);
+
+    /** A copy of the catalog at one instant, in catalog order. */
     List<Book> getAllBooks();
+
+    /** Lock-free; sees every write that finished before the call. */
+    Book getBookById(int bookId);
+
     Book searchBookByTitle(String title);
+
+    /**
+     * This and the other searches see the indexes at one instant: a change
+     * to a book is in all of them or in none.
+     */
+    List<Book> findBooksByTitle(String title);
+
+    List<Book> searchBooksByTitleContaining(String fragment);
+
+    List<Book> search(String query, int limit);
+
+    List<Book> suggestBooks(String text, int limit);
+
+    List<String> autocomplete(String prefix, int limit);
+
     List<Book> searchBooksByAuthor(String author);
+
     List<Book> searchBooksByGenre(String genre);
+
+    /**
+     * This and the other ordered listings take no lock and are weakly
+     * consistent: every book not changed meanwhile is listed once, but one
+     * whose title or genre changes while the listing runs may be missed or
+     * listed at both its old and new position.
+     */
     List<Book> sortBooksByTitle();
+
     List<Book> sortBooksByGenre();
+
+    List<Book> getBooksByTitleFrom(String fromTitle, int limit);
+
+    List<Book> getBooksByGenreFrom(String fromGenre, int limit);
+
+    /** Linearizable per book; a no-op with a message if the book is gone. */
     void updateBook(Book book);
+
+    /** Linearizable per book. */
     void deleteBook(int bookId);
+
+    /**
+     * Records a count the database already committed, replacing the
+     * inventory's. Callers must hold whatever orders their own changes to
+     * the count (the borrowing DAO holds the book's stripe); this only keeps
+     * the inventory, memory and the log in step.
+     */
+    void updateAvailableCopies(int bookId, int availableCopies);
+
+    /**
+     * Brings the book's available copies, in memory and in the log, up to
+     * the inventory's current count. Safe to call from any thread.
+     */
+    void refreshAvailableCopies(int bookId);
+
+    /**
+     * Per-book copy counters, updated lock-free. Borrowing reserves a copy
+     * here before it persists the loan, so concurrent borrows can't lend
+     * more copies than the catalog has.
+     */
+    CopyInventory getInventory();
+
+    /**
+     * Keyset pages by id: no book is listed on two pages, and books added or
+     * removed while paging may or may not show up.
+     */
+    Page<Book> getBooksPage(int afterId, int size);
+
+    /** One sync runs at a time; it may overlap other reads and writes. */
+    int sync();
 }
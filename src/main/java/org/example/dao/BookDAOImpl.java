@@ -1,74 +1,270 @@
 package org.example.dao;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
-
-import org.example.database.DatabaseConnection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+import org.example.backend.BatchInsertException;
+import org.example.backend.BookStore;
+import org.example.backend.RowCodec;
+import org.example.backend.StorageBackend;
+import org.example.backend.StorageException;
 import org.example.models.Book;
-
+import org.example.models.Page;
+import org.example.storage.LogRecord;
+import org.example.storage.RecordStore;
+import org.example.storage.RecordType;
+import org.example.storage.SnapshotFile;
+import org.example.utils.BKTree;
+import org.example.utils.CopyInventory;
+import org.example.utils.FullTextIndex;
+import org.example.utils.IntHashMap;
+import org.example.utils.PrefixIndex;
+import org.example.utils.StripedLocks;
+import org.example.utils.TextNormalizer;
+import org.example.utils.TrigramIndex;
+
+/**
+ * The catalog. Lookups by id and the sorted and paged listings read
+ * concurrent maps and take no lock. The search indexes are not thread-safe,
+ * so they sit behind a read/write lock: any number of searches run at once,
+ * and a change to the catalog blocks them only while it updates the
+ * indexes in memory, never while it waits on the database or the file log.
+ *
+ * Changes to one book (add, update, delete, copy count, loading it from the
+ * database) also hold that book's stripe lock from start to finish, so they
+ * reach memory, the database and the file log in the same order. A bulk
+ * import holds the stripes of every id it brings in. Stripes are always
+ * taken before the index lock. See BookDAO for what each method guarantees.
+ */
 public class BookDAOImpl implements BookDAO {
-    private final List<Book> bookList = new ArrayList<>();
-    private static final String FILE_PATH = "books.txt";
+    /** Orders books by a normalized field, then by id so equal names stay distinct. */
+    private record SortKey(String key, int bookId) implements Comparable<SortKey> {
+        static SortKey of(String text, int bookId) {
+            return new SortKey(TextNormalizer.key(text), bookId);
+        }
+
+        @Override
+        public int compareTo(SortKey other) {
+            int byKey = key.compareTo(other.key);
+            return byKey != 0 ? byKey : Integer.compare(bookId, other.bookId);
+        }
+    }
 
-    public BookDAOImpl() {
+    /** Catalog order; guarded by indexLock like the search indexes. */
+    private final List<Book> bookList = new ArrayList<>();
+    // Boxed keys, not an IntHashMap: that one can't be read while another thread writes it, and id lookups take no lock.
+    private final ConcurrentHashMap<Integer, Book> booksById = new ConcurrentHashMap<>();
+    private final ReentrantReadWriteLock indexLock = new ReentrantReadWriteLock();
+    private final StripedLocks locks = new StripedLocks(64);
+    /**
+     * Live copy counts. A Book's own getAvailableCopies() is a copy of its
+     * cell, written back by refreshAvailableCopies after every change, so it
+     * can trail the cell while a borrow is under way.
+     */
+    private final CopyInventory inventory = new CopyInventory();
+    /** Normalized title -> every book with that title, in the order they were added. */
+    private final Map<String, List<Book>> booksByTitle = new HashMap<>();
+    /** Substring indexes over the lower-cased fields, for the contains() searches. */
+    private final TrigramIndex titleIndex = new TrigramIndex();
+    private final TrigramIndex authorIndex = new TrigramIndex();
+    private final TrigramIndex genreIndex = new TrigramIndex();
+    /** Ranked word search; title words weigh most, then author, then genre. */
+    private final FullTextIndex textIndex = new FullTextIndex(3, 2, 1);
+    /** Normalized titles, authors and their longer words, for typo-tolerant suggestions. */
+    private final BKTree fuzzyIndex = new BKTree();
+    /** Type-ahead over titles and authors, ranked by available copies. */
+    private final PrefixIndex titleCompletions = new PrefixIndex(AUTOCOMPLETE_LIMIT);
+    private final PrefixIndex authorCompletions = new PrefixIndex(AUTOCOMPLETE_LIMIT);
+    private static final int AUTOCOMPLETE_LIMIT = 10;
+    /** The catalog kept in title and genre order, so sorted listings are a walk, not a sort. */
+    private final ConcurrentSkipListMap<SortKey, Book> byTitle = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<SortKey, Book> byGenre = new ConcurrentSkipListMap<>();
+    /** Id order, for paging when the database can't be asked. */
+    private final ConcurrentSkipListMap<Integer, Book> byId = new ConcurrentSkipListMap<>();
+    private static final String STORE_NAME = "books";
+    private static final String LEGACY_FILE = "books.txt";
+    private final RecordStore log;
+    private final BookStore store;
+    private final String backendName;
+    private long syncedThrough;
+    // One sync at a time. Syncs wait on the database and the file log, so a lock rather than a monitor,
+    // which would pin a virtual thread to its carrier for as long.
+    private final ReentrantLock syncLock = new ReentrantLock();
+
+    public BookDAOImpl(StorageBackend backend) {
+        this.store = backend.books();
+        this.backendName = backend.getName();
+        this.log = openLog();
         loadBooksFromFile();    
-        loadBooksFromDatabase(); 
+        if (syncedThrough == 0) {
+            seedDatabase();
+        }
+        syncFromDatabase();
     }
 
     @Override
-    public void addBook(Book book) {
-        if (bookList.contains(book)) {
-            System.out.println("Book already exists.");
-            return;
+    public boolean addBook(Book book) {
+        ReentrantLock lock = locks.lockFor(book.getBookId());
+        lock.lock();
+        try {
+            indexLock.writeLock().lock();
+            try {
+                if (booksById.containsKey(book.getBookId())) {
+                    System.out.println("Book already exists.");
+                    return false;
+                }
+                Book duplicate = findDuplicate(book);
+                if (duplicate != null) {
+                    System.out.println("Book already exists: " + duplicate);
+                    return false;
+                }
+                addLoadedBook(book);
+            } finally {
+                indexLock.writeLock().unlock();
+            }
+            writeToLog(RecordType.INSERT, formatBook(book));
+            saveBookToDatabase(book);
+        } finally {
+            lock.unlock();
         }
-        bookList.add(book);
-        saveBookToFile(book);      
-        saveBookToDatabase(book);
         System.out.println("Book added: " + book.getTitle());
+        return true;
+    }
+
+    @Override
+    public int addBooks(Collection<Book> books) {
+        List<Book> accepted = new ArrayList<>(books.size());
+        IntHashMap<Book> seen = new IntHashMap<>(books.size());
+        HashSet<String> seenTitles = new HashSet<>(books.size());
+        int duplicates = 0;
+        int added;
+
+        int[] ids = books.stream().mapToInt(Book::getBookId).toArray();
+        ReentrantLock[] held = locks.lockAll(ids);
+        try {
+            duplicates = acceptNewBooks(books, accepted, seen, seenTitles);
+            if (duplicates > 0) {
+                System.out.println(" Skipped " + duplicates + " books that already exist.");
+            }
+            if (accepted.isEmpty()) {
+                return 0;
+            }
+
+            List<LogRecord> records = new ArrayList<>(accepted.size());
+            for (Book book : accepted) {
+                records.add(new LogRecord(RecordType.INSERT, formatBook(book)));
+            }
+            if (log != null) {
+                try {
+                    log.appendAll(records);
+                } catch (IOException e) {
+                    System.out.println(" Error writing to file: " + e.getMessage());
+                }
+            }
+
+            List<Integer> unsaved = saveBooksToDatabase(accepted);
+            for (int bookId : unsaved) {
+                removeLoadedBook(bookId);
+                writeToLog(RecordType.DELETE, String.valueOf(bookId));
+            }
+            if (!unsaved.isEmpty()) {
+                System.out.println(" Dropped " + unsaved.size() + " books the database did not take: " + unsaved);
+            }
+            added = accepted.size() - unsaved.size();
+        } finally {
+            locks.unlockAll(held);
+        }
+        System.out.println("Books added: " + added);
+        return added;
+    }
+
+    /** Adds the books that are new to the catalog to it and to accepted; returns how many were duplicates. */
+    private int acceptNewBooks(Collection<Book> books, List<Book> accepted, IntHashMap<Book> seen, HashSet<String> seenTitles) {
+        int duplicates = 0;
+        indexLock.writeLock().lock();
+        try {
+            for (Book book : books) {
+                if (booksById.containsKey(book.getBookId()) || findDuplicate(book) != null
+                        || !seenTitles.add(titleAuthorKey(book)) || seen.put(book.getBookId(), book) != null) {
+                    duplicates++;
+                    continue;
+                }
+                accepted.add(book);
+            }
+            for (Book book : accepted) {
+                addLoadedBook(book);
+            }
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+        return duplicates;
     }
 
     @Override
     public List<Book> getAllBooks() {
-        if (bookList.isEmpty()) {
+        List<Book> books;
+        indexLock.readLock().lock();
+        try {
+            books = new ArrayList<>(bookList);
+        } finally {
+            indexLock.readLock().unlock();
+        }
+        if (books.isEmpty()) {
             System.out.println("No books found.");
         }
-        return bookList;
+        return books;
     }
 
     @Override
     public Book searchBookByTitle(String title) {
-        return bookList.stream()
-                .filter(book -> book.getTitle().equalsIgnoreCase(title))
-                .findFirst()
-                .orElseThrow(() -> new NoSuchElementException(" Book not found: " + title));
+        List<Book> editions = findBooksByTitle(title);
+        if (editions.isEmpty()) {
+            throw new NoSuchElementException(" Book not found: " + title);
+        }
+        return editions.get(0);
     }
 
+    /**
+     * Every book whose title matches ignoring case, Unicode form and spacing,
+     * in the order they were added. One hash lookup, however big the catalog.
+     */
+    @Override
+    public List<Book> findBooksByTitle(String title) {
+        indexLock.readLock().lock();
+        try {
+            List<Book> editions = booksByTitle.get(TextNormalizer.key(title));
+            return editions == null ? new ArrayList<>() : new ArrayList<>(editions);
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    @Override
     public Book getBookById(int bookId) {
-        return bookList.stream()
-                .filter(book -> book.getBookId() == bookId)
-                .findFirst()
-                .orElseThrow(() -> new NoSuchElementException("Book not found: ID " + bookId));
+        Book book = booksById.get(bookId);
+        if (book == null) {
+            throw new NoSuchElementException("Book not found: ID " + bookId);
+        }
+        return book;
     }
 
     @Override
     public List<Book> searchBooksByAuthor(String author) {
-        List<Book> result = bookList.stream()
-                .filter(book -> book.getAuthor().toLowerCase().contains(author.toLowerCase()))
-                .toList();
+        List<Book> result = searchContaining(authorIndex, Book::getAuthor, author);
         
         if (result.isEmpty()) {
             System.out.println("No books found by author: " + author);
@@ -78,9 +274,7 @@ public class BookDAOImpl implements BookDAO {
 
     @Override
     public List<Book> searchBooksByGenre(String genre) {
-        List<Book> result = bookList.stream()
-                .filter(book -> book.getGenre().toLowerCase().contains(genre.toLowerCase()))
-                .toList();
+        List<Book> result = searchContaining(genreIndex, Book::getGenre, genre);
         
         if (result.isEmpty()) {
             System.out.println(" No books found in genre: " + genre);
@@ -88,259 +282,644 @@ public class BookDAOImpl implements BookDAO {
         return result;
     }
 
+    @Override
+    public List<Book> searchBooksByTitleContaining(String fragment) {
+        return searchContaining(titleIndex, Book::getTitle, fragment);
+    }
+
+    /**
+     * Free-text search over title, author and genre, best match first. See
+     * FullTextIndex for the query syntax.
+     */
+    @Override
+    public List<Book> search(String query, int limit) {
+        indexLock.readLock().lock();
+        try {
+            List<FullTextIndex.Hit> hits = textIndex.search(query, limit);
+            List<Book> result = new ArrayList<>(hits.size());
+            for (FullTextIndex.Hit hit : hits) {
+                result.add(booksById.get(hit.id()));
+            }
+            return result;
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Books whose field contains query ignoring case, in catalog order.
+     * Queries too short for trigrams scan the list instead.
+     */
+    private List<Book> searchContaining(TrigramIndex index, Function<Book, String> field, String query) {
+        String lowerQuery = query.toLowerCase();
+        indexLock.readLock().lock();
+        try {
+            if (lowerQuery.length() < TrigramIndex.MIN_QUERY_LENGTH) {
+                return bookList.stream()
+                        .filter(book -> field.apply(book).toLowerCase().contains(lowerQuery))
+                        .toList();
+            }
+            List<Integer> ids = index.search(lowerQuery);
+            List<Book> result = new ArrayList<>(ids.size());
+            for (int id : ids) {
+                result.add(booksById.get(id));
+            }
+            return result;
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
     @Override
     public List<Book> sortBooksByTitle() {
-        if (bookList.isEmpty()) {
+        if (byTitle.isEmpty()) {
             System.out.println(" No books available to sort.");
             return new ArrayList<>();
         }
-        List<Book> sortedList = new ArrayList<>(bookList);
-        sortedList.sort(Comparator.comparing(Book::getTitle));
-        return sortedList;
+        return new ArrayList<>(byTitle.values());
     }
     
     @Override
     public List<Book> sortBooksByGenre() {
-        if (bookList.isEmpty()) {
+        if (byGenre.isEmpty()) {
             System.out.println(" No books available to sort.");
             return new ArrayList<>();
         }
-        List<Book> sortedList = new ArrayList<>(bookList);
-        sortedList.sort(Comparator.comparing(Book::getGenre));
-        return sortedList;
+        return new ArrayList<>(byGenre.values());
+    }
+
+    /** Up to limit books in title order, starting at the first title not before fromTitle. */
+    @Override
+    public List<Book> getBooksByTitleFrom(String fromTitle, int limit) {
+        return page(byTitle, fromTitle, limit);
+    }
+
+    /** Up to limit books in genre order, starting at the first genre not before fromGenre. */
+    @Override
+    public List<Book> getBooksByGenreFrom(String fromGenre, int limit) {
+        return page(byGenre, fromGenre, limit);
+    }
+
+    /**
+     * One page of books in id order, after the book with id afterId
+     * (Page.START for the first page). Asks the database for just that page;
+     * if it can't be reached, pages through the books already loaded.
+     */
+    @Override
+    public Page<Book> getBooksPage(int afterId, int size) {
+        try {
+            return Page.of(store.page(afterId, size + 1), size, Book::getBookId);
+        } catch (StorageException e) {
+            System.out.println(" Error reading books from database, showing local copy: " + e.getMessage());
+        }
+        List<Book> fetched = new ArrayList<>(size + 1);
+        for (Book book : byId.tailMap(afterId, false).values()) {
+            if (fetched.size() > size) {
+                break;
+            }
+            fetched.add(book);
+        }
+        return Page.of(fetched, size, Book::getBookId);
+    }
+
+    private static List<Book> page(ConcurrentSkipListMap<SortKey, Book> view, String from, int limit) {
+        List<Book> page = new ArrayList<>(Math.min(limit, 64));
+        for (Book book : view.tailMap(SortKey.of(from, Integer.MIN_VALUE)).values()) {
+            if (page.size() == limit) {
+                break;
+            }
+            page.add(book);
+        }
+        return page;
     }
 
     @Override
     public void updateBook(Book updatedBook) {
-        for (Book book : bookList) {
-            if (book.getBookId() == updatedBook.getBookId()) {
-                book.setTitle(updatedBook.getTitle());
-                book.setAuthor(updatedBook.getAuthor());
-                book.setGenre(updatedBook.getGenre());
-                book.setAvailableCopies(updatedBook.getAvailableCopies());
-                updateBookInDataBase(book);
-                updateBookInFile(book);
-                System.out.println("Book updated successfully: " + book);
+        ReentrantLock lock = locks.lockFor(updatedBook.getBookId());
+        lock.lock();
+        try {
+            Book book = booksById.get(updatedBook.getBookId());
+            if (book == null) {
+                System.out.println("Book with ID " + updatedBook.getBookId() + " not found.");
                 return;
             }
+            indexLock.writeLock().lock();
+            try {
+                copyDetails(updatedBook, book);
+            } finally {
+                indexLock.writeLock().unlock();
+            }
+            updateBookInDataBase(book);
+            writeToLog(RecordType.UPDATE, formatBook(book));
+            System.out.println("Book updated successfully: " + book);
+        } finally {
+            lock.unlock();
         }
-        System.out.println("Book with ID " + updatedBook.getBookId() + " not found.");
     }
     
     @Override
     public void deleteBook(int bookId) {
-        Iterator<Book> iterator = bookList.iterator();
-        boolean bookFound = false;
-        
-        while (iterator.hasNext()) {
-            Book book = iterator.next();
-            if (book.getBookId() == bookId) {
-                iterator.remove();
-                deleteBookFromDatabase(bookId);
-                deleteBookFromFile(bookId);
-                System.out.println(" Book deleted successfully: " + book.getTitle());
-                bookFound = true;
-                break;
+        ReentrantLock lock = locks.lockFor(bookId);
+        lock.lock();
+        try {
+            Book book = removeLoadedBook(bookId);
+            if (book == null) {
+                System.out.println(" Book with ID " + bookId + " not found.");
+                return;
             }
+
+            deleteBookFromDatabase(bookId);
+            writeToLog(RecordType.DELETE, String.valueOf(bookId));
+            System.out.println(" Book deleted successfully: " + book.getTitle());
+        } finally {
+            lock.unlock();
         }
-        
-        if (!bookFound) {
-            System.out.println(" Book with ID " + bookId + " not found.");
+    }
+
+    /**
+     * Records a copy count the database has already committed (after a borrow
+     * or return) in the inventory, in memory and in the local file store.
+     */
+    @Override
+    public void updateAvailableCopies(int bookId, int availableCopies) {
+        ReentrantLock lock = locks.lockFor(bookId);
+        lock.lock();
+        try {
+            inventory.set(bookId, availableCopies);
+            refreshAvailableCopies(bookId);
+        } finally {
+            lock.unlock();
         }
     }
 
+    /**
+     * Copies the inventory's count for the book into the book itself and the
+     * local file store, after a copy was taken or given back. The count is
+     * read under the book's stripe, so of two refreshes racing the later one
+     * always writes the newer count.
+     */
+    @Override
+    public void refreshAvailableCopies(int bookId) {
+        ReentrantLock lock = locks.lockFor(bookId);
+        lock.lock();
+        try {
+            Book book = booksById.get(bookId);
+            int copies = inventory.available(bookId);
+            if (book == null || copies < 0) {
+                return;
+            }
+            indexLock.writeLock().lock();
+            try {
+                book.setAvailableCopies(copies);
+                indexCompletions(book);
+            } finally {
+                indexLock.writeLock().unlock();
+            }
+            writeToLog(RecordType.UPDATE, formatBook(book));
+        } finally {
+            lock.unlock();
+        }
+    }
 
-    private void saveBookToFile(Book book) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(FILE_PATH, true))) {
-            writer.write(book.getBookId() +"," + book.getTitle() + "," + book.getAuthor() + "," + book.getGenre() + "," + book.getAvailableCopies());
-            writer.newLine();
+    @Override
+    public CopyInventory getInventory() {
+        return inventory;
+    }
+
+    /**
+     * Pulls the books added, changed or deleted in the database since the
+     * last sync, applies them to the catalog and the file store, and moves
+     * the watermark forward. Returns the number of changes, or -1 if the
+     * database could not be reached.
+     */
+    @Override
+    public int sync() {
+        return syncFromDatabase();
+    }
+
+    private int syncFromDatabase() {
+        List<LogRecord> changes = new ArrayList<>();
+        syncLock.lock();
+        try {
+            long watermark = store.pullChanges(syncedThrough,
+                    book -> {
+                        putLoadedBook(book);
+                        changes.add(new LogRecord(RecordType.UPDATE, formatBook(book)));
+                    },
+                    bookId -> {
+                        removeLoadedBook(bookId);
+                        changes.add(new LogRecord(RecordType.DELETE, String.valueOf(bookId)));
+                    });
+            if (log != null) {
+                log.appendAll(changes);
+                log.setWatermark(backendName, watermark);
+            }
+            syncedThrough = watermark;
+            return changes.size();
+        } catch (StorageException e) {
+            System.out.println(" Error syncing books from database: " + e.getMessage());
         } catch (IOException e) {
-            System.out.println(" Error writing to file: " + e.getMessage());
+            System.out.println(" Error writing synced books to file: " + e.getMessage());
+        } finally {
+            syncLock.unlock();
         }
+        return -1;
     }
 
+    /** Copies the catalog into a backend that has never held a book; see BookStore.seed. */
+    private void seedDatabase() {
+        if (byId.isEmpty()) {
+            return;
+        }
+        try {
+            if (store.seed(new ArrayList<>(byId.values()))) {
+                System.out.println(" Copied " + byId.size() + " books into the " + backendName + " database.");
+            }
+        } catch (StorageException e) {
+            System.out.println(" Error copying books into database: " + e.getMessage());
+        }
+    }
 
-    private void loadBooksFromFile() {
-        try (BufferedReader reader = new BufferedReader(new FileReader(FILE_PATH))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length == 4) {
-                    int bookId = Integer.parseInt(parts[0]);
-                    Book book = new Book(bookId, parts[1], parts[2], parts[3], Integer.parseInt(parts[3]));
-                    bookList.add(book);
+    /**
+     * Adds a loaded book to the catalog. A book already known by id is
+     * refreshed in place so the list and the id index never disagree.
+     */
+    private void putLoadedBook(Book book) {
+        ReentrantLock lock = locks.lockFor(book.getBookId());
+        lock.lock();
+        try {
+            indexLock.writeLock().lock();
+            try {
+                Book existing = booksById.get(book.getBookId());
+                if (existing != null) {
+                    copyDetails(book, existing);
+                    return;
                 }
+                addLoadedBook(book);
+            } finally {
+                indexLock.writeLock().unlock();
             }
-        } catch (IOException e) {
-            System.out.println(" No existing book file found, creating a new one.");
+        } finally {
+            lock.unlock();
         }
     }
 
+    /** Adds a new book to the list and every index. Caller holds the index write lock. */
+    private void addLoadedBook(Book book) {
+        bookList.add(book);
+        inventory.set(book.getBookId(), book.getAvailableCopies());
+        booksById.put(book.getBookId(), book);
+        booksByTitle.computeIfAbsent(TextNormalizer.key(book.getTitle()), key -> new ArrayList<>(1)).add(book);
+        indexText(book);
+        indexFuzzy(book);
+        indexCompletions(book);
+        byTitle.put(SortKey.of(book.getTitle(), book.getBookId()), book);
+        byGenre.put(SortKey.of(book.getGenre(), book.getBookId()), book);
+        byId.put(book.getBookId(), book);
+    }
 
-    private void saveBookToDatabase(Book book) {
-        String sql = "INSERT INTO books (title, author, genre, available_copies, book_id) VALUES (?, ?, ?, ?, ?)";
-
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setString(1, book.getTitle());
-            stmt.setString(2, book.getAuthor());
-            stmt.setString(3, book.getGenre());
-            stmt.setInt(4, book.getAvailableCopies());
-            stmt.setInt(5, book.getBookId());
-            stmt.executeUpdate();
-        } catch (SQLException e) {
-            System.out.println(" Error saving book to database: " + e.getMessage());
+    /**
+     * Books whose title or author, or a word of one, is a few typos away
+     * from text: one edit for short input, two from five characters up.
+     * Only the closest ones are returned, at most limit books.
+     */
+    @Override
+    public List<Book> suggestBooks(String text, int limit) {
+        String key = TextNormalizer.key(text);
+        if (key.length() < 3) {
+            return new ArrayList<>();
+        }
+        int maxDistance = key.length() <= 4 ? 1 : 2;
+        indexLock.readLock().lock();
+        try {
+            List<Book> result = new ArrayList<>();
+            HashSet<Integer> added = new HashSet<>();
+            List<BKTree.Match> matches = fuzzyIndex.search(key, maxDistance);
+            for (BKTree.Match match : matches) {
+                // Only the closest matches: a one-typo hit makes two-typo ones noise.
+                if (result.size() == limit || match.distance() > matches.get(0).distance()) {
+                    break;
+                }
+                if (added.add(match.id())) {
+                    result.add(booksById.get(match.id()));
+                }
+            }
+            return result;
+        } finally {
+            indexLock.readLock().unlock();
         }
     }
 
+    /**
+     * Titles and authors starting with prefix (ignoring case and spacing),
+     * those with the most copies on the shelf first; at most 10.
+     */
+    @Override
+    public List<String> autocomplete(String prefix, int limit) {
+        indexLock.readLock().lock();
+        try {
+            List<PrefixIndex.Completion> completions = new ArrayList<>(titleCompletions.complete(prefix, limit));
+            completions.addAll(authorCompletions.complete(prefix, limit));
+            completions.sort((a, b) -> Integer.compare(b.score(), a.score()));
+            List<String> result = new ArrayList<>();
+            for (PrefixIndex.Completion completion : completions) {
+                if (result.size() == limit) {
+                    break;
+                }
+                if (!result.contains(completion.text())) {
+                    result.add(completion.text());
+                }
+            }
+            return result;
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
 
-    private void loadBooksFromDatabase() {
-        String sql = "SELECT * FROM books";
+    private void indexCompletions(Book book) {
+        titleCompletions.put(book.getBookId(), book.getTitle(), book.getAvailableCopies());
+        authorCompletions.put(book.getBookId(), book.getAuthor(), book.getAvailableCopies());
+    }
 
-        try (Connection conn = DatabaseConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            while (rs.next()) {
-                Book book = new Book(
-                        rs.getInt("book_id"),
-                        rs.getString("title"),
-                        rs.getString("author"),
-                        rs.getString("genre"),
-                        rs.getInt("available_copies")
-                );
-                bookList.add(book);
+    private static Set<String> fuzzyKeys(Book book) {
+        Set<String> keys = new LinkedHashSet<>();
+        keys.add(TextNormalizer.key(book.getTitle()));
+        keys.add(TextNormalizer.key(book.getAuthor()));
+        for (String word : TextNormalizer.words(book.getTitle() + " " + book.getAuthor())) {
+            if (word.length() >= 4) {
+                keys.add(word);
             }
-        } catch (SQLException e) {
-            System.out.println(" Error loading books from database: " + e.getMessage());
         }
+        return keys;
     }
-    
-    private void updateBookInDataBase(Book updatedBook) {
-        String sql = "UPDATE books SET title = ?, author = ?, genre = ?, available_copies = ? WHERE book_id = ?";
 
-        try (Connection con = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = con.prepareStatement(sql)) {
+    private void indexFuzzy(Book book) {
+        for (String key : fuzzyKeys(book)) {
+            fuzzyIndex.add(key, book.getBookId());
+        }
+    }
 
-            pstmt.setString(1, updatedBook.getTitle());
-            pstmt.setString(2, updatedBook.getAuthor());
-            pstmt.setString(3, updatedBook.getGenre());
-            pstmt.setInt(4, updatedBook.getAvailableCopies());
-            pstmt.setInt(5, updatedBook.getBookId());
+    private void unindexFuzzy(Book book) {
+        for (String key : fuzzyKeys(book)) {
+            fuzzyIndex.remove(key, book.getBookId());
+        }
+    }
 
-            int affectedRows = pstmt.executeUpdate();
-            if (affectedRows > 0) {
-                System.out.println(" Book updated successfully: " + updatedBook);
-            } else {
-                System.out.println(" Book with ID " + updatedBook.getBookId() + " not found.");
+    private void indexText(Book book) {
+        titleIndex.put(book.getBookId(), book.getTitle().toLowerCase());
+        authorIndex.put(book.getBookId(), book.getAuthor().toLowerCase());
+        genreIndex.put(book.getBookId(), book.getGenre().toLowerCase());
+        textIndex.put(book.getBookId(), book.getTitle(), book.getAuthor(), book.getGenre());
+    }
+
+    private void removeFromTitleIndex(Book book) {
+        String key = TextNormalizer.key(book.getTitle());
+        List<Book> editions = booksByTitle.get(key);
+        if (editions == null) {
+            return;
+        }
+        editions.removeIf(edition -> edition == book);
+        if (editions.isEmpty()) {
+            booksByTitle.remove(key);
+        }
+    }
+
+    /**
+     * A different book with the same title and author, ignoring case and
+     * spacing, or null. Caller holds the index lock.
+     */
+    private Book findDuplicate(Book book) {
+        List<Book> editions = booksByTitle.get(TextNormalizer.key(book.getTitle()));
+        if (editions == null) {
+            return null;
+        }
+        String author = TextNormalizer.key(book.getAuthor());
+        for (Book edition : editions) {
+            if (edition != book && TextNormalizer.key(edition.getAuthor()).equals(author)) {
+                return edition;
             }
-        } catch (SQLException e) {
-            System.out.println(" Error updating book: " + e.getMessage());
         }
+        return null;
     }
-    
-    private void updateBookInFile(Book updatedBook) {
-        File file = new File("books.txt");
-        List<String> fileLines = new ArrayList<>();
-
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            String line;
-            boolean found = false;
-
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                int bookId = Integer.parseInt(parts[0]);
-
-                if (bookId == updatedBook.getBookId()) {
-                    // Replace with updated details
-                    line = updatedBook.getBookId() + "," +
-                            updatedBook.getTitle() + "," +
-                            updatedBook.getAuthor() + "," +
-                            updatedBook.getGenre() + "," +
-                            updatedBook.getAvailableCopies();
-                    found = true;
+
+    private static String titleAuthorKey(Book book) {
+        return TextNormalizer.key(book.getTitle()) + "\n" + TextNormalizer.key(book.getAuthor());
+    }
+
+    private Book removeLoadedBook(int bookId) {
+        ReentrantLock lock = locks.lockFor(bookId);
+        lock.lock();
+        try {
+            indexLock.writeLock().lock();
+            try {
+                Book book = booksById.remove(bookId);
+                if (book != null) {
+                    inventory.remove(bookId);
+                    removeFromTitleIndex(book);
+                    titleIndex.remove(bookId);
+                    authorIndex.remove(bookId);
+                    genreIndex.remove(bookId);
+                    textIndex.remove(bookId);
+                    unindexFuzzy(book);
+                    titleCompletions.remove(bookId);
+                    authorCompletions.remove(bookId);
+                    byTitle.remove(SortKey.of(book.getTitle(), bookId));
+                    byGenre.remove(SortKey.of(book.getGenre(), bookId));
+                    byId.remove(bookId);
+                    Iterator<Book> iterator = bookList.iterator();
+                    while (iterator.hasNext()) {
+                        if (iterator.next() == book) {
+                            iterator.remove();
+                            break;
+                        }
+                    }
                 }
-                fileLines.add(line);
+                return book;
+            } finally {
+                indexLock.writeLock().unlock();
             }
+        } finally {
+            lock.unlock();
+        }
+    }
 
-            if (!found) {
-                System.out.println(" Book not found in file.");
-                return;
+    /** Adds the current catalog to a snapshot; called by the background compactor. */
+    private void snapshotRecords(SnapshotFile.Writer writer) {
+        indexLock.readLock().lock();
+        try {
+            for (Book book : bookList) {
+                writer.addRow(new long[]{book.getBookId(), book.getAvailableCopies()},
+                        book.getTitle(), book.getAuthor(), book.getGenre());
             }
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
 
-        } catch (IOException e) {
-            System.out.println(" Error reading file: " + e.getMessage());
+    private void loadSnapshot(SnapshotFile snapshot) {
+        for (int row = 0; row < snapshot.rowCount(); row++) {
+            putLoadedBook(new Book(
+                    snapshot.getInt(row, 0),
+                    snapshot.getString(row, 0),
+                    snapshot.getString(row, 1),
+                    snapshot.getString(row, 2),
+                    snapshot.getInt(row, 1)
+            ));
+        }
+    }
+
+    /** Caller holds the index write lock; the title index follows a changed title. */
+    private void copyDetails(Book source, Book target) {
+        boolean namesChanged = !source.getTitle().equals(target.getTitle())
+                || !source.getAuthor().equals(target.getAuthor());
+        if (namesChanged) {
+            unindexFuzzy(target);
+        }
+        SortKey oldTitle = SortKey.of(target.getTitle(), target.getBookId());
+        SortKey newTitle = SortKey.of(source.getTitle(), target.getBookId());
+        if (!oldTitle.equals(newTitle)) {
+            byTitle.remove(oldTitle);
+            byTitle.put(newTitle, target);
+        }
+        SortKey oldGenre = SortKey.of(target.getGenre(), target.getBookId());
+        SortKey newGenre = SortKey.of(source.getGenre(), target.getBookId());
+        if (!oldGenre.equals(newGenre)) {
+            byGenre.remove(oldGenre);
+            byGenre.put(newGenre, target);
+        }
+        if (!TextNormalizer.key(source.getTitle()).equals(TextNormalizer.key(target.getTitle()))) {
+            removeFromTitleIndex(target);
+            target.setTitle(source.getTitle());
+            booksByTitle.computeIfAbsent(TextNormalizer.key(target.getTitle()), key -> new ArrayList<>(1)).add(target);
+        }
+        target.setTitle(source.getTitle());
+        target.setAuthor(source.getAuthor());
+        target.setGenre(source.getGenre());
+        target.setAvailableCopies(source.getAvailableCopies());
+        inventory.set(target.getBookId(), source.getAvailableCopies());
+        indexText(target);
+        indexCompletions(target);
+        if (namesChanged) {
+            indexFuzzy(target);
+        }
+    }
+
+
+    private void loadBooksFromFile() {
+        if (log == null) {
             return;
         }
+        try {
+            syncedThrough = log.getWatermark(backendName);
+            log.replay(this::loadSnapshot, record -> {
+                if (record.type() == RecordType.DELETE) {
+                    removeLoadedBook(Integer.parseInt(record.payload()));
+                } else {
+                    Book book = parseBook(record.payload());
+                    if (book != null) {
+                        putLoadedBook(book);
+                    }
+                }
+            });
+        } catch (IOException | NumberFormatException e) {
+            System.out.println(" Error reading book log: " + e.getMessage());
+        }
+    }
 
-        // Write updated content back to file
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
-            for (String line : fileLines) {
-                writer.write(line);
-                writer.newLine();
-            }
-            System.out.println(" Book updated successfully in file.");
+    private void writeToLog(RecordType type, String payload) {
+        if (log == null) {
+            return;
+        }
+        try {
+            log.append(type, payload);
         } catch (IOException e) {
-            System.out.println(" Error writing file: " + e.getMessage());
+            System.out.println(" Error writing to file: " + e.getMessage());
         }
     }
-    
-    private void deleteBookFromDatabase(int bookId) {
-        String sql = "DELETE FROM books WHERE book_id = ?";
-        
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setInt(1, bookId);
-            int rowsAffected = stmt.executeUpdate();
-            
-            if (rowsAffected > 0) {
-                System.out.println(" Book deleted from database.");
-            } else {
-                System.out.println(" Book not found in database.");
-            }
-        } catch (SQLException e) {
-            System.out.println(" Error deleting book from database: " + e.getMessage());
+
+    private RecordStore openLog() {
+        try {
+            RecordStore store = RecordStore.open(STORE_NAME, LEGACY_FILE);
+            store.setSnapshotSource(2, 3, this::snapshotRecords);
+            return store;
+        } catch (IOException e) {
+            System.out.println(" Error opening book log: " + e.getMessage());
+            return null;
         }
     }
-    
-    private void deleteBookFromFile(int bookId) {
-        File file = new File(FILE_PATH);
-        List<String> fileLines = new ArrayList<>();
-        boolean bookFound = false;
-        
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            String line;
-            
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length > 0) {
-                    int currentBookId = Integer.parseInt(parts[0]);
-                    if (currentBookId != bookId) {
-                        fileLines.add(line);
-                    } else {
-                        bookFound = true;
-                    }
-                }
+
+    private static String formatBook(Book book) {
+        return book.getBookId() + "\t" + RowCodec.encodeFields(RowCodec.bookFields(book));
+    }
+
+    private static Book parseBook(String line) {
+        // Written before fields were escaped (books.txt too), joined by commas.
+        boolean escaped = line.indexOf('\t') >= 0;
+        String[] parts = escaped ? line.split("\t", -1) : line.split(",");
+        if (parts.length != 5) {
+            System.out.println(" Invalid book record: " + line);
+            return null;
+        }
+        try {
+            int id = Integer.parseInt(parts[0]);
+            return escaped
+                    ? RowCodec.toBook(id, RowCodec.decodeFields(parts, 1))
+                    : new Book(id, parts[1], parts[2], parts[3], Integer.parseInt(parts[4]));
+        } catch (NumberFormatException e) {
+            System.out.println(" Invalid book record: " + line);
+            return null;
+        }
+    }
+
+
+    private void saveBookToDatabase(Book book) {
+        try {
+            store.insert(book);
+        } catch (StorageException e) {
+            System.out.println(" Error saving book to database: " + e.getMessage());
+        }
+    }
+
+    /** Saves the books and returns the ids that didn't get stored, so addBooks can take them back out. */
+    private List<Integer> saveBooksToDatabase(List<Book> books) {
+        try {
+            return store.insertAll(books);
+        } catch (BatchInsertException e) {
+            System.out.println(" Error saving books to database: " + e.getMessage());
+            List<Integer> unsaved = new ArrayList<>(e.getRejected());
+            for (Book book : books.subList(e.getDone(), books.size())) {
+                unsaved.add(book.getBookId());
             }
-            
-        } catch (IOException e) {
-            System.out.println("️ Error reading file: " + e.getMessage());
-            return;
+            return unsaved;
+        } catch (StorageException e) {
+            System.out.println(" Error saving books to database: " + e.getMessage());
+            return List.of();
         }
-        
+    }
 
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
-            for (String line : fileLines) {
-                writer.write(line);
-                writer.newLine();
+    private void updateBookInDataBase(Book updatedBook) {
+        try {
+            if (store.update(updatedBook)) {
+                System.out.println(" Book updated successfully: " + updatedBook);
+            } else {
+                System.out.println(" Book with ID " + updatedBook.getBookId() + " not found.");
             }
-            
-            if (bookFound) {
-                System.out.println(" Book deleted from file.");
+        } catch (StorageException e) {
+            System.out.println(" Error updating book: " + e.getMessage());
+        }
+    }
+    
+    
+    private void deleteBookFromDatabase(int bookId) {
+        try {
+            if (store.delete(bookId)) {
+                System.out.println(" Book deleted from database.");
             } else {
-                System.out.println(" Book not found in file.");
+                System.out.println(" Book not found in database.");
             }
-        } catch (IOException e) {
-            System.out.println(" Error writing file: " + e.getMessage());
+        } catch (StorageException e) {
+            System.out.println(" Error deleting book from database: " + e.getMessage());
         }
     }
+    
 }
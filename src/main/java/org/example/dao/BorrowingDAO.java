@@ -1,12 +1,51 @@
 package org.example.dao;
 
 import org.example.models.Borrowing;
+import org.example.models.Page;
 import java.util.List;
 
+/**
+ * The borrowing ledger. Every method is safe to call from many threads at
+ * once.
+ *
+ * Borrows and returns are linearizable per book: all of them for one book
+ * run one at a time, from the availability and already-borrowed checks
+ * through the database call to the ledger and copy-count updates, so two
+ * terminals can neither lend the last copy twice nor lend one book twice
+ * to the same member. Different books are handled in parallel. The checks
+ * and listings take no lock and see every borrow or return that finished
+ * before they started.
+ *
+ * A loan taken while writes are queued has a provisional (negative) id
+ * until the database has it; the swap to the real row happens in the
+ * background and briefly shows both, never neither.
+ */
 public interface BorrowingDAO {
-    void borrowBook(int bookId, int memberId);
-    void returnBook(int bookId, int memberId);
+    /** Linearizable per book. */
+    boolean borrowBook(int bookId, int memberId);
+
+    /** Linearizable per book. */
+    boolean returnBook(int bookId, int memberId);
+
+    /** A weakly consistent copy in id order. */
     List<Borrowing> getAllBorrowings();
+
     boolean isBookBorrowed(int bookId);
+
+    boolean isBookBorrowedByMember(int bookId, int memberId);
+
+    /** A copy; the member's loans at one instant. */
+    List<Borrowing> getActiveBorrowingsByMember(int memberId);
+
+    /** Runs under the book's lock, so it is ordered with borrows and returns of that book. */
     void deleteBorrowing(int id);
+
+    /** See BookDAO.getBooksPage. */
+    Page<Borrowing> getBorrowingsPage(int afterId, int size);
+
+    /** Loans not yet returned, paged the same way; read from memory, so provisional loans come first. */
+    Page<Borrowing> getActiveBorrowingsPage(int afterId, int size);
+
+    /** One sync runs at a time; it may overlap other reads and writes. */
+    int sync();
 }
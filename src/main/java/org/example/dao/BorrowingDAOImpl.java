@@ -1,134 +1,333 @@
 package org.example.dao;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
-import java.sql.Statement;
-import java.sql.Timestamp;
-import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
-
-import org.example.database.DatabaseConnection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.example.backend.BorrowingStore;
+import org.example.backend.StorageBackend;
+import org.example.backend.StorageException;
 import org.example.models.Book;
 import org.example.models.Borrowing;
+import org.example.models.Page;
+import org.example.storage.LogRecord;
+import org.example.storage.RecordStore;
+import org.example.storage.RecordType;
+import org.example.storage.SnapshotFile;
+import org.example.utils.CopyInventory;
 import org.example.utils.Logger;
-
+import org.example.utils.StripedLocks;
+
+/**
+ * The borrowing ledger, kept in concurrent maps so checks and listings take
+ * no lock. Borrowing, returning and deleting hold the stripe lock of the
+ * book involved from the first check to the last index update, and loading
+ * a record from the database takes the same lock, so everything that
+ * happens to one book's loans happens in one order. See BorrowingDAO for
+ * what each method guarantees.
+ */
 public class BorrowingDAOImpl implements BorrowingDAO {
-    private final List<Borrowing> borrowings = new ArrayList<>();
+    private final ConcurrentHashMap<Integer, Borrowing> borrowingsById = new ConcurrentHashMap<>();
+    // id order, for listings and for paging when the database can't be asked
+    private final ConcurrentSkipListMap<Integer, Borrowing> borrowingsInIdOrder = new ConcurrentSkipListMap<>();
+    // Active (not yet returned) loans only, so checks stay cheap as history grows.
+    // The lists are copied on every change, never modified, so readers need no lock.
+    private final ConcurrentHashMap<Integer, List<Borrowing>> activeByMember = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, List<Borrowing>> activeByBook = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Integer, Borrowing> activeInIdOrder = new ConcurrentSkipListMap<>();
+    private final StripedLocks locks = new StripedLocks(64);
+    // Orders the local bookkeeping of provisional (queued) loans with their
+    // resolution on the backend's delivery thread; see resolveQueuedBorrow.
+    private final ReentrantLock provisionalLock = new ReentrantLock();
+    // Loans delivered before borrowBook got to record them; guarded by provisionalLock.
+    private final Map<Integer, Boolean> resolvedEarly = new HashMap<>();
+    // Loans queued again under a new provisional id before borrowBook got to
+    // record them, old id -> new id; guarded by provisionalLock.
+    private final Map<Integer, Integer> requeuedEarly = new HashMap<>();
     private final BookDAO bookDAO;
-    private static final String FILE_PATH = "borrowings.txt";
+    private final CopyInventory inventory;
+    private static final String STORE_NAME = "borrowings";
+    private static final String LEGACY_FILE = "borrowings.txt";
+    private final RecordStore log;
+    private final StorageBackend backend;
+    private final BorrowingStore store;
+    private final String backendName;
+    private long syncedThrough;
+    // One sync at a time.
+    private final ReentrantLock syncLock = new ReentrantLock();
+
+    public BorrowingDAOImpl(BookDAO bookDAO, StorageBackend backend) {
+        this.bookDAO = bookDAO;
+        this.inventory = bookDAO.getInventory();
+        this.backend = backend;
+        this.store = backend.borrowings();
+        this.backendName = backend.getName();
+        this.log = openLog();
+        store.setQueuedBorrowListener(new BorrowingStore.QueuedBorrowListener() {
+            @Override
+            public void resolved(int provisionalId, Borrowing applied) {
+                resolveQueuedBorrow(provisionalId, applied);
+            }
 
-    public BorrowingDAOImpl() {
-        this.bookDAO = new BookDAOImpl();
+            @Override
+            public void requeued(int provisionalId, int newProvisionalId) {
+                renameQueuedBorrow(provisionalId, newProvisionalId);
+            }
+        });
         loadBorrowingsFromFile();
-        loadBorrowingsFromDatabase();
+        if (syncedThrough == 0) {
+            seedDatabase();
+        }
+        syncFromDatabase();
     }
 
-    @Override
-    public void borrowBook(int bookId, int memberId) {
-
-        Book book = findBookById(bookId);
-        if (book == null) {
-            System.out.println(" Book with ID " + bookId + " not found.");
+    /**
+     * Copies the loans into a backend that has never held one; see
+     * BookStore.seed. Provisional loans are left out, their queued borrows
+     * still deliver them.
+     */
+    private void seedDatabase() {
+        List<Borrowing> loans = new ArrayList<>(borrowingsInIdOrder.tailMap(0, false).values());
+        if (loans.isEmpty()) {
             return;
         }
-        
-        if (book.getAvailableCopies() <= 0) {
-            System.out.println(" No copies of this book are available for borrowing.");
-            return;
-        }
-        
-
-        if (isBookBorrowedByMember(bookId, memberId)) {
-            System.out.println(" This book is already borrowed by you.");
-            return;
+        try {
+            if (store.seed(loans)) {
+                System.out.println(" Copied " + loans.size() + " borrowings into the " + backendName + " database.");
+            }
+        } catch (StorageException e) {
+            System.out.println(" Error copying borrowings into database: " + e.getMessage());
         }
+    }
 
+    @Override
+    public boolean borrowBook(int bookId, int memberId) {
+        ReentrantLock lock = locks.lockFor(bookId);
+        lock.lock();
         try {
+            Book book = findBookById(bookId);
+            if (book == null) {
+                System.out.println(" Book with ID " + bookId + " not found.");
+                return false;
+            }
 
-            updateBookCopies(bookId, -1); // Decrease by 1
-            
+            if (isBookBorrowedByMember(bookId, memberId)) {
+                System.out.println(" This book is already borrowed by you.");
+                return false;
+            }
 
-            int borrowingId = borrowings.size() + 1;
-            Date borrowDate = new Date();
-            Date returnDate = null;
+            // Take a copy before anything is persisted, so two terminals can't
+            // both lend the last one. The database has the final say when it
+            // answers: the local count may lag behind other processes, so a
+            // borrow it refused locally still goes to the database unless
+            // writes are only being queued.
+            boolean reserved = inventory.tryCheckout(bookId);
+            if (!reserved && backend.isDegraded()) {
+                System.out.println(" No copies of this book are available for borrowing.");
+                return false;
+            }
 
-            Borrowing borrowing = new Borrowing(borrowingId, bookId, memberId, borrowDate, returnDate);
-            borrowings.add(borrowing);
-            
+            Borrowing borrowing = new Borrowing(0, bookId, memberId, new Date(), null);
+            int remainingCopies;
+            try {
+                remainingCopies = store.borrow(borrowing);
+            } catch (StorageException | RuntimeException e) {
+                System.out.println(" Error borrowing book: " + e.getMessage());
+                giveBack(bookId, reserved);
+                return false;
+            }
+            if (remainingCopies != BorrowingStore.QUEUED) {
+                if (reserved) {
+                    // Answered, so the counts it sends from now on include this copy.
+                    inventory.settle(bookId);
+                }
+                if (remainingCopies < 0) {
+                    bookDAO.updateAvailableCopies(bookId, 0);
+                    System.out.println(" No copies of this book are available for borrowing.");
+                    return false;
+                }
+                bookDAO.updateAvailableCopies(bookId, remainingCopies);
+            } else if (!reserved) {
+                // Only reachable if the backend started queueing since we asked.
+                // With no copy left here either, take the borrow back; if it was
+                // sent already, the database decides it like any other.
+                reserved = inventory.tryCheckout(bookId);
+                if (!reserved && cancelQueuedBorrow(borrowing.getId())) {
+                    System.out.println(" No copies of this book are available for borrowing.");
+                    return false;
+                }
+            }
+
+            boolean rejected = false;
+            if (borrowing.getId() < 0) {
+                provisionalLock.lock();
+                try {
+                    Integer requeued = requeuedEarly.remove(borrowing.getId());
+                    if (requeued != null) {
+                        borrowing.setId(requeued);
+                    }
+                    // Unless it was delivered already and swapped for its database row.
+                    Boolean applied = resolvedEarly.remove(borrowing.getId());
+                    if (applied == null) {
+                        installBorrowing(borrowing);
+                        writeToLog(RecordType.INSERT, formatBorrowingForFile(borrowing));
+                    }
+                    rejected = Boolean.FALSE.equals(applied);
+                } finally {
+                    provisionalLock.unlock();
+                }
+            } else {
+                installBorrowing(borrowing);
+                writeToLog(RecordType.INSERT, formatBorrowingForFile(borrowing));
+            }
+            if (rejected) {
+                giveBack(bookId, reserved);
+                System.out.println(" No copies of this book are available for borrowing.");
+                return false;
+            }
+            if (remainingCopies == BorrowingStore.QUEUED) {
+                bookDAO.refreshAvailableCopies(bookId);
+            }
 
-            saveBorrowingToDatabase(borrowing);
-            saveBorrowingToFile(borrowing);
-            
             System.out.println(" Book borrowed successfully.");
             Logger.log("Member ID " + memberId + " borrowed Book ID " + bookId);
-        } catch (Exception e) {
-            System.out.println(" Error borrowing book: " + e.getMessage());
+            return true;
+        } finally {
+            lock.unlock();
         }
     }
 
     @Override
-    public void returnBook(int bookId, int memberId) {
-        // Find the borrowing record
-        Borrowing borrowing = findBorrowing(bookId, memberId);
-        if (borrowing == null) {
-            System.out.println(" No borrowing record found for this book and member.");
-            return;
-        }
-        
+    public boolean returnBook(int bookId, int memberId) {
+        ReentrantLock lock = locks.lockFor(bookId);
+        lock.lock();
         try {
+            // Find the borrowing record
+            Borrowing borrowing = findBorrowing(bookId, memberId);
+            if (borrowing == null) {
+                System.out.println(" No borrowing record found for this book and member.");
+                return false;
+            }
 
-            updateBookCopies(bookId, 1);
-            
-
-            borrowing.setReturnDate(new Date());
-            
+            Date returnDate = new Date();
+            int availableCopies;
+            try {
+                availableCopies = store.returnBook(bookId, memberId, returnDate);
+            } catch (StorageException | RuntimeException e) {
+                System.out.println(" Error returning book: " + e.getMessage());
+                return false;
+            }
+            if (availableCopies == BorrowingStore.QUEUED) {
+                inventory.checkin(bookId);
+            } else if (availableCopies < 0) {
+                System.out.println(" No open borrowing record found in the database for this book and member.");
+                return false;
+            }
 
-            updateBorrowingInDatabase(borrowing);
-            updateBorrowingInFile(borrowing);
-            
+            if (borrowing.getId() < 0) {
+                provisionalLock.lock();
+                try {
+                    markReturned(borrowing, returnDate);
+                    if (borrowingsById.get(borrowing.getId()) != borrowing) {
+                        // Swapped for its database row since we looked it up; return that one.
+                        markReturned(findBorrowing(bookId, memberId), returnDate);
+                    }
+                } finally {
+                    provisionalLock.unlock();
+                }
+            } else {
+                markReturned(borrowing, returnDate);
+            }
+            if (availableCopies == BorrowingStore.QUEUED) {
+                bookDAO.refreshAvailableCopies(bookId);
+            } else {
+                bookDAO.updateAvailableCopies(bookId, availableCopies);
+            }
 
-            
             System.out.println(" Book returned successfully.");
             Logger.log("Member ID " + memberId + " returned Book ID " + bookId);
-        } catch (Exception e) {
-            System.out.println(" Error returning book: " + e.getMessage());
+            return true;
+        } finally {
+            lock.unlock();
         }
     }
 
     @Override
     public List<Borrowing> getAllBorrowings() {
-        return borrowings;
+        return new ArrayList<>(borrowingsInIdOrder.values());
+    }
+
+    /**
+     * One page of borrowing records in id order, after the record with id
+     * afterId (Page.START for the first page). Asks the database for just
+     * that page; if it can't be reached, pages through the records already
+     * loaded, where loans still waiting for the database come first.
+     */
+    @Override
+    public Page<Borrowing> getBorrowingsPage(int afterId, int size) {
+        try {
+            return Page.of(store.page(afterId, size + 1), size, Borrowing::getId);
+        } catch (StorageException e) {
+            System.out.println(" Error reading borrowings from database, showing local copy: " + e.getMessage());
+        }
+        List<Borrowing> fetched = new ArrayList<>(size + 1);
+        for (Borrowing borrowing : borrowingsInIdOrder.tailMap(afterId, false).values()) {
+            if (fetched.size() > size) {
+                break;
+            }
+            fetched.add(borrowing);
+        }
+        return Page.of(fetched, size, Borrowing::getId);
+    }
+
+    @Override
+    public Page<Borrowing> getActiveBorrowingsPage(int afterId, int size) {
+        List<Borrowing> fetched = new ArrayList<>(size + 1);
+        for (Borrowing borrowing : activeInIdOrder.tailMap(afterId, false).values()) {
+            if (fetched.size() > size) {
+                break;
+            }
+            fetched.add(borrowing);
+        }
+        return Page.of(fetched, size, Borrowing::getId);
     }
 
     @Override
     public boolean isBookBorrowed(int bookId) {
-        return borrowings.stream()
-                .anyMatch(b -> b.getBookId() == bookId && b.getReturnDate() == null);
+        return activeByBook.containsKey(bookId);
     }
     
-    private boolean isBookBorrowedByMember(int bookId, int memberId) {
-        return borrowings.stream()
-                .anyMatch(b -> b.getBookId() == bookId && b.getMemberId() == memberId && b.getReturnDate() == null);
+    @Override
+    public boolean isBookBorrowedByMember(int bookId, int memberId) {
+        return findBorrowing(bookId, memberId) != null;
     }
 
     @Override
-    public void deleteBorrowing(int id) {
+    public List<Borrowing> getActiveBorrowingsByMember(int memberId) {
+        List<Borrowing> active = activeByMember.get(memberId);
+        return active == null ? new ArrayList<>() : new ArrayList<>(active);
+    }
 
-        borrowings.removeIf(b -> b.getId() == id);
-        
+    @Override
+    public void deleteBorrowing(int id) {
+        Borrowing borrowing = borrowingsById.get(id);
+        ReentrantLock lock = locks.lockFor(borrowing != null ? borrowing.getBookId() : id);
+        lock.lock();
+        try {
+            removeLoadedBorrowing(id);
+            
 
-        deleteBorrowingFromDatabase(id);
-        deleteBorrowingFromFile(id);
+            deleteBorrowingFromDatabase(id);
+            writeToLog(RecordType.DELETE, String.valueOf(id));
+        } finally {
+            lock.unlock();
+        }
         
         System.out.println(" Borrowing record deleted successfully.");
         Logger.log("Deleted borrowing record with ID: " + id);
@@ -137,137 +336,291 @@ public class BorrowingDAOImpl implements BorrowingDAO {
     private Book findBookById(int bookId) {
 
         try {
-            return ((BookDAOImpl) bookDAO).getBookById(bookId);
+            return bookDAO.getBookById(bookId);
         } catch (Exception e) {
             return null;
         }
     }
     
     private Borrowing findBorrowing(int bookId, int memberId) {
-        return borrowings.stream()
-                .filter(b -> b.getBookId() == bookId && b.getMemberId() == memberId && b.getReturnDate() == null)
-                .findFirst()
-                .orElse(null);
+        // A book usually has far fewer active loans than a member, so probe by book.
+        List<Borrowing> active = activeByBook.get(bookId);
+        if (active != null) {
+            for (Borrowing borrowing : active) {
+                if (borrowing.getMemberId() == memberId) {
+                    return borrowing;
+                }
+            }
+        }
+        return null;
     }
-    
-    private void updateBookCopies(int bookId, int change) {
-        String sql = "UPDATE books SET available_copies = available_copies + ? WHERE book_id = ?";
-        
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setInt(1, change);
-            stmt.setInt(2, bookId);
-            stmt.executeUpdate();
-            
 
-            Book book = findBookById(bookId);
-            if (book != null) {
-                book.setAvailableCopies(book.getAvailableCopies() + change);
+    /**
+     * Swaps a loan recorded while the database was down (under a provisional
+     * id) for the row the database created when the queued borrow was sent,
+     * or drops it if the database turned it down.
+     *
+     * Runs on the backend's delivery thread, which a borrow holding a stripe
+     * may be waiting on, so this takes no stripe; provisionalLock, which no
+     * one holds while waiting on the backend, orders it with borrowBook and
+     * returnBook instead. The delivery may come before borrowBook has
+     * recorded the provisional loan, in which case it is told not to. The
+     * real loan goes in before the provisional one comes out, so a lock-free
+     * check in between sees the book as borrowed twice, never as not
+     * borrowed. A provisional loan already returned is swapped for a row
+     * that is closed from the start, so it can't be returned twice; the
+     * queued return reaches the database after the borrow. A loan turned
+     * down while still out gives its copy back to the inventory.
+     */
+    private void resolveQueuedBorrow(int provisionalId, Borrowing applied) {
+        int refusedBook = -1;
+        provisionalLock.lock();
+        try {
+            Borrowing provisional = borrowingsById.get(provisionalId);
+            if (provisional == null) {
+                resolvedEarly.put(provisionalId, applied != null);
+            }
+            if (applied != null) {
+                inventory.settle(applied.getBookId());
+                if (provisional != null && provisional.getReturnDate() != null) {
+                    // Goes in closed, so no one can return it a second time.
+                    applied.setReturnDate(provisional.getReturnDate());
+                }
+                installBorrowing(applied);
+                writeToLog(RecordType.INSERT, formatBorrowingForFile(applied));
             }
-        } catch (SQLException e) {
-            System.out.println(" Error updating book copies: " + e.getMessage());
+            if (provisional != null) {
+                uninstallBorrowing(provisionalId);
+                writeToLog(RecordType.DELETE, String.valueOf(provisionalId));
+                if (applied == null && provisional.getReturnDate() == null) {
+                    // Turned down while still out: its copy was never lent.
+                    refusedBook = provisional.getBookId();
+                } else if (applied == null) {
+                    // Turned down after it was returned; the return already gave the copy back.
+                    inventory.settle(provisional.getBookId());
+                }
+            }
+        } finally {
+            provisionalLock.unlock();
+        }
+        if (refusedBook >= 0) {
+            giveBack(refusedBook, true);
         }
     }
-    
-    private void loadBorrowingsFromDatabase() {
-        String sql = "SELECT * FROM borrowings";
-        
-        try (Connection conn = DatabaseConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            
-            while (rs.next()) {
-                Borrowing borrowing = new Borrowing(
-                        rs.getInt("id"),
-                        rs.getInt("book_id"),
-                        rs.getInt("member_id"),
-                        rs.getTimestamp("borrow_date"),
-                        rs.getTimestamp("return_date")
-                );
-                borrowings.add(borrowing);
+
+    /**
+     * Moves a provisional loan to the id it was queued again under further
+     * down; nothing is decided yet, so its reservation stays open. Takes no
+     * stripe, like resolveQueuedBorrow. The new row goes in before the old
+     * one comes out.
+     */
+    private void renameQueuedBorrow(int provisionalId, int newProvisionalId) {
+        provisionalLock.lock();
+        try {
+            Borrowing provisional = borrowingsById.get(provisionalId);
+            if (provisional == null) {
+                requeuedEarly.put(provisionalId, newProvisionalId);
+                return;
             }
-        } catch (SQLException e) {
+            Borrowing renamed = new Borrowing(newProvisionalId, provisional.getBookId(), provisional.getMemberId(),
+                    provisional.getBorrowDate(), provisional.getReturnDate());
+            installBorrowing(renamed);
+            writeToLog(RecordType.INSERT, formatBorrowingForFile(renamed));
+            uninstallBorrowing(provisionalId);
+            writeToLog(RecordType.DELETE, String.valueOf(provisionalId));
+        } finally {
+            provisionalLock.unlock();
+        }
+    }
 
-            createBorrowingsTable();
+    private boolean cancelQueuedBorrow(int provisionalId) {
+        try {
+            return store.cancelQueued(provisionalId);
+        } catch (StorageException e) {
+            System.out.println(" Error cancelling queued borrow: " + e.getMessage());
+            return false;
         }
     }
-    
-    private void createBorrowingsTable() {
-        String sql = "CREATE TABLE IF NOT EXISTS borrowings ("
-                + "id SERIAL PRIMARY KEY,"
-                + "book_id INTEGER NOT NULL,"
-                + "member_id INTEGER NOT NULL,"
-                + "borrow_date TIMESTAMP NOT NULL,"
-                + "return_date TIMESTAMP,"
-                + "FOREIGN KEY (book_id) REFERENCES books(book_id),"
-                + "FOREIGN KEY (member_id) REFERENCES members(member_id)"
-                + ")";
-        
-        try (Connection conn = DatabaseConnection.getConnection();
-             Statement stmt = conn.createStatement()) {
-            stmt.execute(sql);
-        } catch (SQLException e) {
-            System.out.println(" Error creating borrowings table: " + e.getMessage());
+
+    /** Returns a copy taken by a borrow that didn't go through. */
+    private void giveBack(int bookId, boolean reserved) {
+        if (reserved) {
+            inventory.cancel(bookId);
+            bookDAO.refreshAvailableCopies(bookId);
         }
     }
-    
-    private void saveBorrowingToDatabase(Borrowing borrowing) {
-        String sql = "INSERT INTO borrowings (book_id, member_id, borrow_date, return_date) VALUES (?, ?, ?, ?)";
-        
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            
-            stmt.setInt(1, borrowing.getBookId());
-            stmt.setInt(2, borrowing.getMemberId());
-            stmt.setTimestamp(3, new Timestamp(borrowing.getBorrowDate().getTime()));
-            
-            if (borrowing.getReturnDate() != null) {
-                stmt.setTimestamp(4, new Timestamp(borrowing.getReturnDate().getTime()));
-            } else {
-                stmt.setNull(4, Types.TIMESTAMP);
-            }
-            
-            stmt.executeUpdate();
-            
 
-            try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
-                if (generatedKeys.next()) {
-                    borrowing.setId(generatedKeys.getInt(1));
-                }
-            }
-        } catch (SQLException e) {
-            System.out.println(" Error saving borrowing to database: " + e.getMessage());
+    private void markReturned(Borrowing borrowing, Date returnDate) {
+        if (borrowing == null || borrowing.getReturnDate() != null) {
+            return;
+        }
+        borrowing.setReturnDate(returnDate);
+        removeActive(borrowing);
+        writeToLog(RecordType.UPDATE, formatBorrowingForFile(borrowing));
+    }
+
+    /** Adds or refreshes a borrowing loaded from the file store or the database, under its book's stripe. */
+    private void putLoadedBorrowing(Borrowing borrowing) {
+        ReentrantLock lock = locks.lockFor(borrowing.getBookId());
+        lock.lock();
+        try {
+            installBorrowing(borrowing);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void removeLoadedBorrowing(int id) {
+        Borrowing borrowing = borrowingsById.get(id);
+        if (borrowing == null) {
+            return;
+        }
+        ReentrantLock lock = locks.lockFor(borrowing.getBookId());
+        lock.lock();
+        try {
+            uninstallBorrowing(id);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds a borrowing, or refreshes the copy already held under the same id,
+     * keeping the id and active-loan indexes in step. Callers hold the book's
+     * stripe, except resolveQueuedBorrow (see there).
+     */
+    private void installBorrowing(Borrowing borrowing) {
+        Borrowing existing = borrowingsById.putIfAbsent(borrowing.getId(), borrowing);
+        if (existing != null) {
+            removeActive(existing);
+            existing.setBookId(borrowing.getBookId());
+            existing.setMemberId(borrowing.getMemberId());
+            existing.setBorrowDate(borrowing.getBorrowDate());
+            existing.setReturnDate(borrowing.getReturnDate());
+            addActive(existing);
+            return;
+        }
+        borrowingsInIdOrder.put(borrowing.getId(), borrowing);
+        addActive(borrowing);
+    }
+
+    private void uninstallBorrowing(int id) {
+        Borrowing removed = borrowingsById.remove(id);
+        if (removed != null) {
+            borrowingsInIdOrder.remove(id);
+            removeActive(removed);
+        }
+    }
+
+    /**
+     * Adds the current borrowings to a snapshot; called by the background
+     * compactor. The walk is weakly consistent, which is enough: a change it
+     * misses is logged after the snapshot point and replayed over it.
+     */
+    private void snapshotRecords(SnapshotFile.Writer writer) {
+        for (Borrowing borrowing : borrowingsInIdOrder.values()) {
+            writer.addRow(new long[]{
+                    borrowing.getId(),
+                    borrowing.getBookId(),
+                    borrowing.getMemberId(),
+                    borrowing.getBorrowDate().getTime(),
+                    borrowing.getReturnDate() == null ? -1 : borrowing.getReturnDate().getTime()
+            });
+        }
+    }
+
+    private void loadSnapshot(SnapshotFile snapshot) {
+        for (int row = 0; row < snapshot.rowCount(); row++) {
+            long returned = snapshot.getLong(row, 4);
+            putLoadedBorrowing(new Borrowing(
+                    snapshot.getInt(row, 0),
+                    snapshot.getInt(row, 1),
+                    snapshot.getInt(row, 2),
+                    new Date(snapshot.getLong(row, 3)),
+                    returned < 0 ? null : new Date(returned)
+            ));
         }
     }
+
+    private void addActive(Borrowing borrowing) {
+        if (borrowing.getReturnDate() != null) {
+            return;
+        }
+        addTo(activeByMember, borrowing.getMemberId(), borrowing);
+        addTo(activeByBook, borrowing.getBookId(), borrowing);
+        activeInIdOrder.put(borrowing.getId(), borrowing);
+    }
+
+    private void removeActive(Borrowing borrowing) {
+        removeFrom(activeByMember, borrowing.getMemberId(), borrowing);
+        removeFrom(activeByBook, borrowing.getBookId(), borrowing);
+        activeInIdOrder.remove(borrowing.getId(), borrowing);
+    }
+
+    private static void addTo(ConcurrentHashMap<Integer, List<Borrowing>> index, int key, Borrowing borrowing) {
+        index.compute(key, (k, list) -> {
+            List<Borrowing> updated = list == null ? new ArrayList<>(1) : new ArrayList<>(list);
+            updated.add(borrowing);
+            return updated;
+        });
+    }
+
+    private static void removeFrom(ConcurrentHashMap<Integer, List<Borrowing>> index, int key, Borrowing borrowing) {
+        index.computeIfPresent(key, (k, list) -> {
+            if (!list.contains(borrowing)) {
+                return list;
+            }
+            List<Borrowing> updated = new ArrayList<>(list);
+            updated.remove(borrowing);
+            return updated.isEmpty() ? null : updated;
+        });
+    }
     
-    private void updateBorrowingInDatabase(Borrowing borrowing) {
-        String sql = "UPDATE borrowings SET return_date = ? WHERE id = ?";
-        
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            if (borrowing.getReturnDate() != null) {
-                stmt.setTimestamp(1, new Timestamp(borrowing.getReturnDate().getTime()));
-            } else {
-                stmt.setNull(1, Types.TIMESTAMP);
+    
+    /**
+     * Pulls the borrowings added, changed or deleted in the database since
+     * the last sync, applies them in memory and to the file store, and moves
+     * the watermark forward. Returns the number of changes, or -1 if the
+     * database could not be reached.
+     */
+    @Override
+    public int sync() {
+        return syncFromDatabase();
+    }
+
+    private int syncFromDatabase() {
+        List<LogRecord> changes = new ArrayList<>();
+        syncLock.lock();
+        try {
+            long watermark = store.pullChanges(syncedThrough,
+                    borrowing -> {
+                        putLoadedBorrowing(borrowing);
+                        changes.add(new LogRecord(RecordType.UPDATE, formatBorrowingForFile(borrowing)));
+                    },
+                    id -> {
+                        removeLoadedBorrowing(id);
+                        changes.add(new LogRecord(RecordType.DELETE, String.valueOf(id)));
+                    });
+            if (log != null) {
+                log.appendAll(changes);
+                log.setWatermark(backendName, watermark);
             }
-            
-            stmt.setInt(2, borrowing.getId());
-            stmt.executeUpdate();
-        } catch (SQLException e) {
-            System.out.println(" Error updating borrowing in database: " + e.getMessage());
+            syncedThrough = watermark;
+            return changes.size();
+        } catch (StorageException e) {
+            System.out.println(" Error syncing borrowings from database: " + e.getMessage());
+        } catch (IOException e) {
+            System.out.println(" Error writing synced borrowings to file: " + e.getMessage());
+        } finally {
+            syncLock.unlock();
         }
+        return -1;
     }
     
     private void deleteBorrowingFromDatabase(int id) {
-        String sql = "DELETE FROM borrowings WHERE id = ?";
-        
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setInt(1, id);
-            stmt.executeUpdate();
-        } catch (SQLException e) {
+        try {
+            store.delete(id);
+        } catch (StorageException e) {
             System.out.println(" Error deleting borrowing from database: " + e.getMessage());
         }
     }
@@ -275,147 +628,71 @@ public class BorrowingDAOImpl implements BorrowingDAO {
 
     
     private void loadBorrowingsFromFile() {
-        File file = new File(FILE_PATH);
-        
-        if (!file.exists()) {
-            System.out.println("📂 Borrowings file not found. Will be created when adding borrowings.");
+        if (log == null) {
             return;
         }
-        
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            String line;
-            
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length >= 5) {
-                    try {
-                        int id = Integer.parseInt(parts[0]);
-                        int bookId = Integer.parseInt(parts[1]);
-                        int memberId = Integer.parseInt(parts[2]);
-                        Date borrowDate = new Date(Long.parseLong(parts[3]));
-                        Date returnDate = parts[4].equals("null") ? null : new Date(Long.parseLong(parts[4]));
-                        
-                        Borrowing borrowing = new Borrowing(id, bookId, memberId, borrowDate, returnDate);
-                        
-
-                        if (borrowings.stream().noneMatch(b -> b.getId() == id)) {
-                            borrowings.add(borrowing);
-                        }
-                    } catch (NumberFormatException e) {
-                        System.out.println(" Invalid data format in borrowings file: " + line);
+        try {
+            syncedThrough = log.getWatermark(backendName);
+            log.replay(this::loadSnapshot, record -> {
+                if (record.type() == RecordType.DELETE) {
+                    removeLoadedBorrowing(Integer.parseInt(record.payload()));
+                } else {
+                    Borrowing borrowing = parseBorrowing(record.payload());
+                    if (borrowing != null) {
+                        putLoadedBorrowing(borrowing);
                     }
                 }
-            }
-            
-            System.out.println(" Loaded " + borrowings.size() + " borrowing records from file.");
-        } catch (IOException e) {
+            });
+            System.out.println(" Loaded " + borrowingsById.size() + " borrowing records from file.");
+        } catch (IOException | NumberFormatException e) {
             System.out.println(" Error reading borrowings file: " + e.getMessage());
         }
     }
-    
-    private void saveBorrowingToFile(Borrowing borrowing) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(FILE_PATH, true))) {
-            writer.write(formatBorrowingForFile(borrowing));
-            writer.newLine();
-            System.out.println(" Borrowing record saved to file.");
-        } catch (IOException e) {
-            System.out.println(" Error saving borrowing to file: " + e.getMessage());
-        }
-    }
-    
-    private void updateBorrowingInFile(Borrowing updatedBorrowing) {
-        File file = new File(FILE_PATH);
-        List<String> fileLines = new ArrayList<>();
-        boolean borrowingFound = false;
-        
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            String line;
-            
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length > 0) {
-                    try {
-                        int id = Integer.parseInt(parts[0]);
-                        if (id == updatedBorrowing.getId()) {
-
-                            line = formatBorrowingForFile(updatedBorrowing);
-                            borrowingFound = true;
-                        }
-                    } catch (NumberFormatException e) {
 
-                    }
-                }
-                fileLines.add(line);
-            }
-            
-        } catch (IOException e) {
-            System.out.println(" Error reading borrowings file: " + e.getMessage());
+    private void writeToLog(RecordType type, String payload) {
+        if (log == null) {
             return;
         }
-        
-
-        if (!borrowingFound) {
-            fileLines.add(formatBorrowingForFile(updatedBorrowing));
-        }
-        
-
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
-            for (String line : fileLines) {
-                writer.write(line);
-                writer.newLine();
-            }
-            System.out.println(" Borrowing record updated in file.");
+        try {
+            log.append(type, payload);
         } catch (IOException e) {
-            System.out.println(" Error updating borrowings file: " + e.getMessage());
+            System.out.println(" Error saving borrowing to file: " + e.getMessage());
         }
     }
-    
-    private void deleteBorrowingFromFile(int borrowingId) {
-        File file = new File(FILE_PATH);
-        List<String> fileLines = new ArrayList<>();
-        boolean borrowingFound = false;
-        
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            String line;
-            
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length > 0) {
-                    try {
-                        int id = Integer.parseInt(parts[0]);
-                        if (id == borrowingId) {
-                            borrowingFound = true;
-                            continue;
-                        }
-                    } catch (NumberFormatException e) {
 
-                    }
-                }
-                fileLines.add(line);
-            }
-            
+    private RecordStore openLog() {
+        try {
+            RecordStore store = RecordStore.open(STORE_NAME, LEGACY_FILE);
+            store.setSnapshotSource(5, 0, this::snapshotRecords);
+            return store;
         } catch (IOException e) {
-            System.out.println(" Error reading borrowings file: " + e.getMessage());
-            return;
+            System.out.println(" Error opening borrowing log: " + e.getMessage());
+            return null;
         }
-        
+    }
 
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
-            for (String line : fileLines) {
-                writer.write(line);
-                writer.newLine();
-            }
-            
-            if (borrowingFound) {
-                System.out.println(" Borrowing record deleted from file.");
-            } else {
-                System.out.println(" Borrowing record with ID " + borrowingId + " not found in file.");
-            }
-        } catch (IOException e) {
-            System.out.println(" Error updating borrowings file: " + e.getMessage());
+    private static Borrowing parseBorrowing(String line) {
+        String[] parts = line.split(",");
+        if (parts.length < 5) {
+            System.out.println(" Invalid data format in borrowings file: " + line);
+            return null;
+        }
+        try {
+            int id = Integer.parseInt(parts[0]);
+            int bookId = Integer.parseInt(parts[1]);
+            int memberId = Integer.parseInt(parts[2]);
+            Date borrowDate = new Date(Long.parseLong(parts[3]));
+            Date returnDate = parts[4].equals("null") ? null : new Date(Long.parseLong(parts[4]));
+            return new Borrowing(id, bookId, memberId, borrowDate, returnDate);
+        } catch (NumberFormatException e) {
+            System.out.println(" Invalid data format in borrowings file: " + line);
+            return null;
         }
     }
     
+    
+    
+    
     private String formatBorrowingForFile(Borrowing borrowing) {
         return borrowing.getId() + "," +
                borrowing.getBookId() + "," +
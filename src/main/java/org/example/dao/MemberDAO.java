@@ -1,12 +1,47 @@
 package org.example.dao;
 
 import org.example.models.Member;
+import org.example.models.Page;
 import java.util.List;
 
+/**
+ * The member registry. Every method is safe to call from many threads at
+ * once; writes to one member id are linearizable (one at a time, in the
+ * same order in memory, the database and the file log) and writes to
+ * different members run in parallel. Lookups take no lock.
+ */
 public interface MemberDAO {
-    void addMember(Member member);
+    /**
+     * Atomic: the duplicate-id check and the insert happen as one step.
+     * Returns false if the id was taken or the store refused the member.
+     */
+    boolean addMember(Member member);
+
+    /**
+     * Lock-free when the member is loaded; otherwise fetched under the
+     * member's lock, so a concurrent delete can't be undone by the fetch.
+     */
     Member getMemberById(int id);
+
+    /**
+     * Lock-free when the member is loaded; otherwise fetched by email, then
+     * read again by id under the member's lock before it is cached, so a
+     * concurrent delete or edit can't be undone by the fetch.
+     */
+    Member findByEmail(String email);
+
+    /** A weakly consistent copy in id order. */
     List<Member> getAllMembers();
+
+    /** Linearizable per member. */
     void updateMember(Member member);
+
+    /** Linearizable per member. */
     void deleteMember(int id);
+
+    /** See BookDAO.getBooksPage. */
+    Page<Member> getMembersPage(int afterId, int size);
+
+    /** One sync runs at a time; it may overlap other reads and writes. */
+    int sync();
 }
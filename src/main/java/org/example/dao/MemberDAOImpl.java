@@ -1,230 +1,197 @@
 package org.example.dao;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
-
-import org.example.database.DatabaseConnection;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.example.backend.MemberStore;
+import org.example.backend.RowCodec;
+import org.example.backend.StorageBackend;
+import org.example.backend.StorageException;
 import org.example.models.Member;
+import org.example.models.Page;
+import org.example.storage.LogRecord;
+import org.example.storage.RecordStore;
+import org.example.storage.RecordType;
+import org.example.storage.SnapshotFile;
 import org.example.utils.Logger;
-
+import org.example.utils.StripedLocks;
+
+/**
+ * The member registry, kept in concurrent maps so lookups take no lock.
+ * Writes to one member id (add, update, delete, or loading it from the
+ * database) hold that id's stripe lock for the whole change, store call and
+ * file log included, so they happen one at a time and in the same order
+ * everywhere. See MemberDAO for what each method guarantees.
+ */
 public class MemberDAOImpl implements MemberDAO {
-    private final List<Member> memberList = new ArrayList<>();
-    private static final String FILE_PATH = "members.txt";
+    private final ConcurrentHashMap<Integer, Member> membersById = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Member> membersByEmail = new ConcurrentHashMap<>();
+    // id order, for listings and for paging when the database can't be asked
+    private final ConcurrentSkipListMap<Integer, Member> membersInIdOrder = new ConcurrentSkipListMap<>();
+    private final StripedLocks locks = new StripedLocks(64);
+    private static final String STORE_NAME = "members";
+    private static final String LEGACY_FILE = "members.txt";
+    private final RecordStore log;
+    private final MemberStore store;
+    private final String backendName;
+    private long syncedThrough;
+    // One sync at a time.
+    private final ReentrantLock syncLock = new ReentrantLock();
     
-    public MemberDAOImpl() {
+    public MemberDAOImpl(StorageBackend backend) {
+        this.store = backend.members();
+        this.backendName = backend.getName();
+        this.log = openLog();
         loadMembersFromFile();
-
+        if (syncedThrough == 0) {
+            seedDatabase();
+        }
+        syncFromDatabase();
     }
 
-    private void saveMemberToFile(Member member) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(FILE_PATH, true))) {
-            writer.write(member.getId() + "," + 
-                       member.getName() + "," + 
-                       member.getEmail() + "," + 
-                       member.getPhone());
-            writer.newLine();
-            System.out.println("📂 Member saved to file.");
-        } catch (IOException e) {
-            System.out.println(" Error writing member to file: " + e.getMessage());
+    /** Copies the members into a backend that has never held one; see BookStore.seed. */
+    private void seedDatabase() {
+        if (membersInIdOrder.isEmpty()) {
+            return;
+        }
+        try {
+            if (store.seed(new ArrayList<>(membersInIdOrder.values()))) {
+                System.out.println(" Copied " + membersInIdOrder.size() + " members into the " + backendName + " database.");
+            }
+        } catch (StorageException e) {
+            System.out.println(" Error copying members into database: " + e.getMessage());
         }
     }
-    
+
 
     private void loadMembersFromFile() {
-        File file = new File(FILE_PATH);
-        
-        if (!file.exists()) {
-            System.out.println(" Members file not found. Will be created when adding members.");
+        if (log == null) {
             return;
         }
-        
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            String line;
-            memberList.clear();
-            
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length >= 4) {
-                    try {
-                        int id = Integer.parseInt(parts[0]);
-                        Member member = new Member(id, parts[1], parts[2], parts[3]);
-                        memberList.add(member);
-                    } catch (NumberFormatException e) {
-                        System.out.println(" Invalid member ID format in file: " + parts[0]);
+        clearMembers();
+        try {
+            syncedThrough = log.getWatermark(backendName);
+            log.replay(this::loadSnapshot, record -> {
+                if (record.type() == RecordType.DELETE) {
+                    removeMember(Integer.parseInt(record.payload()));
+                } else {
+                    Member member = parseMember(record.payload());
+                    if (member != null) {
+                        putMember(member);
                     }
                 }
-            }
-            
-            System.out.println("📂 Loaded " + memberList.size() + " members from file.");
-        } catch (IOException e) {
+            });
+            System.out.println("📂 Loaded " + membersById.size() + " members from file.");
+        } catch (IOException | NumberFormatException e) {
             System.out.println(" Error reading members from file: " + e.getMessage());
         }
     }
-    
 
-    private void updateMemberInFile(Member updatedMember) {
-        File file = new File(FILE_PATH);
-        List<String> fileLines = new ArrayList<>();
-        boolean memberFound = false;
-        
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            String line;
-            
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length > 0) {
-                    try {
-                        int id = Integer.parseInt(parts[0]);
-                        if (id == updatedMember.getId()) {
-
-                            line = updatedMember.getId() + "," + 
-                                   updatedMember.getName() + "," + 
-                                   updatedMember.getEmail() + "," + 
-                                   updatedMember.getPhone();
-                            memberFound = true;
-                        }
-                    } catch (NumberFormatException e) {
-                        System.out.println(" Invalid member ID format in file: " + parts[0]);
-                    }
-                }
-                fileLines.add(line);
-            }
-            
-        } catch (IOException e) {
-            System.out.println(" Error reading file: " + e.getMessage());
+    private void writeToLog(RecordType type, String payload) {
+        if (log == null) {
             return;
         }
-        
-        if (!memberFound) {
-
-            fileLines.add(updatedMember.getId() + "," + 
-                        updatedMember.getName() + "," + 
-                        updatedMember.getEmail() + "," + 
-                        updatedMember.getPhone());
+        try {
+            log.append(type, payload);
+        } catch (IOException e) {
+            System.out.println(" Error writing member to file: " + e.getMessage());
         }
-        
+    }
 
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
-            for (String line : fileLines) {
-                writer.write(line);
-                writer.newLine();
-            }
-            System.out.println(" Member updated in file.");
+    private RecordStore openLog() {
+        try {
+            RecordStore store = RecordStore.open(STORE_NAME, LEGACY_FILE);
+            store.setSnapshotSource(1, 3, this::snapshotRecords);
+            return store;
         } catch (IOException e) {
-            System.out.println(" Error updating member in file: " + e.getMessage());
+            System.out.println(" Error opening member log: " + e.getMessage());
+            return null;
         }
     }
-    
 
-    private void deleteMemberFromFile(int memberId) {
-        File file = new File(FILE_PATH);
-        List<String> fileLines = new ArrayList<>();
-        boolean memberFound = false;
-        
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            String line;
-            
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length > 0) {
-                    try {
-                        int id = Integer.parseInt(parts[0]);
-                        if (id == memberId) {
-                            memberFound = true;
-                            continue;
-                        }
-                    } catch (NumberFormatException e) {
+    private static String formatMember(Member member) {
+        return member.getId() + "\t" + RowCodec.encodeFields(RowCodec.memberFields(member));
+    }
 
-                    }
-                }
-                fileLines.add(line);
-            }
-            
-        } catch (IOException e) {
-            System.out.println(" Error reading file: " + e.getMessage());
-            return;
+    private static Member parseMember(String line) {
+        // Written before fields were escaped (members.txt too), joined by commas.
+        boolean escaped = line.indexOf('\t') >= 0;
+        String[] parts = escaped ? line.split("\t", -1) : line.split(",");
+        if (escaped ? parts.length != 4 : parts.length < 4) {
+            System.out.println(" Invalid member record: " + line);
+            return null;
         }
-        
-
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
-            for (String line : fileLines) {
-                writer.write(line);
-                writer.newLine();
-            }
-            
-            if (memberFound) {
-                System.out.println(" Member deleted from file.");
-            } else {
-                System.out.println(" Member with ID " + memberId + " not found in file.");
-            }
-        } catch (IOException e) {
-            System.out.println(" Error updating file: " + e.getMessage());
+        try {
+            int id = Integer.parseInt(parts[0]);
+            return escaped
+                    ? RowCodec.toMember(id, RowCodec.decodeFields(parts, 1))
+                    : new Member(id, parts[1], parts[2], parts[3]);
+        } catch (NumberFormatException e) {
+            System.out.println(" Invalid member ID format in file: " + parts[0]);
+            return null;
         }
     }
 
+
     @Override
-    public void addMember(Member member) {
-
-        String query = "INSERT INTO members (member_id, name, email, phone) VALUES (?, ?, ?, ?)";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-            stmt.setInt(1, member.getId());
-            stmt.setString(2, member.getName());
-            stmt.setString(3, member.getEmail());
-            stmt.setString(4, member.getPhone());
-            stmt.executeUpdate();
+    public boolean addMember(Member member) {
+        ReentrantLock lock = locks.lockFor(member.getId());
+        lock.lock();
+        try {
+            // In write-behind mode the database only sees the insert later, so catch duplicates here.
+            if (membersById.containsKey(member.getId())) {
+                System.out.println(" Member with ID " + member.getId() + " already exists.");
+                return false;
+            }
+
+            store.insert(member);
             
 
-            memberList.add(member);
+            putMember(member);
             
 
-            saveMemberToFile(member);
+            writeToLog(RecordType.INSERT, formatMember(member));
             
             System.out.println(" Member added successfully!");
             Logger.log("Added member: " + member.getName() + " (ID: " + member.getId() + ")");
-        } catch (SQLException e) {
+            return true;
+        } catch (StorageException e) {
             System.out.println(" Error adding member to database: " + e.getMessage());
+            return false;
+        } finally {
+            lock.unlock();
         }
     }
 
     @Override
     public Member getMemberById(int id) {
-        for (Member member : memberList) {
-            if (member.getId() == id) {
-                return member;
-            }
+        Member cached = membersById.get(id);
+        if (cached != null) {
+            return cached;
         }
 
-
-        String query = "SELECT * FROM members WHERE member_id = ?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-            stmt.setInt(1, id);
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                Member member = new Member(
-                        rs.getInt("member_id"),
-                        rs.getString("name"),
-                        rs.getString("email"),
-                        rs.getString("phone")
-                );
-
-                memberList.add(member);
+        // Fetch under the stripe so a delete running meanwhile can't be undone by a stale read.
+        ReentrantLock lock = locks.lockFor(id);
+        lock.lock();
+        try {
+            cached = membersById.get(id);
+            if (cached != null) {
+                return cached;
+            }
+            Member member = store.findById(id);
+            if (member != null) {
+                putMember(member);
                 return member;
             }
-        } catch (SQLException e) {
+        } catch (StorageException e) {
             System.out.println(" Error retrieving member from database: " + e.getMessage());
+        } finally {
+            lock.unlock();
         }
         
         return null;
@@ -232,100 +199,226 @@ public class MemberDAOImpl implements MemberDAO {
 
     @Override
     public List<Member> getAllMembers() {
+        return new ArrayList<>(membersInIdOrder.values());
+    }
 
-        memberList.clear();
-        
-
-        String query = "SELECT * FROM members";
-        try (Connection conn = DatabaseConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(query)) {
-            
-            while (rs.next()) {
-                Member member = new Member(
-                        rs.getInt("member_id"),
-                        rs.getString("name"),
-                        rs.getString("email"),
-                        rs.getString("phone")
-                );
-                memberList.add(member);
+    /**
+     * One page of members in id order, after the member with id afterId
+     * (Page.START for the first page). Asks the database for just that page;
+     * if it can't be reached, pages through the members already loaded.
+     */
+    @Override
+    public Page<Member> getMembersPage(int afterId, int size) {
+        try {
+            return Page.of(store.page(afterId, size + 1), size, Member::getId);
+        } catch (StorageException e) {
+            System.out.println(" Error reading members from database, showing local copy: " + e.getMessage());
+        }
+        List<Member> fetched = new ArrayList<>(size + 1);
+        for (Member member : membersInIdOrder.tailMap(afterId, false).values()) {
+            if (fetched.size() > size) {
+                break;
             }
-        } catch (SQLException e) {
-            System.out.println(" Error loading members from database: " + e.getMessage());
+            fetched.add(member);
+        }
+        return Page.of(fetched, size, Member::getId);
+    }
 
+    /**
+     * Pulls the members added, changed or deleted in the database since the
+     * last sync, applies them in memory and to the file store, and moves the
+     * watermark forward. Returns the number of changes, or -1 if the database
+     * could not be reached.
+     */
+    @Override
+    public int sync() {
+        return syncFromDatabase();
+    }
 
-            if (memberList.isEmpty()) {
-                loadMembersFromFile();
+    private int syncFromDatabase() {
+        List<LogRecord> changes = new ArrayList<>();
+        syncLock.lock();
+        try {
+            long watermark = store.pullChanges(syncedThrough,
+                    member -> {
+                        putMember(member);
+                        changes.add(new LogRecord(RecordType.UPDATE, formatMember(member)));
+                    },
+                    memberId -> {
+                        removeMember(memberId);
+                        changes.add(new LogRecord(RecordType.DELETE, String.valueOf(memberId)));
+                    });
+            if (log != null) {
+                log.appendAll(changes);
+                log.setWatermark(backendName, watermark);
             }
+            syncedThrough = watermark;
+            return changes.size();
+        } catch (StorageException e) {
+            System.out.println(" Error syncing members from database: " + e.getMessage());
+        } catch (IOException e) {
+            System.out.println(" Error writing synced members to file: " + e.getMessage());
+        } finally {
+            syncLock.unlock();
         }
-        
-        return new ArrayList<>(memberList);
+        return -1;
     }
 
     @Override
     public void updateMember(Member member) {
+        ReentrantLock lock = locks.lockFor(member.getId());
+        lock.lock();
+        try {
+            if (store.update(member)) {
 
-        String query = "UPDATE members SET name = ?, email = ?, phone = ? WHERE member_id = ?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-            
-            stmt.setString(1, member.getName());
-            stmt.setString(2, member.getEmail());
-            stmt.setString(3, member.getPhone());
-            stmt.setInt(4, member.getId());
-            
-            int affectedRows = stmt.executeUpdate();
-            
-            if (affectedRows > 0) {
-
-                for (int i = 0; i < memberList.size(); i++) {
-                    if (memberList.get(i).getId() == member.getId()) {
-                        memberList.set(i, member);
-                        break;
-                    }
-                }
+                putMember(member);
                 
 
-                updateMemberInFile(member);
+                writeToLog(RecordType.UPDATE, formatMember(member));
                 
                 System.out.println(" Member updated successfully!");
                 Logger.log("Updated member: " + member.getName() + " (ID: " + member.getId() + ")");
             } else {
                 System.out.println("Member with ID " + member.getId() + " not found in database.");
             }
-        } catch (SQLException e) {
+        } catch (StorageException e) {
             System.out.println(" Error updating member in database: " + e.getMessage());
+        } finally {
+            lock.unlock();
         }
     }
 
     @Override
     public void deleteMember(int id) {
+        ReentrantLock lock = locks.lockFor(id);
+        lock.lock();
+        try {
+            if (store.delete(id)) {
 
-        String query = "DELETE FROM members WHERE member_id = ?";
-        boolean deleteSuccessful = false;
-        
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-            
-            stmt.setInt(1, id);
-            int affectedRows = stmt.executeUpdate();
-            
-            if (affectedRows > 0) {
-                deleteSuccessful = true;
-                
-
-                memberList.removeIf(member -> member.getId() == id);
+                removeMember(id);
                 
 
-                deleteMemberFromFile(id);
+                writeToLog(RecordType.DELETE, String.valueOf(id));
                 
                 System.out.println(" Member deleted successfully!");
                 Logger.log("Deleted member with ID: " + id);
             } else {
                 System.out.println(" Member with ID " + id + " not found in database.");
             }
-        } catch (SQLException e) {
+        } catch (StorageException e) {
             System.out.println(" Error deleting member from database: " + e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Member findByEmail(String email) {
+        if (email == null) {
+            return null;
         }
+        Member cached = membersByEmail.get(emailKey(email));
+        if (cached != null) {
+            return cached;
+        }
+
+        Member member;
+        try {
+            member = store.findByEmail(email);
+        } catch (StorageException e) {
+            System.out.println(" Error looking up member by email: " + e.getMessage());
+            return null;
+        }
+        if (member == null) {
+            return null;
+        }
+
+        // Only now is the id known. Read the row again under its stripe, like
+        // getMemberById, so a delete or edit that ran since can't be undone.
+        ReentrantLock lock = locks.lockFor(member.getId());
+        lock.lock();
+        try {
+            Member current = membersById.get(member.getId());
+            if (current == null) {
+                current = store.findById(member.getId());
+                if (current != null) {
+                    putMember(current);
+                }
+            }
+            return current != null && emailKey(current.getEmail()).equals(emailKey(email)) ? current : null;
+        } catch (StorageException e) {
+            System.out.println(" Error looking up member by email: " + e.getMessage());
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds or replaces a member in all three maps under its stripe lock
+     * (reentrant, so callers already holding it are fine).
+     */
+    private void putMember(Member member) {
+        ReentrantLock lock = locks.lockFor(member.getId());
+        lock.lock();
+        try {
+            Member previous = membersById.put(member.getId(), member);
+            membersInIdOrder.put(member.getId(), member);
+            if (previous != null && previous.getEmail() != null) {
+                membersByEmail.remove(emailKey(previous.getEmail()), previous);
+            }
+            if (member.getEmail() != null) {
+                membersByEmail.put(emailKey(member.getEmail()), member);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void removeMember(int id) {
+        ReentrantLock lock = locks.lockFor(id);
+        lock.lock();
+        try {
+            Member removed = membersById.remove(id);
+            membersInIdOrder.remove(id);
+            if (removed != null && removed.getEmail() != null) {
+                membersByEmail.remove(emailKey(removed.getEmail()), removed);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Only called while loading, before anyone else can see this DAO. */
+    private void clearMembers() {
+        membersById.clear();
+        membersInIdOrder.clear();
+        membersByEmail.clear();
+    }
+
+    /**
+     * Adds the current members to a snapshot; called by the background
+     * compactor. The walk is weakly consistent, which is enough: a change it
+     * misses is logged after the snapshot point and replayed over it.
+     */
+    private void snapshotRecords(SnapshotFile.Writer writer) {
+        for (Member member : membersInIdOrder.values()) {
+            writer.addRow(new long[]{member.getId()}, member.getName(), member.getEmail(), member.getPhone());
+        }
+    }
+
+    private void loadSnapshot(SnapshotFile snapshot) {
+        for (int row = 0; row < snapshot.rowCount(); row++) {
+            putMember(new Member(
+                    snapshot.getInt(row, 0),
+                    snapshot.getString(row, 0),
+                    snapshot.getString(row, 1),
+                    snapshot.getString(row, 2)
+            ));
+        }
+    }
+
+    private static String emailKey(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
     }
 }
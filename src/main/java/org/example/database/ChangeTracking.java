@@ -0,0 +1,169 @@
+package org.example.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.function.IntConsumer;
+
+/**
+ * Change tracking for incremental sync. A trigger stamps every inserted or
+ * updated row of a tracked table with the id of the transaction that wrote
+ * it (change_xid), and deletes leave a tombstone stamped the same way.
+ *
+ * Transaction ids are handed out when a transaction starts, not when it
+ * commits, so a reader can't simply remember the highest id it has seen: a
+ * bulk import that started earlier and commits later would be skipped. The
+ * watermark is the xmin of the reader's snapshot instead, the oldest
+ * transaction still running when it looked. Every transaction below it has
+ * finished and is fully in that snapshot, and anything at or above it is
+ * read again on the next pull. Rows can come back twice, which is fine
+ * because the DAOs apply them as upserts; a transaction left open for a
+ * long time anywhere on the server holds the watermark back and makes the
+ * pulls re-read more meanwhile.
+ *
+ * Tracking is installed once, when the JDBC backend starts (see install).
+ * Rows written before that have no change_xid. Only a full pull (since 0)
+ * returns them, so installing is a metadata-only change and never rewrites
+ * the table.
+ */
+public class ChangeTracking {
+    private static final String STAMP_FUNCTION =
+            "CREATE OR REPLACE FUNCTION library_stamp_row() RETURNS trigger AS $$\n"
+            + "BEGIN\n"
+            + "    NEW.change_xid := pg_current_xact_id();\n"
+            + "    IF TG_OP = 'INSERT' THEN\n"
+            + "        DELETE FROM tombstones WHERE table_name = TG_TABLE_NAME\n"
+            + "            AND row_id = (to_jsonb(NEW) ->> TG_ARGV[0])::integer;\n"
+            + "    END IF;\n"
+            + "    RETURN NEW;\n"
+            + "END\n"
+            + "$$ LANGUAGE plpgsql";
+
+    private static final String TOMBSTONE_FUNCTION =
+            "CREATE OR REPLACE FUNCTION library_record_tombstone() RETURNS trigger AS $$\n"
+            + "BEGIN\n"
+            + "    INSERT INTO tombstones (table_name, row_id, change_xid)\n"
+            + "    VALUES (TG_TABLE_NAME, (to_jsonb(OLD) ->> TG_ARGV[0])::integer, pg_current_xact_id())\n"
+            + "    ON CONFLICT (table_name, row_id) DO UPDATE SET change_xid = EXCLUDED.change_xid;\n"
+            + "    RETURN OLD;\n"
+            + "END\n"
+            + "$$ LANGUAGE plpgsql";
+
+    /**
+     * Adds the change_xid column, its index and both triggers to a table if
+     * they are not there yet. Only catalog changes are made inside the
+     * transaction; the indexes are built afterwards without blocking writers.
+     * Run once at startup, not on the sync path.
+     */
+    public static void install(String table, String idColumn) throws SQLException {
+        try (Connection conn = DatabaseConnection.connect()) {
+            if (!hasTrigger(conn, table + "_change_xid")) {
+                install(conn, table, idColumn);
+            }
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_tombstones_change_xid"
+                        + " ON tombstones (table_name, change_xid)");
+                stmt.execute("CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_" + table + "_change_xid"
+                        + " ON " + table + " (change_xid)");
+            }
+        }
+    }
+
+    private static void install(Connection conn, String table, String idColumn) throws SQLException {
+        conn.setAutoCommit(false);
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS tombstones ("
+                    + "table_name TEXT NOT NULL,"
+                    + "row_id INTEGER NOT NULL,"
+                    + "PRIMARY KEY (table_name, row_id)"
+                    + ")");
+            // Nullable and without a default, so adding them doesn't rewrite the table.
+            stmt.execute("ALTER TABLE tombstones ADD COLUMN IF NOT EXISTS change_xid xid8");
+            stmt.execute("ALTER TABLE " + table + " ADD COLUMN IF NOT EXISTS change_xid xid8");
+            stmt.execute(STAMP_FUNCTION);
+            stmt.execute(TOMBSTONE_FUNCTION);
+            stmt.execute("CREATE OR REPLACE TRIGGER " + table + "_change_xid BEFORE INSERT OR UPDATE ON " + table
+                    + " FOR EACH ROW EXECUTE FUNCTION library_stamp_row('" + idColumn + "')");
+            stmt.execute("CREATE OR REPLACE TRIGGER " + table + "_tombstone_xid AFTER DELETE ON " + table
+                    + " FOR EACH ROW EXECUTE FUNCTION library_record_tombstone('" + idColumn + "')");
+            conn.commit();
+            System.out.println(" Enabled change tracking on " + table + ".");
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Streams the rows of a table changed at or after the watermark since to
+     * rowHandler, then the ids deleted since then to deleteHandler. since 0
+     * means everything, including rows from before tracking was installed.
+     * Both queries read the same snapshot. Returns the watermark to pass
+     * next time. The column list must not include change_xid.
+     */
+    public static long pullChanges(String table, String columns, long since,
+                                   DatabaseConnection.RowHandler rowHandler, IntConsumer deleteHandler) throws SQLException {
+        long watermark;
+        try (Connection conn = DatabaseConnection.connect()) {
+            int isolation = conn.getTransactionIsolation();
+            conn.setAutoCommit(false);
+            conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            try {
+                // The first statement takes the snapshot the two queries below will read.
+                try (Statement stmt = conn.createStatement();
+                     ResultSet rs = stmt.executeQuery("SELECT pg_snapshot_xmin(pg_current_snapshot())::text")) {
+                    rs.next();
+                    watermark = Math.max(since, Long.parseLong(rs.getString(1)));
+                }
+
+                String rowsSql = "SELECT " + columns + " FROM " + table
+                        + (since == 0 ? "" : " WHERE change_xid >= ?::xid8");
+                try (PreparedStatement stmt = conn.prepareStatement(rowsSql)) {
+                    stmt.setFetchSize(DatabaseConnection.getFetchSize());
+                    if (since != 0) {
+                        stmt.setString(1, Long.toString(since));
+                    }
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            rowHandler.handle(rs);
+                        }
+                    }
+                }
+
+                String deletesSql = "SELECT row_id FROM tombstones WHERE table_name = ?"
+                        + (since == 0 ? "" : " AND change_xid >= ?::xid8");
+                try (PreparedStatement stmt = conn.prepareStatement(deletesSql)) {
+                    stmt.setFetchSize(DatabaseConnection.getFetchSize());
+                    stmt.setString(1, table);
+                    if (since != 0) {
+                        stmt.setString(2, Long.toString(since));
+                    }
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            deleteHandler.accept(rs.getInt(1));
+                        }
+                    }
+                }
+                conn.commit();
+            } finally {
+                conn.rollback();
+                conn.setTransactionIsolation(isolation);
+            }
+        }
+        return watermark;
+    }
+
+    private static boolean hasTrigger(Connection conn, String name) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT 1 FROM pg_trigger WHERE tgname = ? AND NOT tgisinternal")) {
+            stmt.setString(1, name);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package org.example.database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.example.utils.AppConfig;
+
+/**
+ * Bounded pool of physical JDBC connections. Callers get a wrapper whose
+ * close() hands the physical connection back to the pool instead of closing
+ * it, so the usual try-with-resources blocks in the DAOs keep working.
+ */
+public class ConnectionPool {
+    // SQLSTATE for "could not establish connection", so callers treat an exhausted pool as the database being down.
+    private static final String UNABLE_TO_CONNECT = "08001";
+
+    private final String url;
+    private final String username;
+    private final String password;
+    private final int minSize;
+    private final int maxSize;
+    private final long acquireTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final boolean validateOnBorrow;
+    private final int validationTimeoutSeconds;
+
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private final ReentrantLock idleLock = new ReentrantLock();
+    private final Semaphore permits;
+    private final ScheduledExecutorService evictor;
+
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong waitCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong evictedCount = new AtomicLong();
+    private final AtomicLong validationFailures = new AtomicLong();
+
+    public ConnectionPool() {
+        this.url = AppConfig.get("db.url", null);
+        this.username = AppConfig.get("db.username", null);
+        this.password = AppConfig.get("db.password", null);
+        this.maxSize = Math.max(1, AppConfig.getInt("db.pool.maxSize", 8));
+        this.minSize = Math.min(maxSize, Math.max(0, AppConfig.getInt("db.pool.minSize", 1)));
+        this.acquireTimeoutMillis = AppConfig.getLong("db.pool.acquireTimeoutMillis", 5000);
+        this.idleTimeoutMillis = AppConfig.getLong("db.pool.idleTimeoutMillis", 300_000);
+        this.validateOnBorrow = AppConfig.getBoolean("db.pool.validateOnBorrow", true);
+        this.validationTimeoutSeconds = AppConfig.getInt("db.pool.validationTimeoutSeconds", 2);
+        this.permits = new Semaphore(maxSize, true);
+
+        long evictionInterval = AppConfig.getLong("db.pool.evictionIntervalMillis", 30_000);
+        this.evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "db-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Warm up to minSize in the background so startup is not blocked on the network.
+        evictor.schedule(this::maintain, 0, TimeUnit.MILLISECONDS);
+        evictor.scheduleWithFixedDelay(this::maintain, evictionInterval, evictionInterval, TimeUnit.MILLISECONDS);
+    }
+
+    public Connection acquire() throws SQLException {
+        long start = System.nanoTime();
+        boolean acquired;
+        if (permits.tryAcquire()) {
+            acquired = true;
+        } else {
+            waitCount.incrementAndGet();
+            try {
+                acquired = permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLTransientConnectionException("Interrupted while waiting for a database connection",
+                        UNABLE_TO_CONNECT, e);
+            }
+        }
+        recordWait(System.nanoTime() - start);
+
+        if (!acquired) {
+            timeoutCount.incrementAndGet();
+            throw new SQLTransientConnectionException("Timed out after " + acquireTimeoutMillis
+                    + " ms waiting for a database connection", UNABLE_TO_CONNECT);
+        }
+
+        try {
+            PooledConnection pooled;
+            while ((pooled = pollIdle()) != null) {
+                if (!validateOnBorrow || isUsable(pooled.physical)) {
+                    break;
+                }
+                validationFailures.incrementAndGet();
+                discard(pooled);
+            }
+            if (pooled == null) {
+                pooled = new PooledConnection(createPhysical());
+            }
+            borrowCount.incrementAndGet();
+            return pooled.lease();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    public PoolStats getStats() {
+        int idleCount;
+        idleLock.lock();
+        try {
+            idleCount = idle.size();
+        } finally {
+            idleLock.unlock();
+        }
+        long borrows = borrowCount.get();
+        return new PoolStats(
+                openConnections.get(),
+                idleCount,
+                maxSize - permits.availablePermits(),
+                borrows,
+                waitCount.get(),
+                borrows == 0 ? 0 : totalWaitNanos.get() / borrows / 1000,
+                maxWaitNanos.get() / 1000,
+                timeoutCount.get(),
+                createdCount.get(),
+                evictedCount.get(),
+                validationFailures.get()
+        );
+    }
+
+    public void shutdown() {
+        evictor.shutdownNow();
+        idleLock.lock();
+        try {
+            while (!idle.isEmpty()) {
+                discard(idle.poll());
+            }
+        } finally {
+            idleLock.unlock();
+        }
+    }
+
+    private void release(PooledConnection pooled) {
+        try {
+            if (pooled.physical.isClosed()) {
+                discard(pooled);
+                return;
+            }
+            if (!pooled.physical.getAutoCommit()) {
+                pooled.physical.rollback();
+                pooled.physical.setAutoCommit(true);
+            }
+            pooled.lastUsed = System.currentTimeMillis();
+            idleLock.lock();
+            try {
+                idle.push(pooled);
+            } finally {
+                idleLock.unlock();
+            }
+        } catch (SQLException e) {
+            discard(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private PooledConnection pollIdle() {
+        idleLock.lock();
+        try {
+            return idle.poll();
+        } finally {
+            idleLock.unlock();
+        }
+    }
+
+    private boolean isUsable(Connection connection) {
+        try {
+            return connection.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private Connection createPhysical() throws SQLException {
+        Connection connection = DriverManager.getConnection(url, username, password);
+        openConnections.incrementAndGet();
+        createdCount.incrementAndGet();
+        System.out.println("Database connected successfully");
+        return connection;
+    }
+
+    private void discard(PooledConnection pooled) {
+        openConnections.decrementAndGet();
+        try {
+            pooled.physical.close();
+        } catch (SQLException e) {
+            // Connection is being thrown away anyway.
+        }
+    }
+
+    private void recordWait(long nanos) {
+        totalWaitNanos.addAndGet(nanos);
+        maxWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /** Evicts connections idle past the timeout, then tops the pool back up to minSize. */
+    private void maintain() {
+        long cutoff = System.currentTimeMillis() - idleTimeoutMillis;
+        idleLock.lock();
+        try {
+            Iterator<PooledConnection> iterator = idle.descendingIterator();
+            while (iterator.hasNext() && openConnections.get() > minSize) {
+                PooledConnection pooled = iterator.next();
+                if (pooled.lastUsed < cutoff) {
+                    iterator.remove();
+                    evictedCount.incrementAndGet();
+                    discard(pooled);
+                }
+            }
+        } finally {
+            idleLock.unlock();
+        }
+
+        while (openConnections.get() < minSize && permits.tryAcquire()) {
+            try {
+                PooledConnection pooled = new PooledConnection(createPhysical());
+                pooled.lastUsed = System.currentTimeMillis();
+                idleLock.lock();
+                try {
+                    idle.push(pooled);
+                } finally {
+                    idleLock.unlock();
+                }
+            } catch (SQLException e) {
+                System.out.println("Database connection error " + e.getMessage());
+                return;
+            } finally {
+                permits.release();
+            }
+        }
+    }
+
+    public record PoolStats(int open, int idle, int inUse, long borrows, long waits,
+                            long avgWaitMicros, long maxWaitMicros, long timeouts,
+                            long created, long evicted, long validationFailures) {
+    }
+
+    private class PooledConnection {
+        private final Connection physical;
+        private volatile long lastUsed;
+
+        private PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        private Connection lease() {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new Lease(this));
+        }
+    }
+
+    /** Proxy handler for one checkout; every call after close() fails like a closed connection would. */
+    private class Lease implements InvocationHandler {
+        private final PooledConnection pooled;
+        private boolean closed;
+
+        private Lease(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (!closed) {
+                        closed = true;
+                        release(pooled);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return closed || pooled.physical.isClosed();
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "Pooled" + pooled.physical;
+                }
+                default -> {
+                    if (closed) {
+                        throw new SQLException("Connection has already been returned to the pool");
+                    }
+                    try {
+                        return method.invoke(pooled.physical, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                }
+            }
+        }
+    }
+}
@@ -1,28 +1,85 @@
 package org.example.database;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 
+import org.example.utils.AppConfig;
+
 public class DatabaseConnection {
-    private static final String url = "jdbc:postgresql://ep-little-thunder-a2onwd5h-pooler.eu-central-1.aws.neon.tech/dreamdevs?ssl=truesslmode=disable";
-    private static final String username = "neondb_owner";
-    private static final String password = "npg_vG2HtT7dbizy";
+    private static final ConnectionPool pool = new ConnectionPool();
+    private static final int fetchSize = AppConfig.getInt("db.fetchSize", 1000);
 
-  public  static Connection getConnection(){
-        Connection con = null;
-        try{
-            con = DriverManager.getConnection(url,username,password);
-            System.out.println("Database connected successfully");
+    public interface RowHandler {
+        void handle(ResultSet rs) throws SQLException;
+    }
 
-        }
-        catch (SQLException e){
+    /**
+     * Borrows a connection from the shared pool. Closing it returns it to the
+     * pool. Returns null if no connection could be obtained.
+     */
+    public static Connection getConnection() {
+        Connection con = null;
+        try {
+            con = pool.acquire();
+        } catch (SQLException e) {
             System.out.println("Database connection error " + e.getMessage());
         }
         return con;
     }
 
+    /** Like getConnection(), but throws instead of returning null. */
+    public static Connection connect() throws SQLException {
+        return pool.acquire();
+    }
+
+    /**
+     * Runs a query through a server-side cursor and hands each row to the
+     * handler as it arrives. The PostgreSQL driver only streams with
+     * autocommit off and a fetch size set; otherwise it buffers the whole
+     * result set before returning the first row. Returns the row count.
+     */
+    public static int streamQuery(String sql, RowHandler handler, Object... params) throws SQLException {
+        try (Connection conn = connect(); PreparedStatement stmt = conn.prepareStatement(sql,
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            conn.setAutoCommit(false);
+            stmt.setFetchSize(fetchSize);
+            for (int i = 0; i < params.length; i++) {
+                stmt.setObject(i + 1, params[i]);
+            }
+
+            int rows = 0;
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    handler.handle(rs);
+                    rows++;
+                }
+            }
+            conn.commit();
+            return rows;
+        }
+    }
+
+    public static int getFetchSize() {
+        return fetchSize;
+    }
+
+    public static ConnectionPool.PoolStats getPoolStats() {
+        return pool.getStats();
+    }
+
+    public static void shutdown() {
+        pool.shutdown();
+    }
+
     public static void main(String[] args) {
-     getConnection();
+        try (Connection con = getConnection()) {
+            System.out.println("Connected to " + con.getMetaData().getDatabaseProductName()
+                    + " " + con.getMetaData().getDatabaseProductVersion());
+            System.out.println(getPoolStats());
+        } catch (SQLException e) {
+            System.out.println("Database connection error " + e.getMessage());
+        }
     }
 }
@@ -0,0 +1,38 @@
+package org.example.models;
+
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * One page of a keyset-paginated listing. The cursor is the id of the last
+ * item; passing it back as the "after" id fetches the next page. Listings
+ * start from Page.START.
+ */
+public class Page<T> {
+    public static final int START = Integer.MIN_VALUE;
+
+    private final List<T> items;
+    private final int nextCursor;
+    private final boolean hasNext;
+
+    public Page(List<T> items, int nextCursor, boolean hasNext) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.hasNext = hasNext;
+    }
+
+    /**
+     * Builds a page from up to size + 1 fetched items; the extra one, if it
+     * came back, only says that there is a next page.
+     */
+    public static <T> Page<T> of(List<T> fetched, int size, ToIntFunction<T> id) {
+        boolean more = fetched.size() > size;
+        List<T> items = more ? fetched.subList(0, size) : fetched;
+        int cursor = items.isEmpty() ? START : id.applyAsInt(items.get(items.size() - 1));
+        return new Page<>(items, cursor, more);
+    }
+
+    public List<T> getItems() { return items; }
+    public int getNextCursor() { return nextCursor; }
+    public boolean hasNext() { return hasNext; }
+}
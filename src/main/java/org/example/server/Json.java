@@ -0,0 +1,94 @@
+package org.example.server;
+
+import java.util.Date;
+import java.util.List;
+import java.util.function.Function;
+
+import org.example.models.Book;
+import org.example.models.Borrowing;
+import org.example.models.Member;
+import org.example.models.Page;
+
+/**
+ * Writes the JSON the server sends back. The shapes are few and flat, so
+ * they are built by hand rather than pulling in a JSON library.
+ */
+final class Json {
+    private Json() {
+    }
+
+    static String string(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder out = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        return out.append('"').toString();
+    }
+
+    /** ISO-8601 in UTC, or null. */
+    static String date(Date date) {
+        return date == null ? "null" : string(date.toInstant().toString());
+    }
+
+    static String book(Book book) {
+        return "{\"id\":" + book.getBookId()
+                + ",\"title\":" + string(book.getTitle())
+                + ",\"author\":" + string(book.getAuthor())
+                + ",\"genre\":" + string(book.getGenre())
+                + ",\"availableCopies\":" + book.getAvailableCopies() + "}";
+    }
+
+    static String member(Member member) {
+        return "{\"id\":" + member.getId()
+                + ",\"name\":" + string(member.getName())
+                + ",\"email\":" + string(member.getEmail())
+                + ",\"phone\":" + string(member.getPhone()) + "}";
+    }
+
+    static String borrowing(Borrowing borrowing) {
+        return "{\"id\":" + borrowing.getId()
+                + ",\"bookId\":" + borrowing.getBookId()
+                + ",\"memberId\":" + borrowing.getMemberId()
+                + ",\"borrowDate\":" + date(borrowing.getBorrowDate())
+                + ",\"returnDate\":" + date(borrowing.getReturnDate()) + "}";
+    }
+
+    static <T> String array(List<T> items, Function<T, String> writer) {
+        StringBuilder out = new StringBuilder("[");
+        for (int i = 0; i < items.size(); i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append(writer.apply(items.get(i)));
+        }
+        return out.append(']').toString();
+    }
+
+    /** A page with its cursor; nextCursor is only there when hasNext is true. */
+    static <T> String page(Page<T> page, Function<T, String> writer) {
+        return "{\"items\":" + array(page.getItems(), writer)
+                + ",\"hasNext\":" + page.hasNext()
+                + (page.hasNext() ? ",\"nextCursor\":" + page.getNextCursor() : "") + "}";
+    }
+
+    static String error(String message) {
+        return "{\"error\":" + string(message) + "}";
+    }
+}
@@ -0,0 +1,371 @@
+package org.example.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.example.context.LibraryContext;
+import org.example.models.Book;
+import org.example.models.Member;
+import org.example.models.Page;
+import org.example.services.BookService;
+import org.example.services.BorrowingService;
+import org.example.services.MemberService;
+
+/**
+ * Serves the book, member and borrowing operations over HTTP on the
+ * loopback interface, so every desk terminal and kiosk on the machine
+ * shares one process and its warm caches instead of each running its own
+ * console. Every request gets its own virtual thread; the DAOs underneath
+ * are safe for concurrent use.
+ *
+ * Parameters come from the query string or, for POST and PUT, a form
+ * encoded body (application/x-www-form-urlencoded). Answers are JSON.
+ *
+ *   GET    /books?after=&size=          page of books in id order
+ *   GET    /books/{id}
+ *   GET    /books/search?q=&limit=      ranked free-text search
+ *   GET    /books/suggest?q=&limit=     close matches for a misspelling
+ *   GET    /books/autocomplete?prefix=&limit=
+ *   POST   /books                       title, author, genre, copies
+ *   PUT    /books/{id}                  title, author, genre, copies
+ *   DELETE /books/{id}
+ *   GET    /members?after=&size=
+ *   GET    /members/{id}
+ *   GET    /members/{id}/books          books the member has out
+ *   POST   /members                     name, email, phone
+ *   PUT    /members/{id}                name, email, phone
+ *   DELETE /members/{id}
+ *   GET    /borrowings?after=&size=     page of borrowing details
+ *   GET    /borrowings/active?after=&size=
+ *   POST   /borrowings/borrow           bookId, memberId
+ *   POST   /borrowings/return           bookId, memberId
+ */
+public class LibraryServer {
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final BookService bookService;
+    private final MemberService memberService;
+    private final BorrowingService borrowingService;
+
+    /** A request that can't be served, with the status to answer it with. */
+    private static class HttpError extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        HttpError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    public LibraryServer(LibraryContext context, int port) throws IOException {
+        this.bookService = context.getBookService();
+        this.memberService = context.getMemberService();
+        this.borrowingService = context.getBorrowingService();
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/books", exchange -> handle(exchange, this::books));
+        server.createContext("/members", exchange -> handle(exchange, this::members));
+        server.createContext("/borrowings", exchange -> handle(exchange, this::borrowings));
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /** The port actually bound, which is a free one if 0 was asked for. */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /** Stops taking requests and gives those in progress up to a few seconds to finish. */
+    public void stop() {
+        server.stop(3);
+        executor.shutdown();
+    }
+
+    private interface Route {
+        /** Returns the status and JSON body as {status, body}. */
+        Object[] serve(String method, String[] path, Map<String, String> params);
+    }
+
+    private void handle(HttpExchange exchange, Route route) throws IOException {
+        int status;
+        String body;
+        try {
+            String method = exchange.getRequestMethod();
+            Map<String, String> params = new HashMap<>();
+            parseForm(exchange.getRequestURI().getRawQuery(), params);
+            if (method.equals("POST") || method.equals("PUT")) {
+                parseForm(readBody(exchange.getRequestBody()), params);
+            }
+            String[] path = exchange.getRequestURI().getPath().replaceAll("^/+|/+$", "").split("/+");
+            Object[] answer = route.serve(method, path, params);
+            status = (Integer) answer[0];
+            body = (String) answer[1];
+        } catch (HttpError e) {
+            status = e.status;
+            body = Json.error(e.getMessage());
+        } catch (RuntimeException e) {
+            System.out.println(" Error serving " + exchange.getRequestURI() + ": " + e);
+            status = 500;
+            body = Json.error("Internal error");
+        }
+
+        try (OutputStream out = exchange.getResponseBody()) {
+            if (status == 204) {
+                exchange.sendResponseHeaders(204, -1);
+                return;
+            }
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(status, bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private Object[] books(String method, String[] path, Map<String, String> params) {
+        if (path.length == 1) {
+            return switch (method) {
+                case "GET" -> ok(Json.page(bookService.getBooksPage(cursor(params), pageSize(params)), Json::book));
+                case "POST" -> {
+                    int id = bookService.addBook(required(params, "title"), required(params, "author"),
+                            required(params, "genre"), intParam(params, "copies"));
+                    if (id < 0) {
+                        throw new HttpError(409, "Book already exists");
+                    }
+                    yield answer(201, Json.book(bookService.getBookById(id)));
+                }
+                default -> throw methodNotAllowed(method);
+            };
+        }
+        if (path.length == 2 && method.equals("GET")) {
+            switch (path[1]) {
+                case "search" -> {
+                    return ok(Json.array(bookService.search(required(params, "q"), limit(params, 10)), Json::book));
+                }
+                case "suggest" -> {
+                    return ok(Json.array(bookService.suggestBooks(required(params, "q"), limit(params, 5)), Json::book));
+                }
+                case "autocomplete" -> {
+                    return ok(Json.array(bookService.autocomplete(required(params, "prefix"), limit(params, 10)), Json::string));
+                }
+                default -> {
+                }
+            }
+        }
+        if (path.length == 2) {
+            int bookId = pathId(path[1]);
+            Book book = bookService.getBookById(bookId);
+            if (book == null) {
+                throw new HttpError(404, "Book " + bookId + " not found");
+            }
+            return switch (method) {
+                case "GET" -> ok(Json.book(book));
+                case "PUT" -> {
+                    bookService.updateBook(bookId, required(params, "title"), required(params, "author"),
+                            required(params, "genre"), intParam(params, "copies"));
+                    yield ok(Json.book(book));
+                }
+                case "DELETE" -> {
+                    bookService.deleteBook(bookId);
+                    yield answer(204, "");
+                }
+                default -> throw methodNotAllowed(method);
+            };
+        }
+        throw notFound();
+    }
+
+    private Object[] members(String method, String[] path, Map<String, String> params) {
+        if (path.length == 1) {
+            return switch (method) {
+                case "GET" -> ok(Json.page(memberService.getMembersPage(cursor(params), pageSize(params)), Json::member));
+                case "POST" -> {
+                    int id = memberService.addMember(required(params, "name"), required(params, "email"),
+                            required(params, "phone"));
+                    if (id < 0) {
+                        throw new HttpError(409, "Member could not be added");
+                    }
+                    yield answer(201, Json.member(memberService.getMemberById(id)));
+                }
+                default -> throw methodNotAllowed(method);
+            };
+        }
+        if (path.length > 3) {
+            throw notFound();
+        }
+        int memberId = pathId(path[1]);
+        Member member = memberService.getMemberById(memberId);
+        if (member == null) {
+            throw new HttpError(404, "Member " + memberId + " not found");
+        }
+        if (path.length == 3) {
+            if (!path[2].equals("books")) {
+                throw notFound();
+            }
+            if (!method.equals("GET")) {
+                throw methodNotAllowed(method);
+            }
+            return ok(Json.array(borrowingService.getBorrowedBookDetailsByMember(memberId), Json::book));
+        }
+        return switch (method) {
+            case "GET" -> ok(Json.member(member));
+            case "PUT" -> {
+                memberService.updateMember(memberId, required(params, "name"), required(params, "email"),
+                        required(params, "phone"));
+                yield ok(Json.member(memberService.getMemberById(memberId)));
+            }
+            case "DELETE" -> {
+                memberService.deleteMember(memberId);
+                yield answer(204, "");
+            }
+            default -> throw methodNotAllowed(method);
+        };
+    }
+
+    private Object[] borrowings(String method, String[] path, Map<String, String> params) {
+        if (path.length == 1) {
+            if (!method.equals("GET")) {
+                throw methodNotAllowed(method);
+            }
+            return ok(Json.page(borrowingService.getBorrowingDetailsPage(cursor(params), pageSize(params)), Json::string));
+        }
+        if (path.length != 2) {
+            throw notFound();
+        }
+        switch (path[1]) {
+            case "active" -> {
+                if (!method.equals("GET")) {
+                    throw methodNotAllowed(method);
+                }
+                return ok(Json.page(borrowingService.getActiveBorrowingsPage(cursor(params), pageSize(params)), Json::borrowing));
+            }
+            case "borrow", "return" -> {
+                if (!method.equals("POST")) {
+                    throw methodNotAllowed(method);
+                }
+                int bookId = intParam(params, "bookId");
+                int memberId = intParam(params, "memberId");
+                boolean done = path[1].equals("borrow")
+                        ? borrowingService.borrowBook(bookId, memberId)
+                        : borrowingService.returnBook(bookId, memberId);
+                // The reason a borrow or return was refused goes to the server console.
+                return answer(done ? 200 : 409, "{\"ok\":" + done + "}");
+            }
+            default -> throw notFound();
+        }
+    }
+
+    private static Object[] ok(String body) {
+        return answer(200, body);
+    }
+
+    private static Object[] answer(int status, String body) {
+        return new Object[]{status, body};
+    }
+
+    private static HttpError notFound() {
+        return new HttpError(404, "No such resource");
+    }
+
+    private static HttpError methodNotAllowed(String method) {
+        return new HttpError(405, method + " is not allowed here");
+    }
+
+    private static String required(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null || value.isBlank()) {
+            throw new HttpError(400, "Missing parameter: " + name);
+        }
+        return value.trim();
+    }
+
+    private static int intParam(Map<String, String> params, String name) {
+        String value = required(params, name);
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new HttpError(400, "Not a number: " + name + "=" + value);
+        }
+    }
+
+    private static int pathId(String segment) {
+        try {
+            return Integer.parseInt(segment);
+        } catch (NumberFormatException e) {
+            throw notFound();
+        }
+    }
+
+    private static int cursor(Map<String, String> params) {
+        return params.containsKey("after") ? intParam(params, "after") : Page.START;
+    }
+
+    private static int pageSize(Map<String, String> params) {
+        return params.containsKey("size") ? clamp(intParam(params, "size"), MAX_PAGE_SIZE) : DEFAULT_PAGE_SIZE;
+    }
+
+    private static int limit(Map<String, String> params, int defaultLimit) {
+        return params.containsKey("limit") ? clamp(intParam(params, "limit"), MAX_PAGE_SIZE) : defaultLimit;
+    }
+
+    private static int clamp(int value, int max) {
+        return Math.max(1, Math.min(value, max));
+    }
+
+    private static void parseForm(String encoded, Map<String, String> params) {
+        if (encoded == null || encoded.isEmpty()) {
+            return;
+        }
+        for (String pair : encoded.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            int eq = pair.indexOf('=');
+            String name = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            try {
+                params.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+            } catch (IllegalArgumentException e) {
+                throw new HttpError(400, "Badly encoded parameter: " + pair);
+            }
+        }
+    }
+
+    private static String readBody(InputStream in) {
+        try (in) {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                if (body.size() + read > MAX_BODY_BYTES) {
+                    throw new HttpError(413, "Request body too large");
+                }
+                body.write(buffer, 0, read);
+            }
+            return body.toString(StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new HttpError(400, "Could not read request body: " + e.getMessage());
+        }
+    }
+}
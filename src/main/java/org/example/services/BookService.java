@@ -2,7 +2,12 @@ package org.example.services;
 
 import org.example.dao.BookDAO;
 import org.example.models.Book;
+import org.example.models.Page;
+import org.example.utils.CSVImporter;
+import org.example.utils.Logger;
 
+import java.io.IOException;
+import java.util.Collection;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Random;
@@ -14,11 +19,27 @@ public class BookService {
         this.bookDAO = bookDAO;
     }
 
-    public void addBook(String title, String author, String genre, int availableCopies) {
+    /** Returns the new book's id, or -1 if it was not added. */
+    public int addBook(String title, String author, String genre, int availableCopies) {
         Random random = new Random();
         int bookId = 1000 + random.nextInt(9000);
         Book book = new Book(bookId, title, author, genre, availableCopies);
-        bookDAO.addBook(book);
+        return bookDAO.addBook(book) ? bookId : -1;
+    }
+
+    public int importBooks(Collection<Book> books) {
+        int imported = bookDAO.addBooks(books);
+        Logger.log("Imported " + imported + " of " + books.size() + " books");
+        return imported;
+    }
+
+    public int importBooksFromCSV(String fileName) {
+        try {
+            return importBooks(CSVImporter.readBooksFromCSV(fileName));
+        } catch (IOException e) {
+            System.out.println(" Error reading " + fileName + ": " + e.getMessage());
+            return 0;
+        }
     }
 
     public void updateBook(int bookId, String newTitle, String newAuthor, String newGenre, int newAvailableCopies) {
@@ -30,15 +51,39 @@ public class BookService {
         return bookDAO.getAllBooks();
     }
 
+    /** Books in id order, size at a time; start with Page.START and pass back getNextCursor(). */
+    public Page<Book> getBooksPage(int cursor, int size) {
+        return bookDAO.getBooksPage(cursor, size);
+    }
+
+    public Book getBookById(int bookId) {
+        try {
+            return bookDAO.getBookById(bookId);
+        } catch (NoSuchElementException e) {
+            return null;
+        }
+    }
+
     public Book searchBookByTitle(String title) {
         try {
             return bookDAO.searchBookByTitle(title);
         } catch (NoSuchElementException e) {
             System.out.println(" " + e.getMessage());
+            printSuggestions(title);
             return null;
         }
     }
 
+    /** All editions with this title, ignoring case and spacing. */
+    public List<Book> findBooksByTitle(String title) {
+        List<Book> editions = bookDAO.findBooksByTitle(title);
+        if (editions.isEmpty()) {
+            System.out.println(" Book not found: " + title);
+            printSuggestions(title);
+        }
+        return editions;
+    }
+
     public List<Book> sortBooksByTitle() {
         return bookDAO.sortBooksByTitle();
     }
@@ -46,14 +91,62 @@ public class BookService {
     public List<Book> sortBooksByGenre() {
         return bookDAO.sortBooksByGenre();
     }
+
+    public List<Book> getBooksByTitleFrom(String fromTitle, int limit) {
+        return bookDAO.getBooksByTitleFrom(fromTitle, limit);
+    }
+
+    public List<Book> getBooksByGenreFrom(String fromGenre, int limit) {
+        return bookDAO.getBooksByGenreFrom(fromGenre, limit);
+    }
     
     public List<Book> searchBooksByAuthor(String author) {
-        return bookDAO.searchBooksByAuthor(author);
+        List<Book> books = bookDAO.searchBooksByAuthor(author);
+        if (books.isEmpty()) {
+            printSuggestions(author);
+        }
+        return books;
+    }
+
+    /** Titles and authors starting with prefix, most available first. */
+    public List<String> autocomplete(String prefix, int limit) {
+        return bookDAO.autocomplete(prefix, limit);
+    }
+
+    /** Books whose title or author is a close misspelling of text, closest first. */
+    public List<Book> suggestBooks(String text, int limit) {
+        return bookDAO.suggestBooks(text, limit);
+    }
+
+    private void printSuggestions(String text) {
+        List<Book> suggestions = bookDAO.suggestBooks(text, 5);
+        if (!suggestions.isEmpty()) {
+            System.out.println(" Did you mean:");
+            suggestions.forEach(book -> System.out.println("  - " + book.getTitle() + " by " + book.getAuthor()
+                    + " (ID: " + book.getBookId() + ")"));
+        }
     }
     
     public List<Book> searchBooksByGenre(String genre) {
         return bookDAO.searchBooksByGenre(genre);
     }
+
+    /**
+     * Ranked free-text search across title, author and genre. Words are
+     * ranked with BM25; "quoted phrases" must match and word* matches any
+     * word starting with it. Returns at most limit books, best first.
+     */
+    public List<Book> search(String query, int limit) {
+        List<Book> results = bookDAO.search(query, limit);
+        if (results.isEmpty()) {
+            System.out.println(" No books match: " + query);
+        }
+        return results;
+    }
+
+    public List<Book> searchBooksByTitleContaining(String fragment) {
+        return bookDAO.searchBooksByTitleContaining(fragment);
+    }
     
     public void deleteBook(int bookId) {
         bookDAO.deleteBook(bookId);
@@ -5,14 +5,12 @@ import java.util.List;
 import java.util.stream.Collectors;
 
 import org.example.dao.BookDAO;
-import org.example.dao.BookDAOImpl;
 import org.example.dao.BorrowingDAO;
-import org.example.dao.BorrowingDAOImpl;
 import org.example.dao.MemberDAO;
-import org.example.dao.MemberDAOImpl;
 import org.example.models.Book;
 import org.example.models.Borrowing;
 import org.example.models.Member;
+import org.example.models.Page;
 import org.example.utils.Logger;
 
 public class BorrowingService {
@@ -20,20 +18,15 @@ public class BorrowingService {
     private final BookDAO bookDAO;
     private final MemberDAO memberDAO;
 
-    public BorrowingService() {
-        this.borrowingDAO = new BorrowingDAOImpl();
-        this.bookDAO = new BookDAOImpl();
-        this.memberDAO = new MemberDAOImpl();
+    public BorrowingService(BorrowingDAO borrowingDAO, BookDAO bookDAO, MemberDAO memberDAO) {
+        this.borrowingDAO = borrowingDAO;
+        this.bookDAO = bookDAO;
+        this.memberDAO = memberDAO;
     }
 
     public int findMemberByEmail(String email) {
-        List<Member> allMembers = memberDAO.getAllMembers();
-        for (Member member : allMembers) {
-            if (member.getEmail().equalsIgnoreCase(email)) {
-                return member.getId();
-            }
-        }
-        return -1;
+        Member member = memberDAO.findByEmail(email);
+        return member == null ? -1 : member.getId();
     }
 
     public boolean borrowBook(int bookId, int memberId) {
@@ -45,25 +38,22 @@ public class BorrowingService {
                 return false;
             }
 
-            Book book = ((BookDAOImpl) bookDAO).getBookById(bookId);
+            Book book = bookDAO.getBookById(bookId);
             if (book == null) {
                 System.out.println(" Book not found.");
                 return false;
             }
 
-            if (book.getAvailableCopies() <= 0) {
-                System.out.println(" No copies available for borrowing.");
-                return false;
-            }
-
-
             if (isBookBorrowedByMember(bookId, memberId)) {
                 System.out.println(" You have already borrowed this book.");
                 return false;
             }
 
 
-            borrowingDAO.borrowBook(bookId, memberId);
+            // Copy availability is decided by the database, not the cached count.
+            if (!borrowingDAO.borrowBook(bookId, memberId)) {
+                return false;
+            }
             Logger.log("Book '" + book.getTitle() + "' borrowed by " + member.getName());
             return true;
         } catch (Exception e) {
@@ -82,7 +72,7 @@ public class BorrowingService {
             }
 
 
-            Book book = ((BookDAOImpl) bookDAO).getBookById(bookId);
+            Book book = bookDAO.getBookById(bookId);
             if (book == null) {
                 System.out.println(" Book not found.");
                 return false;
@@ -95,7 +85,9 @@ public class BorrowingService {
             }
 
 
-            borrowingDAO.returnBook(bookId, memberId);
+            if (!borrowingDAO.returnBook(bookId, memberId)) {
+                return false;
+            }
             Logger.log("Book '" + book.getTitle() + "' returned by " + member.getName());
             return true;
         } catch (Exception e) {
@@ -110,22 +102,23 @@ public class BorrowingService {
                 .collect(Collectors.toList());
     }
 
+    /** One page of the loans still out, in id order; see getBorrowingDetailsPage for the cursor. */
+    public Page<Borrowing> getActiveBorrowingsPage(int cursor, int size) {
+        return borrowingDAO.getActiveBorrowingsPage(cursor, size);
+    }
+
     public List<Borrowing> getAllBorrowings() {
         return borrowingDAO.getAllBorrowings();
     }
 
     public List<Integer> getBorrowedBooksByMember(int memberId) {
-        return borrowingDAO.getAllBorrowings().stream()
-                .filter(b -> b.getMemberId() == memberId && b.getReturnDate() == null)
+        return borrowingDAO.getActiveBorrowingsByMember(memberId).stream()
                 .map(Borrowing::getBookId)
                 .collect(Collectors.toList());
     }
 
     public boolean isBookBorrowedByMember(int bookId, int memberId) {
-        return borrowingDAO.getAllBorrowings().stream()
-                .anyMatch(b -> b.getBookId() == bookId && 
-                               b.getMemberId() == memberId && 
-                               b.getReturnDate() == null);
+        return borrowingDAO.isBookBorrowedByMember(bookId, memberId);
     }
 
     public List<Book> getBorrowedBookDetailsByMember(int memberId) {
@@ -134,7 +127,7 @@ public class BorrowingService {
         
         for (int bookId : borrowedBookIds) {
             try {
-                Book book = ((BookDAOImpl) bookDAO).getBookById(bookId);
+                Book book = bookDAO.getBookById(bookId);
                 result.add(book);
             } catch (Exception e) {
 
@@ -149,30 +142,52 @@ public class BorrowingService {
         List<Borrowing> borrowings = getAllBorrowings();
         
         for (Borrowing borrowing : borrowings) {
-            try {
-                Book book = ((BookDAOImpl) bookDAO).getBookById(borrowing.getBookId());
-                Member member = memberDAO.getMemberById(borrowing.getMemberId());
-                
-                String status = borrowing.getReturnDate() == null ? "Active" : "Returned";
-                String returnDate = borrowing.getReturnDate() == null ? "Not returned" : 
-                                   borrowing.getReturnDate().toString();
-                
-                String detail = String.format(
-                    "Borrowing ID: %d | Book: %s | Member: %s | Status: %s | Borrowed: %s | Return: %s",
-                    borrowing.getId(),
-                    book != null ? book.getTitle() : "Unknown Book",
-                    member != null ? member.getName() : "Unknown Member",
-                    status,
-                    borrowing.getBorrowDate(),
-                    returnDate
-                );
-                
+            String detail = formatBorrowing(borrowing);
+            if (detail != null) {
                 details.add(detail);
-            } catch (Exception e) {
-
             }
         }
         
         return details;
     }
+
+    /**
+     * Borrowing details for one page of records in id order; only the books
+     * and members on that page are looked up. Start with Page.START and pass
+     * back getNextCursor().
+     */
+    public Page<String> getBorrowingDetailsPage(int cursor, int size) {
+        Page<Borrowing> page = borrowingDAO.getBorrowingsPage(cursor, size);
+        List<String> details = new ArrayList<>(page.getItems().size());
+        for (Borrowing borrowing : page.getItems()) {
+            String detail = formatBorrowing(borrowing);
+            if (detail != null) {
+                details.add(detail);
+            }
+        }
+        return new Page<>(details, page.getNextCursor(), page.hasNext());
+    }
+
+    private String formatBorrowing(Borrowing borrowing) {
+        try {
+            Book book = bookDAO.getBookById(borrowing.getBookId());
+            Member member = memberDAO.getMemberById(borrowing.getMemberId());
+            
+            String status = borrowing.getReturnDate() == null ? "Active" : "Returned";
+            String returnDate = borrowing.getReturnDate() == null ? "Not returned" : 
+                               borrowing.getReturnDate().toString();
+            
+            return String.format(
+                "Borrowing ID: %d | Book: %s | Member: %s | Status: %s | Borrowed: %s | Return: %s",
+                borrowing.getId(),
+                book != null ? book.getTitle() : "Unknown Book",
+                member != null ? member.getName() : "Unknown Member",
+                status,
+                borrowing.getBorrowDate(),
+                returnDate
+            );
+        } catch (Exception e) {
+            return null;
+        }
+    }
 }
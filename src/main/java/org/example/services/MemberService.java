@@ -2,6 +2,7 @@ package org.example.services;
 
 import org.example.dao.MemberDAO;
 import org.example.models.Member;
+import org.example.models.Page;
 import org.example.utils.Logger;
 
 import java.util.List;
@@ -14,16 +15,20 @@ public class MemberService {
         this.memberDAO = memberDAO;
     }
 
-    public void addMember(String name, String email, String phone) {
+    /** Returns the new member's id, or -1 if they were not added. */
+    public int addMember(String name, String email, String phone) {
 
         Random random = new Random();
         int memberId = 1000 + random.nextInt(9000);
         
         Member member = new Member(memberId, name, email, phone);
-        memberDAO.addMember(member);
+        if (!memberDAO.addMember(member)) {
+            return -1;
+        }
         
         Logger.log("Added new member: " + name + " (ID: " + memberId + ")");
         System.out.println(" Member added successfully with ID: " + memberId);
+        return memberId;
     }
 
     public void updateMember(int memberId, String name, String email, String phone) {
@@ -68,4 +73,13 @@ public class MemberService {
         }
         return members;
     }
+
+    /** Members in id order, size at a time; start with Page.START and pass back getNextCursor(). */
+    public Page<Member> getMembersPage(int cursor, int size) {
+        Page<Member> page = memberDAO.getMembersPage(cursor, size);
+        if (page.getItems().isEmpty() && cursor == Page.START) {
+            System.out.println(" No members found in the system.");
+        }
+        return page;
+    }
 }
@@ -0,0 +1,23 @@
+package org.example.storage;
+
+import java.util.Locale;
+
+/**
+ * When appended records are forced to disk.
+ * ALWAYS forces on every commit, GROUP lets concurrent commits share one
+ * force after a short window, NONE leaves flushing to the operating system.
+ */
+public enum FsyncPolicy {
+    ALWAYS,
+    GROUP,
+    NONE;
+
+    public static FsyncPolicy parse(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException | NullPointerException e) {
+            System.out.println(" Unknown fsync policy '" + value + "', using GROUP.");
+            return GROUP;
+        }
+    }
+}
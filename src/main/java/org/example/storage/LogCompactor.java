@@ -0,0 +1,70 @@
+package org.example.storage;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.example.utils.AppConfig;
+
+/**
+ * Background thread that compacts record stores whose log has grown past
+ * storage.compact.thresholdBytes, checking every storage.compact.intervalMillis.
+ */
+public class LogCompactor {
+    private static final List<RecordStore> stores = new CopyOnWriteArrayList<>();
+    private static final long thresholdBytes = AppConfig.getLong("storage.compact.thresholdBytes", 1_048_576);
+    private static final ReentrantLock lock = new ReentrantLock();
+    private static ScheduledExecutorService scheduler;
+
+    static void register(RecordStore store) {
+        lock.lock();
+        try {
+            stores.add(store);
+            if (scheduler == null) {
+                long interval = AppConfig.getLong("storage.compact.intervalMillis", 60_000);
+                scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "log-compactor");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                scheduler.scheduleWithFixedDelay(LogCompactor::compactDueStores, interval, interval, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public static void shutdown() {
+        lock.lock();
+        try {
+            if (scheduler != null) {
+                scheduler.shutdown();
+                try {
+                    scheduler.awaitTermination(30, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                scheduler = null;
+            }
+            stores.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void compactDueStores() {
+        for (RecordStore store : stores) {
+            try {
+                if (store.logSize() > thresholdBytes) {
+                    store.compact();
+                }
+            } catch (IOException | RuntimeException e) {
+                System.out.println(" Error compacting " + store.getName() + " store: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,4 @@
+package org.example.storage;
+
+public record LogRecord(RecordType type, String payload) {
+}
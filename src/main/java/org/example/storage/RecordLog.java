@@ -0,0 +1,288 @@
+package org.example.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only file of insert/update/delete records.
+ *
+ * File layout: an 8 byte magic header followed by records of the form
+ * [int payload length][int CRC32 of type + payload][byte type][payload UTF-8].
+ * A record that is cut short or fails its checksum marks the end of the log;
+ * replay truncates it away so the next append starts on a clean boundary.
+ */
+public final class RecordLog implements AutoCloseable {
+    private static final byte[] MAGIC = "LIBWAL01".getBytes(StandardCharsets.US_ASCII);
+    private static final int HEADER_SIZE = 9;
+
+    private final Path path;
+    private final FsyncPolicy fsyncPolicy;
+    private final long groupCommitMillis;
+    private FileChannel channel;
+
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private volatile long appendedSeq = 0;
+    private volatile long durableSeq = 0;
+
+    public RecordLog(Path path, FsyncPolicy fsyncPolicy, long groupCommitMillis) throws IOException {
+        this.path = path;
+        this.fsyncPolicy = fsyncPolicy;
+        this.groupCommitMillis = groupCommitMillis;
+
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        if (!Files.exists(path) || Files.size(path) < MAGIC.length) {
+            writeFile(path, List.of());
+        } else {
+            try (FileChannel reader = FileChannel.open(path, StandardOpenOption.READ)) {
+                ByteBuffer magic = ByteBuffer.allocate(MAGIC.length);
+                reader.read(magic, 0);
+                if (!Arrays.equals(magic.array(), MAGIC)) {
+                    throw new IOException(path + " is not a record log");
+                }
+            }
+        }
+        this.channel = openForAppend(path);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long size() throws IOException {
+        return channel.size();
+    }
+
+    /** Appends one record and commits it according to the fsync policy. */
+    public void append(RecordType type, String payload) throws IOException {
+        commit(write(List.of(new LogRecord(type, payload))));
+    }
+
+    /** Appends all records with a single write and a single commit. */
+    public void appendAll(List<LogRecord> records) throws IOException {
+        if (!records.isEmpty()) {
+            commit(write(records));
+        }
+    }
+
+    /**
+     * Feeds every intact record to the handler in append order. A torn or
+     * corrupt tail is cut off.
+     */
+    public void replay(Consumer<LogRecord> handler) throws IOException {
+        appendLock.lock();
+        try {
+            long end = channel.size();
+            long position = read(path, MAGIC.length, end, handler);
+            if (position < end) {
+                System.out.println(" Discarding " + (end - position) + " bytes of incomplete records in " + path);
+                channel.truncate(position);
+                channel.force(true);
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /** Forces everything appended so far and returns the end offset it covers. */
+    public long checkpoint() throws IOException {
+        appendLock.lock();
+        try {
+            channel.force(false);
+            return channel.size();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Drops the records before offset (a value returned by checkpoint()) by
+     * copying the remaining tail into a fresh file and swapping it in.
+     * Appends wait only for the copy of that tail.
+     */
+    public void truncateBefore(long offset) throws IOException {
+        appendLock.lock();
+        try {
+            Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+            long end = channel.size();
+            try (FileChannel reader = FileChannel.open(path, StandardOpenOption.READ);
+                 FileChannel writer = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                         StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                writer.write(ByteBuffer.wrap(MAGIC));
+                long copied = 0;
+                while (offset + copied < end) {
+                    copied += reader.transferTo(offset + copied, end - offset - copied, writer);
+                }
+                writer.force(true);
+            }
+            channel.close();
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            channel = openForAppend(path);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        appendLock.lock();
+        try {
+            if (channel.isOpen()) {
+                if (fsyncPolicy != FsyncPolicy.NONE) {
+                    channel.force(false);
+                }
+                channel.close();
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /** Writes a complete, forced log file in one go (used for snapshots). */
+    public static void writeFile(Path target, List<LogRecord> records) throws IOException {
+        ByteBuffer body = encode(records);
+        try (FileChannel writer = FileChannel.open(target, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writer.write(ByteBuffer.wrap(MAGIC));
+            while (body.hasRemaining()) {
+                writer.write(body);
+            }
+            writer.force(true);
+        }
+    }
+
+    /** Reads a log file written by this class without opening it for appends. */
+    public static void readFile(Path source, Consumer<LogRecord> handler) throws IOException {
+        read(source, MAGIC.length, Files.size(source), handler);
+    }
+
+    private static long read(Path source, long position, long end, Consumer<LogRecord> handler) throws IOException {
+        try (FileChannel reader = FileChannel.open(source, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            CRC32 crc = new CRC32();
+
+            while (position + HEADER_SIZE <= end) {
+                header.clear();
+                readFully(reader, header, position);
+                header.flip();
+                int length = header.getInt();
+                int checksum = header.getInt();
+                byte code = header.get();
+                RecordType type = RecordType.fromCode(code);
+                if (length < 0 || type == null || position + HEADER_SIZE + length > end) {
+                    break;
+                }
+
+                ByteBuffer body = ByteBuffer.allocate(length);
+                readFully(reader, body, position + HEADER_SIZE);
+                crc.reset();
+                crc.update(code);
+                crc.update(body.array());
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+
+                handler.accept(new LogRecord(type, new String(body.array(), StandardCharsets.UTF_8)));
+                position += HEADER_SIZE + length;
+            }
+        }
+        return position;
+    }
+
+    private long write(List<LogRecord> records) throws IOException {
+        ByteBuffer buffer = encode(records);
+        appendLock.lock();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            appendedSeq += records.size();
+            return appendedSeq;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Group commit: whoever gets the sync lock forces everything appended so
+     * far, so writers queued behind it usually find their record already
+     * durable and return without forcing again.
+     */
+    private void commit(long seq) throws IOException {
+        if (fsyncPolicy == FsyncPolicy.NONE || durableSeq >= seq) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            if (durableSeq >= seq) {
+                return;
+            }
+            if (fsyncPolicy == FsyncPolicy.GROUP && groupCommitMillis > 0) {
+                try {
+                    Thread.sleep(groupCommitMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            long target = appendedSeq;
+            appendLock.lock();
+            try {
+                channel.force(false);
+            } finally {
+                appendLock.unlock();
+            }
+            durableSeq = target;
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private static ByteBuffer encode(List<LogRecord> records) {
+        List<byte[]> payloads = new ArrayList<>(records.size());
+        int total = 0;
+        for (LogRecord record : records) {
+            byte[] payload = record.payload().getBytes(StandardCharsets.UTF_8);
+            payloads.add(payload);
+            total += HEADER_SIZE + payload.length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(total);
+        CRC32 crc = new CRC32();
+        for (int i = 0; i < records.size(); i++) {
+            byte code = records.get(i).type().getCode();
+            byte[] payload = payloads.get(i);
+            crc.reset();
+            crc.update(code);
+            crc.update(payload);
+            buffer.putInt(payload.length).putInt((int) crc.getValue()).put(code).put(payload);
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static FileChannel openForAppend(Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private static void readFully(FileChannel reader, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (reader.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+    }
+}
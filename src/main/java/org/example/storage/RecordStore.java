@@ -0,0 +1,269 @@
+package org.example.storage;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import org.example.utils.AppConfig;
+
+/**
+ * File store for one entity type: a point-in-time snapshot (name.snap) plus
+ * the record log written since (name.wal). Records are keyed upserts and
+ * deletes, so replaying log records that the snapshot already reflects is
+ * harmless; that is what lets compaction run while the DAO keeps writing.
+ *
+ * The store also keeps a sync watermark per storage backend
+ * (name.backend.sync): the highest change sequence from that backend whose
+ * rows have been written to this store.
+ *
+ * One store is shared by every DAO instance in the process that opens the
+ * same name, so appends never interleave on separate file handles.
+ */
+public class RecordStore implements AutoCloseable {
+    private static final Map<String, RecordStore> openStores = new HashMap<>();
+    // Locks rather than monitors throughout: opening a store and writing a
+    // watermark wait on the disk, and a virtual thread must not pin its
+    // carrier while they do.
+    private static final ReentrantLock openLock = new ReentrantLock();
+
+    private final String name;
+    private final RecordLog log;
+    private final Path snapshotPath;
+    private final Path dir;
+    private final boolean fresh;
+    private final Map<String, Long> watermarks = new HashMap<>();
+    private final ReentrantLock compactLock = new ReentrantLock();
+    // Guards the watermarks and the snapshot source.
+    private final ReentrantLock stateLock = new ReentrantLock();
+    private Consumer<SnapshotFile.Writer> snapshotSource;
+    private int numericColumns;
+    private int stringColumns;
+    private boolean compactionDisabled = false;
+
+    public static RecordStore open(String name, String legacyFileName) throws IOException {
+        openLock.lock();
+        try {
+            RecordStore store = openStores.get(name);
+            if (store == null) {
+                store = new RecordStore(name, legacyFileName);
+                openStores.put(name, store);
+                LogCompactor.register(store);
+            }
+            return store;
+        } finally {
+            openLock.unlock();
+        }
+    }
+
+    public static void closeAll() {
+        openLock.lock();
+        try {
+            for (RecordStore store : openStores.values()) {
+                try {
+                    store.close();
+                } catch (IOException e) {
+                    System.out.println(" Error closing " + store.name + " store: " + e.getMessage());
+                }
+            }
+            openStores.clear();
+        } finally {
+            openLock.unlock();
+        }
+    }
+
+    private RecordStore(String name, String legacyFileName) throws IOException {
+        this.name = name;
+        this.dir = Paths.get(AppConfig.get("storage.dir", "."));
+        Path logPath = dir.resolve(name + ".wal");
+        this.snapshotPath = dir.resolve(name + ".snap");
+        this.fresh = !Files.exists(logPath) && !Files.exists(snapshotPath);
+
+        this.log = new RecordLog(logPath,
+                FsyncPolicy.parse(AppConfig.get("storage.fsync", "GROUP")),
+                AppConfig.getLong("storage.groupCommitMillis", 2));
+
+        if (fresh && legacyFileName != null) {
+            importLegacyFile(dir.resolve(legacyFileName));
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void append(RecordType type, String payload) throws IOException {
+        log.append(type, payload);
+    }
+
+    public void appendAll(List<LogRecord> records) throws IOException {
+        log.appendAll(records);
+    }
+
+    /**
+     * Hands the mapped snapshot to snapshotLoader, then replays every log
+     * record written after it through handler.
+     */
+    public void replay(Consumer<SnapshotFile> snapshotLoader, Consumer<LogRecord> handler) throws IOException {
+        compactLock.lock();
+        try {
+            if (Files.exists(snapshotPath)) {
+                if (SnapshotFile.isSnapshot(snapshotPath)) {
+                    snapshotLoader.accept(SnapshotFile.open(snapshotPath));
+                } else {
+                    // Snapshot written before the binary format: insert records in log layout.
+                    RecordLog.readFile(snapshotPath, handler);
+                }
+            }
+            log.replay(handler);
+        } finally {
+            compactLock.unlock();
+        }
+    }
+
+    /**
+     * Registers the callback that adds the current state to a snapshot with
+     * the given number of numeric and string columns. Only one owner may
+     * snapshot a store; if a second one registers, their in-memory views may
+     * differ, so compaction is turned off for this store rather than risk
+     * dropping the other owner's writes.
+     */
+    public void setSnapshotSource(int numericColumns, int stringColumns, Consumer<SnapshotFile.Writer> source) {
+        stateLock.lock();
+        try {
+            if (snapshotSource != null && snapshotSource != source) {
+                compactionDisabled = true;
+                return;
+            }
+            this.numericColumns = numericColumns;
+            this.stringColumns = stringColumns;
+            this.snapshotSource = source;
+        } finally {
+            stateLock.unlock();
+        }
+    }
+
+    /**
+     * Returns how far this store has been synced from the given backend, or
+     * 0 if never. A watermark left over from before the store's files were
+     * removed is ignored, so the next sync starts from scratch.
+     */
+    public long getWatermark(String backend) throws IOException {
+        stateLock.lock();
+        try {
+            Long watermark = watermarks.get(backend);
+            if (watermark == null) {
+                watermark = 0L;
+                Path path = watermarkPath(backend);
+                if (!fresh && Files.exists(path)) {
+                    try {
+                        watermark = Long.parseLong(Files.readString(path, StandardCharsets.US_ASCII).trim());
+                    } catch (NumberFormatException e) {
+                        System.out.println(" Ignoring invalid sync watermark in " + path);
+                    }
+                }
+                watermarks.put(backend, watermark);
+            }
+            return watermark;
+        } finally {
+            stateLock.unlock();
+        }
+    }
+
+    /**
+     * Records that every change from the backend up to value is in this
+     * store. Call it only after the changes themselves have been appended, so
+     * a crash in between just means pulling them again.
+     */
+    public void setWatermark(String backend, long value) throws IOException {
+        stateLock.lock();
+        try {
+            if (value <= getWatermark(backend)) {
+                return;
+            }
+            Path path = watermarkPath(backend);
+            Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+            Files.writeString(tmp, Long.toString(value), StandardCharsets.US_ASCII);
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            watermarks.put(backend, value);
+        } finally {
+            stateLock.unlock();
+        }
+    }
+
+    private Path watermarkPath(String backend) {
+        return dir.resolve(name + "." + backend + ".sync");
+    }
+
+    public long logSize() throws IOException {
+        return log.size();
+    }
+
+    /**
+     * Writes a snapshot of the current state and drops the log records it
+     * covers. The log offset is taken before the state is captured, so every
+     * record before it is already reflected in the snapshot; records after it
+     * stay in the log.
+     */
+    public void compact() throws IOException {
+        Consumer<SnapshotFile.Writer> source;
+        SnapshotFile.Writer writer;
+        stateLock.lock();
+        try {
+            if (compactionDisabled || snapshotSource == null) {
+                return;
+            }
+            source = snapshotSource;
+            writer = new SnapshotFile.Writer(numericColumns, stringColumns);
+        } finally {
+            stateLock.unlock();
+        }
+
+        compactLock.lock();
+        try {
+            long covered = log.checkpoint();
+            source.accept(writer);
+
+            Path tmp = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+            writer.writeTo(tmp);
+            Files.move(tmp, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            log.truncateBefore(covered);
+            System.out.println(" Compacted " + name + " store: " + writer.size() + " records in snapshot.");
+        } finally {
+            compactLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        log.close();
+    }
+
+    private void importLegacyFile(Path legacy) throws IOException {
+        if (!Files.exists(legacy)) {
+            return;
+        }
+        List<LogRecord> records = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(legacy.toFile()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    records.add(new LogRecord(RecordType.INSERT, line));
+                }
+            }
+        }
+        log.appendAll(records);
+        System.out.println(" Imported " + records.size() + " records from " + legacy + " into " + log.getPath());
+    }
+}
@@ -0,0 +1,26 @@
+package org.example.storage;
+
+public enum RecordType {
+    INSERT((byte) 'I'),
+    UPDATE((byte) 'U'),
+    DELETE((byte) 'D');
+
+    private final byte code;
+
+    RecordType(byte code) {
+        this.code = code;
+    }
+
+    public byte getCode() {
+        return code;
+    }
+
+    public static RecordType fromCode(byte code) {
+        for (RecordType type : values()) {
+            if (type.code == code) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
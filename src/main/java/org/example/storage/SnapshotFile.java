@@ -0,0 +1,202 @@
+package org.example.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Binary, memory-mappable snapshot of one table.
+ *
+ * Layout (big-endian):
+ *   header   magic "LIBSNAP1", int row count, int numeric columns,
+ *            int string columns, long heap offset, long file length,
+ *            int CRC32 of everything after the header
+ *   rows     per row: one long per numeric column, then (int offset, int length)
+ *            per string column pointing into the heap, in the order added
+ *   heap     UTF-8 bytes of every string value
+ *
+ * Because rows are fixed width, a reader can open the file with
+ * FileChannel.map and decode any row without parsing the rest. The DAOs
+ * still read every row when they start, since their search indexes need the
+ * whole table; what the format saves is the text parsing, not the loading.
+ * Opening checks the CRC, so a snapshot damaged on disk is refused instead
+ * of loaded as a wrong catalog.
+ */
+public final class SnapshotFile {
+    static final byte[] MAGIC = "LIBSNAP1".getBytes(StandardCharsets.US_ASCII);
+    private static final int HEADER_SIZE = 8 + 4 + 4 + 4 + 8 + 8 + 4;
+
+    private final MappedByteBuffer buffer;
+    private final int rowCount;
+    private final int numericColumns;
+    private final int stringColumns;
+    private final int rowWidth;
+    private final long heapOffset;
+
+    private SnapshotFile(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        byte[] magic = new byte[MAGIC.length];
+        buffer.get(0, magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not a snapshot file");
+        }
+        this.rowCount = buffer.getInt(8);
+        this.numericColumns = buffer.getInt(12);
+        this.stringColumns = buffer.getInt(16);
+        this.heapOffset = buffer.getLong(20);
+        long length = buffer.getLong(28);
+        this.rowWidth = numericColumns * 8 + stringColumns * 8;
+        if (length != buffer.capacity() || heapOffset != HEADER_SIZE + (long) rowCount * rowWidth) {
+            throw new IOException("Snapshot file is truncated or damaged");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(HEADER_SIZE, buffer.capacity() - HEADER_SIZE));
+        if ((int) crc.getValue() != buffer.getInt(36)) {
+            throw new IOException("Snapshot file is damaged (checksum mismatch)");
+        }
+    }
+
+    /** Maps the file read-only. The mapping stays valid after the file is replaced. */
+    public static SnapshotFile open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(path + " is too large to map");
+            }
+            return new SnapshotFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public static boolean isSnapshot(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(MAGIC.length);
+            channel.read(magic, 0);
+            return Arrays.equals(magic.array(), MAGIC);
+        }
+    }
+
+    public int rowCount() {
+        return rowCount;
+    }
+
+    public long getLong(int row, int column) {
+        return buffer.getLong(rowStart(row) + column * 8);
+    }
+
+    public int getInt(int row, int column) {
+        return (int) getLong(row, column);
+    }
+
+    public String getString(int row, int column) {
+        int slot = rowStart(row) + numericColumns * 8 + column * 8;
+        int offset = buffer.getInt(slot);
+        int length = buffer.getInt(slot + 4);
+        if (offset < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get((int) heapOffset + offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int rowStart(int row) {
+        return HEADER_SIZE + row * rowWidth;
+    }
+
+    /** Collects rows in memory, then writes them in one pass. */
+    public static final class Writer {
+        private final int numericColumns;
+        private final int stringColumns;
+        private final List<long[]> numbers = new ArrayList<>();
+        private final List<String[]> strings = new ArrayList<>();
+
+        public Writer(int numericColumns, int stringColumns) {
+            this.numericColumns = numericColumns;
+            this.stringColumns = stringColumns;
+        }
+
+        public void addRow(long[] rowNumbers, String... rowStrings) {
+            if (rowNumbers.length != numericColumns || rowStrings.length != stringColumns) {
+                throw new IllegalArgumentException("Row does not match the snapshot columns");
+            }
+            numbers.add(rowNumbers);
+            strings.add(rowStrings);
+        }
+
+        public int size() {
+            return numbers.size();
+        }
+
+        public void writeTo(Path target) throws IOException {
+            int rows = numbers.size();
+            int rowWidth = numericColumns * 8 + stringColumns * 8;
+            ByteBuffer rowBuffer = ByteBuffer.allocate(rows * rowWidth);
+            List<byte[]> heap = new ArrayList<>();
+            int heapSize = 0;
+            for (int row = 0; row < rows; row++) {
+                for (long value : numbers.get(row)) {
+                    rowBuffer.putLong(value);
+                }
+                for (String value : strings.get(row)) {
+                    if (value == null) {
+                        rowBuffer.putInt(-1).putInt(0);
+                        continue;
+                    }
+                    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                    rowBuffer.putInt(heapSize).putInt(bytes.length);
+                    heap.add(bytes);
+                    heapSize += bytes.length;
+                }
+            }
+            rowBuffer.flip();
+
+            // The header goes first, so the checksum is worked out before anything is written.
+            CRC32 crc = new CRC32();
+            crc.update(rowBuffer.duplicate());
+            for (byte[] bytes : heap) {
+                crc.update(bytes);
+            }
+
+            long heapOffset = HEADER_SIZE + (long) rows * rowWidth;
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.put(MAGIC).putInt(rows).putInt(numericColumns).putInt(stringColumns)
+                    .putLong(heapOffset).putLong(heapOffset + heapSize).putInt((int) crc.getValue());
+            header.flip();
+
+            try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                writeFully(channel, header);
+                writeFully(channel, rowBuffer);
+                ByteBuffer chunk = ByteBuffer.allocate(64 * 1024);
+                for (byte[] bytes : heap) {
+                    if (chunk.remaining() < bytes.length) {
+                        chunk.flip();
+                        writeFully(channel, chunk);
+                        chunk.clear();
+                    }
+                    if (bytes.length > chunk.capacity()) {
+                        writeFully(channel, ByteBuffer.wrap(bytes));
+                    } else {
+                        chunk.put(bytes);
+                    }
+                }
+                chunk.flip();
+                writeFully(channel, chunk);
+                channel.force(true);
+            }
+        }
+
+        private static void writeFully(FileChannel channel, ByteBuffer data) throws IOException {
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package org.example.utils;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Application settings. Values are looked up, in order, from JVM system
+ * properties, environment variables (key upper-cased with dots turned into
+ * underscores and prefixed with LIBRARY_, e.g. db.pool.maxSize ->
+ * LIBRARY_DB_POOL_MAXSIZE), a library.properties file in the working
+ * directory and finally the library.properties bundled on the classpath.
+ */
+public class AppConfig {
+    private static final String FILE_NAME = "library.properties";
+    private static final Properties properties = load();
+
+    private static Properties load() {
+        Properties props = new Properties();
+
+        try (InputStream in = AppConfig.class.getClassLoader().getResourceAsStream(FILE_NAME)) {
+            if (in != null) {
+                props.load(in);
+            }
+        } catch (IOException e) {
+            System.out.println(" Error reading bundled " + FILE_NAME + ": " + e.getMessage());
+        }
+
+        try (InputStream in = new FileInputStream(FILE_NAME)) {
+            props.load(in);
+        } catch (IOException e) {
+            // No local override file, the bundled defaults are used.
+        }
+        return props;
+    }
+
+    public static String get(String key, String defaultValue) {
+        String value = System.getProperty(key);
+        if (value == null) {
+            value = System.getenv("LIBRARY_" + key.toUpperCase(Locale.ROOT).replace('.', '_'));
+        }
+        if (value == null) {
+            value = properties.getProperty(key);
+        }
+        return value == null ? defaultValue : value.trim();
+    }
+
+    public static int getInt(String key, int defaultValue) {
+        String value = get(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            System.out.println(" Invalid number for " + key + ": " + value);
+            return defaultValue;
+        }
+    }
+
+    public static long getLong(String key, long defaultValue) {
+        String value = get(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            System.out.println(" Invalid number for " + key + ": " + value);
+            return defaultValue;
+        }
+    }
+
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        String value = get(key, null);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+}
@@ -0,0 +1,201 @@
+package org.example.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * BK-tree over strings for "did you mean" lookups. Each key sits under its
+ * parent at the edit distance between them; since the distance is a metric,
+ * a query within maxDistance of some key can only be found below the edges
+ * numbered dist - maxDistance to dist + maxDistance, and the rest of the tree
+ * is skipped. The distance is Damerau-Levenshtein, so a swapped pair of
+ * letters ("chinau" for "chinua") costs one edit.
+ *
+ * Several ids may share a key. Removing an id leaves its node in place to
+ * keep the tree's shape; the tree is rebuilt once most nodes are empty.
+ * Not thread-safe.
+ */
+public class BKTree {
+
+    public record Match(int id, String key, int distance) {
+    }
+
+    private static final class Node {
+        final String key;
+        int[] ids = new int[1];
+        int idCount;
+        Node[] children = new Node[0];
+
+        Node(String key) {
+            this.key = key;
+        }
+
+        void addId(int id) {
+            for (int i = 0; i < idCount; i++) {
+                if (ids[i] == id) {
+                    return;
+                }
+            }
+            if (idCount == ids.length) {
+                ids = Arrays.copyOf(ids, idCount * 2);
+            }
+            ids[idCount++] = id;
+        }
+
+        boolean removeId(int id) {
+            for (int i = 0; i < idCount; i++) {
+                if (ids[i] == id) {
+                    ids[i] = ids[--idCount];
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        Node child(int distance) {
+            return distance < children.length ? children[distance] : null;
+        }
+
+        void setChild(int distance, Node child) {
+            if (distance >= children.length) {
+                children = Arrays.copyOf(children, distance + 1);
+            }
+            children[distance] = child;
+        }
+    }
+
+    private Node root;
+    private final Map<String, Node> nodesByKey = new HashMap<>();
+    private int emptyNodes = 0;
+
+    public void add(String key, int id) {
+        Node node = nodesByKey.get(key);
+        if (node == null) {
+            node = insert(key);
+        } else if (node.idCount == 0) {
+            emptyNodes--;
+        }
+        node.addId(id);
+    }
+
+    public void remove(String key, int id) {
+        Node node = nodesByKey.get(key);
+        if (node != null && node.removeId(id) && node.idCount == 0) {
+            emptyNodes++;
+            if (emptyNodes > nodesByKey.size() / 2) {
+                rebuild();
+            }
+        }
+    }
+
+    /** Every id whose key is within maxDistance of query, closest first. */
+    public List<Match> search(String query, int maxDistance) {
+        List<Match> matches = new ArrayList<>();
+        if (root == null) {
+            return matches;
+        }
+        Deque<Node> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            int distance = distance(query, node.key);
+            if (distance <= maxDistance) {
+                for (int i = 0; i < node.idCount; i++) {
+                    matches.add(new Match(node.ids[i], node.key, distance));
+                }
+            }
+            int from = Math.max(1, distance - maxDistance);
+            int to = Math.min(node.children.length - 1, distance + maxDistance);
+            for (int edge = from; edge <= to; edge++) {
+                if (node.children[edge] != null) {
+                    pending.push(node.children[edge]);
+                }
+            }
+        }
+        matches.sort((a, b) -> Integer.compare(a.distance(), b.distance()));
+        return matches;
+    }
+
+    private Node insert(String key) {
+        Node created = new Node(key);
+        nodesByKey.put(key, created);
+        if (root == null) {
+            root = created;
+            return created;
+        }
+        Node node = root;
+        while (true) {
+            int distance = distance(key, node.key);
+            Node child = node.child(distance);
+            if (child == null) {
+                node.setChild(distance, created);
+                return created;
+            }
+            node = child;
+        }
+    }
+
+    private void rebuild() {
+        List<Node> live = new ArrayList<>();
+        for (Node node : nodesByKey.values()) {
+            if (node.idCount > 0) {
+                live.add(node);
+            }
+        }
+        root = null;
+        nodesByKey.clear();
+        emptyNodes = 0;
+        for (Node old : live) {
+            Node node = insert(old.key);
+            node.ids = old.ids;
+            node.idCount = old.idCount;
+        }
+    }
+
+    /**
+     * Damerau-Levenshtein distance (insertions, deletions, substitutions and
+     * transpositions of adjacent characters), in the unrestricted form that
+     * satisfies the triangle inequality the tree relies on.
+     */
+    static int distance(String a, String b) {
+        int n = a.length();
+        int m = b.length();
+        int infinity = n + m;
+        int[][] d = new int[n + 2][m + 2];
+        d[0][0] = infinity;
+        for (int i = 0; i <= n; i++) {
+            d[i + 1][0] = infinity;
+            d[i + 1][1] = i;
+        }
+        for (int j = 0; j <= m; j++) {
+            d[0][j + 1] = infinity;
+            d[1][j + 1] = j;
+        }
+        Map<Character, Integer> lastRow = new HashMap<>();
+        for (int i = 1; i <= n; i++) {
+            int lastMatchColumn = 0;
+            for (int j = 1; j <= m; j++) {
+                int k = lastRow.getOrDefault(b.charAt(j - 1), 0);
+                int l = lastMatchColumn;
+                int cost = 1;
+                if (a.charAt(i - 1) == b.charAt(j - 1)) {
+                    cost = 0;
+                    lastMatchColumn = j;
+                }
+                d[i + 1][j + 1] = Math.min(Math.min(
+                                d[i][j] + cost,
+                                d[i + 1][j] + 1),
+                        Math.min(
+                                d[i][j + 1] + 1,
+                                d[k][l] + (i - k - 1) + 1 + (j - l - 1)));
+            }
+            lastRow.put(a.charAt(i - 1), i);
+        }
+        return d[n + 1][m + 1];
+    }
+}
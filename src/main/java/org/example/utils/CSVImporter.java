@@ -0,0 +1,78 @@
+package org.example.utils;
+
+import org.example.models.Book;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class CSVImporter {
+
+    /**
+     * Reads books from a CSV file in the layout written by CSVExporter:
+     * Book ID,Title,Author,Genre,Available Copies[,Export Date].
+     * Rows that cannot be parsed are reported and skipped.
+     */
+    public static List<Book> readBooksFromCSV(String fileName) throws IOException {
+        List<Book> books = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(fileName))) {
+            String line = reader.readLine(); // header
+            int lineNumber = 1;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                List<String> fields = parseLine(line);
+                if (fields.size() < 5) {
+                    System.out.println(" Skipping line " + lineNumber + ": expected at least 5 fields.");
+                    continue;
+                }
+                try {
+                    books.add(new Book(
+                            Integer.parseInt(fields.get(0).trim()),
+                            fields.get(1),
+                            fields.get(2),
+                            fields.get(3),
+                            Integer.parseInt(fields.get(4).trim())
+                    ));
+                } catch (NumberFormatException e) {
+                    System.out.println(" Skipping line " + lineNumber + ": invalid number " + e.getMessage());
+                }
+            }
+        }
+        return books;
+    }
+
+    // Splits one CSV line, honouring quoted fields with doubled quotes (the escaping CSVExporter uses)
+    private static List<String> parseLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,132 @@
+package org.example.utils;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Available copies per book, one atomic cell per book id. Taking and giving
+ * back a copy is a compare-and-set on that cell, so terminals lending the
+ * same book never block each other and can never lend more copies than
+ * there are: the count doesn't go below zero.
+ *
+ * The borrowing ledger takes a copy before it records a loan. Until the
+ * database has answered that borrow, the copy is also counted as reserved;
+ * settle() or cancel() ends the reservation. The catalog sets a cell when it
+ * learns a book's count (loading, an edit, or a count the database
+ * committed). Such a count does not know about reservations still waiting
+ * for the database, so they are taken off it rather than wiped out. A borrow
+ * the database already committed but not yet answered is then counted
+ * twice, which can only make the count too low, and only until the next
+ * count arrives.
+ *
+ * Each cell packs the available count (high half) and the reservations (low
+ * half) into one long, so both change in the same compare-and-set.
+ */
+public class CopyInventory {
+    private final ConcurrentHashMap<Integer, AtomicLong> cells = new ConcurrentHashMap<>();
+
+    /** Sets the count for a book, less its open reservations, adding its cell if it is new. */
+    public void set(int bookId, int copies) {
+        AtomicLong cell = cells.get(bookId);
+        if (cell == null) {
+            cell = cells.computeIfAbsent(bookId, id -> new AtomicLong());
+        }
+        while (true) {
+            long state = cell.get();
+            int reserved = reserved(state);
+            if (cell.compareAndSet(state, pack(Math.max(0, copies - reserved), reserved))) {
+                return;
+            }
+        }
+    }
+
+    public void remove(int bookId) {
+        cells.remove(bookId);
+    }
+
+    /** The copies left, or -1 if the book isn't known. */
+    public int available(int bookId) {
+        AtomicLong cell = cells.get(bookId);
+        return cell == null ? -1 : available(cell.get());
+    }
+
+    /** Copies taken by borrows the database has not answered yet, or 0 if the book isn't known. */
+    public int reserved(int bookId) {
+        AtomicLong cell = cells.get(bookId);
+        return cell == null ? 0 : reserved(cell.get());
+    }
+
+    /**
+     * Takes one copy and reserves it if there is one; false if none are left
+     * or the book isn't known.
+     */
+    public boolean tryCheckout(int bookId) {
+        AtomicLong cell = cells.get(bookId);
+        if (cell == null) {
+            return false;
+        }
+        while (true) {
+            long state = cell.get();
+            int copies = available(state);
+            if (copies <= 0) {
+                return false;
+            }
+            if (cell.compareAndSet(state, pack(copies - 1, reserved(state) + 1))) {
+                return true;
+            }
+        }
+    }
+
+    /** The database took a reserved copy: it stays taken, and counts from now on include it. */
+    public void settle(int bookId) {
+        update(bookId, 0);
+    }
+
+    /** The database turned a reserved copy down: it is available again. Returns the new count, or -1. */
+    public int cancel(int bookId) {
+        return update(bookId, 1);
+    }
+
+    /** Gives one copy back; returns the new count, or -1 if the book isn't known. */
+    public int checkin(int bookId) {
+        AtomicLong cell = cells.get(bookId);
+        if (cell == null) {
+            return -1;
+        }
+        while (true) {
+            long state = cell.get();
+            int copies = available(state) + 1;
+            if (cell.compareAndSet(state, pack(copies, reserved(state)))) {
+                return copies;
+            }
+        }
+    }
+
+    /** Ends one reservation, adding back to the count as given; -1 if the book isn't known. */
+    private int update(int bookId, int addBack) {
+        AtomicLong cell = cells.get(bookId);
+        if (cell == null) {
+            return -1;
+        }
+        while (true) {
+            long state = cell.get();
+            int reserved = reserved(state);
+            int copies = available(state) + (reserved > 0 ? addBack : 0);
+            if (cell.compareAndSet(state, pack(copies, Math.max(0, reserved - 1)))) {
+                return copies;
+            }
+        }
+    }
+
+    private static long pack(int available, int reserved) {
+        return ((long) available << 32) | (reserved & 0xFFFFFFFFL);
+    }
+
+    private static int available(long state) {
+        return (int) (state >>> 32);
+    }
+
+    private static int reserved(long state) {
+        return (int) state;
+    }
+}
@@ -0,0 +1,435 @@
+package org.example.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Word-level inverted index with BM25 ranking over documents made of a few
+ * weighted fields (a title counts for more than a genre). Term frequencies
+ * and lengths are summed across fields with their weights, the simple form
+ * of BM25F.
+ *
+ * Query syntax: plain words are optional and ranked; "quoted phrases" must
+ * appear, words in that order, within one field; a word ending in * matches
+ * every indexed word starting with it.
+ *
+ * For a given word, a document's score only depends on how often the word
+ * occurs in it and on its length, so each posting list is kept grouped by
+ * frequency and sorted by length: merging the groups reads it best first.
+ * search() reads all query words that way in step and stops as soon as the
+ * limit-th best score found cannot be beaten by any document not yet seen
+ * (Fagin's threshold algorithm), so a word found in most of the catalog
+ * costs no more than a rare one. Not thread-safe.
+ */
+public class FullTextIndex {
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    /** Positions of different fields are this far apart, so phrases never span two fields. */
+    private static final int FIELD_GAP = 1 << 20;
+    /** A prefix matching more words than this only uses the first ones, alphabetically. */
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+
+    public record Hit(int id, double score) {
+    }
+
+    private static final Comparator<Posting> SHORTEST_FIRST =
+            Comparator.<Posting>comparingDouble(posting -> posting.length).thenComparingInt(posting -> posting.ordinal);
+
+    private static final class Posting {
+        final int id;
+        final int ordinal;
+        double length;
+        double weightedTf;
+        int[] positions = new int[2];
+        int positionCount;
+
+        Posting(int id, int ordinal) {
+            this.id = id;
+            this.ordinal = ordinal;
+        }
+
+        void addPosition(int position) {
+            if (positionCount == positions.length) {
+                positions = Arrays.copyOf(positions, positionCount * 2);
+            }
+            positions[positionCount++] = position;
+        }
+
+        boolean hasPosition(int position) {
+            return Arrays.binarySearch(positions, 0, positionCount, position) >= 0;
+        }
+    }
+
+    /** One word's postings: by document id, and by frequency then length for best-first reads. */
+    private static final class Term {
+        final Map<Integer, Posting> byId = new HashMap<>();
+        final TreeMap<Double, TreeSet<Posting>> byTf = new TreeMap<>();
+
+        void add(Posting posting) {
+            byId.put(posting.id, posting);
+            byTf.computeIfAbsent(posting.weightedTf, tf -> new TreeSet<>(SHORTEST_FIRST)).add(posting);
+        }
+
+        void remove(int id) {
+            Posting posting = byId.remove(id);
+            TreeSet<Posting> group = byTf.get(posting.weightedTf);
+            group.remove(posting);
+            if (group.isEmpty()) {
+                byTf.remove(posting.weightedTf);
+            }
+        }
+    }
+
+    private static final class Doc {
+        final int ordinal;
+        final String[] terms;
+        final double length;
+
+        Doc(int ordinal, String[] terms, double length) {
+            this.ordinal = ordinal;
+            this.terms = terms;
+            this.length = length;
+        }
+    }
+
+    private final double[] fieldWeights;
+    private final TreeMap<String, Term> terms = new TreeMap<>();
+    private final IntHashMap<Doc> docs = new IntHashMap<>();
+    private double totalLength = 0;
+    private int nextOrdinal = 0;
+
+    public FullTextIndex(double... fieldWeights) {
+        this.fieldWeights = fieldWeights.clone();
+    }
+
+    public int size() {
+        return docs.size();
+    }
+
+    /** Indexes a document's fields, in the order the weights were given, replacing any earlier version. */
+    public void put(int id, String... fields) {
+        Doc previous = docs.get(id);
+        int ordinal = previous == null ? nextOrdinal++ : previous.ordinal;
+        remove(id);
+
+        Map<String, Posting> own = new HashMap<>();
+        double length = 0;
+        for (int field = 0; field < fields.length && field < fieldWeights.length; field++) {
+            List<String> words = TextNormalizer.words(fields[field]);
+            for (int position = 0; position < words.size(); position++) {
+                Posting posting = own.computeIfAbsent(words.get(position), word -> new Posting(id, ordinal));
+                posting.weightedTf += fieldWeights[field];
+                posting.addPosition(field * FIELD_GAP + position);
+            }
+            length += fieldWeights[field] * words.size();
+        }
+        for (Map.Entry<String, Posting> entry : own.entrySet()) {
+            entry.getValue().length = length;
+            terms.computeIfAbsent(entry.getKey(), word -> new Term()).add(entry.getValue());
+        }
+        docs.put(id, new Doc(ordinal, own.keySet().toArray(new String[0]), length));
+        totalLength += length;
+    }
+
+    public void remove(int id) {
+        Doc doc = docs.remove(id);
+        if (doc == null) {
+            return;
+        }
+        for (String word : doc.terms) {
+            Term term = terms.get(word);
+            term.remove(id);
+            if (term.byId.isEmpty()) {
+                terms.remove(word);
+            }
+        }
+        totalLength -= doc.length;
+    }
+
+    /** The best matches for query, highest score first; ties go to the earlier document. */
+    public List<Hit> search(String query, int limit) {
+        List<String> words = new ArrayList<>();
+        List<String> prefixes = new ArrayList<>();
+        List<List<String>> phrases = new ArrayList<>();
+        parse(query, words, prefixes, phrases);
+        if (limit <= 0 || docs.isEmpty() || (words.isEmpty() && prefixes.isEmpty())) {
+            return new ArrayList<>();
+        }
+
+        double averageLength = totalLength / docs.size();
+        List<Clause> clauses = new ArrayList<>();
+        for (String word : words) {
+            Term term = terms.get(word);
+            if (term != null) {
+                clauses.add(new Clause(List.of(term), averageLength));
+            }
+        }
+        for (String prefix : prefixes) {
+            List<Term> expansions = new ArrayList<>();
+            for (Term term : terms.subMap(prefix, prefix + Character.MAX_VALUE).values()) {
+                if (expansions.size() == MAX_PREFIX_EXPANSIONS) {
+                    break;
+                }
+                expansions.add(term);
+            }
+            if (!expansions.isEmpty()) {
+                clauses.add(new Clause(expansions, averageLength));
+            }
+        }
+        if (clauses.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        PriorityQueue<Hit> top = new PriorityQueue<>(limit + 1, this::worseFirst);
+        if (phrases.isEmpty()) {
+            collectBestFirst(clauses, top, limit);
+        } else {
+            collectPhraseMatches(clauses, phrases, top, limit);
+        }
+
+        List<Hit> result = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            result.add(top.poll());
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    /**
+     * Threshold algorithm: take the next best posting of every clause in
+     * turn and score its document in full. No unseen document can score more
+     * than the sum of the scores just read, so once the heap's worst hit
+     * reaches that sum the heap holds the answer.
+     */
+    private void collectBestFirst(List<Clause> clauses, PriorityQueue<Hit> top, int limit) {
+        Set<Integer> seen = new HashSet<>();
+        while (true) {
+            boolean more = false;
+            double threshold = 0;
+            for (Clause clause : clauses) {
+                Posting posting = clause.next();
+                if (posting != null) {
+                    more = true;
+                    if (seen.add(posting.id)) {
+                        offer(top, limit, new Hit(posting.id, score(clauses, posting.id)));
+                    }
+                }
+                threshold += clause.bound;
+            }
+            if (!more || (top.size() == limit && top.peek().score() >= threshold)) {
+                return;
+            }
+        }
+    }
+
+    /** Phrases are required, so only documents holding the rarest phrase word need looking at. */
+    private void collectPhraseMatches(List<Clause> clauses, List<List<String>> phrases, PriorityQueue<Hit> top, int limit) {
+        Term rarest = null;
+        for (List<String> phrase : phrases) {
+            for (String word : phrase) {
+                Term term = terms.get(word);
+                if (term == null) {
+                    return;
+                }
+                if (rarest == null || term.byId.size() < rarest.byId.size()) {
+                    rarest = term;
+                }
+            }
+        }
+        for (int id : rarest.byId.keySet()) {
+            if (matchesPhrases(id, phrases)) {
+                offer(top, limit, new Hit(id, score(clauses, id)));
+            }
+        }
+    }
+
+    private void offer(PriorityQueue<Hit> top, int limit, Hit hit) {
+        if (top.size() < limit) {
+            top.add(hit);
+        } else if (worseFirst(top.peek(), hit) < 0) {
+            top.poll();
+            top.add(hit);
+        }
+    }
+
+    private static double score(List<Clause> clauses, int id) {
+        double score = 0;
+        for (Clause clause : clauses) {
+            score += clause.scoreOf(id);
+        }
+        return score;
+    }
+
+    /**
+     * A query word, or a prefix with its expansions (a document scores its
+     * best expansion, so a prefix counts once however many words it matches).
+     * Reads its postings best first.
+     */
+    private final class Clause {
+        private final List<Term> expansions;
+        private final double[] idf;
+        private final double averageLength;
+        private final PriorityQueue<Cursor> cursors = new PriorityQueue<>();
+        /** Score of the last posting read: no posting still unread scores more. */
+        double bound = Double.MAX_VALUE;
+
+        Clause(List<Term> expansions, double averageLength) {
+            this.expansions = expansions;
+            this.averageLength = averageLength;
+            this.idf = new double[expansions.size()];
+            int n = docs.size();
+            for (int i = 0; i < expansions.size(); i++) {
+                int df = expansions.get(i).byId.size();
+                idf[i] = Math.log(1 + (n - df + 0.5) / (df + 0.5));
+                for (TreeSet<Posting> group : expansions.get(i).byTf.values()) {
+                    Cursor cursor = new Cursor(group.iterator(), idf[i]);
+                    if (cursor.head != null) {
+                        cursors.add(cursor);
+                    }
+                }
+            }
+        }
+
+        Posting next() {
+            Cursor cursor = cursors.poll();
+            if (cursor == null) {
+                bound = 0;
+                return null;
+            }
+            Posting posting = cursor.head;
+            bound = cursor.headScore;
+            if (cursor.advance()) {
+                cursors.add(cursor);
+            }
+            return posting;
+        }
+
+        double scoreOf(int id) {
+            double best = 0;
+            for (int i = 0; i < expansions.size(); i++) {
+                Posting posting = expansions.get(i).byId.get(id);
+                if (posting != null) {
+                    best = Math.max(best, bm25(idf[i], posting));
+                }
+            }
+            return best;
+        }
+
+        double bm25(double idf, Posting posting) {
+            double tf = posting.weightedTf;
+            return idf * tf * (K1 + 1) / (tf + K1 * (1 - B + B * posting.length / averageLength));
+        }
+
+        /** Walks one frequency group, shortest document (best score) first. */
+        private final class Cursor implements Comparable<Cursor> {
+            private final Iterator<Posting> postings;
+            private final double idf;
+            Posting head;
+            double headScore;
+
+            Cursor(Iterator<Posting> postings, double idf) {
+                this.postings = postings;
+                this.idf = idf;
+                advance();
+            }
+
+            boolean advance() {
+                if (!postings.hasNext()) {
+                    head = null;
+                    return false;
+                }
+                head = postings.next();
+                headScore = bm25(idf, head);
+                return true;
+            }
+
+            @Override
+            public int compareTo(Cursor other) {
+                int byScore = Double.compare(other.headScore, headScore);
+                return byScore != 0 ? byScore : Integer.compare(head.ordinal, other.head.ordinal);
+            }
+        }
+    }
+
+    private boolean matchesPhrases(int id, List<List<String>> phrases) {
+        for (List<String> phrase : phrases) {
+            Posting first = posting(phrase.get(0), id);
+            if (first == null) {
+                return false;
+            }
+            boolean found = false;
+            for (int p = 0; p < first.positionCount && !found; p++) {
+                int start = first.positions[p];
+                found = true;
+                for (int i = 1; i < phrase.size() && found; i++) {
+                    Posting next = posting(phrase.get(i), id);
+                    found = next != null && next.hasPosition(start + i);
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Posting posting(String word, int id) {
+        Term term = terms.get(word);
+        return term == null ? null : term.byId.get(id);
+    }
+
+    /** Orders hits worst first: lower score, then the later document. */
+    private int worseFirst(Hit a, Hit b) {
+        int byScore = Double.compare(a.score(), b.score());
+        if (byScore != 0) {
+            return byScore;
+        }
+        return Integer.compare(docs.get(b.id()).ordinal, docs.get(a.id()).ordinal);
+    }
+
+    private static void parse(String query, List<String> words, List<String> prefixes, List<List<String>> phrases) {
+        int i = 0;
+        while (i < query.length()) {
+            char c = query.charAt(i);
+            if (c == '"') {
+                int end = query.indexOf('"', i + 1);
+                if (end < 0) {
+                    end = query.length();
+                }
+                List<String> phrase = TextNormalizer.words(query.substring(i + 1, end));
+                words.addAll(phrase);
+                if (phrase.size() > 1) {
+                    phrases.add(phrase);
+                }
+                i = end + 1;
+            } else if (Character.isWhitespace(c)) {
+                i++;
+            } else {
+                int end = i;
+                while (end < query.length() && !Character.isWhitespace(query.charAt(end)) && query.charAt(end) != '"') {
+                    end++;
+                }
+                String word = query.substring(i, end);
+                List<String> split = TextNormalizer.words(word);
+                if (word.endsWith("*") && !split.isEmpty()) {
+                    words.addAll(split.subList(0, split.size() - 1));
+                    prefixes.add(split.get(split.size() - 1));
+                } else {
+                    words.addAll(split);
+                }
+                i = end;
+            }
+        }
+    }
+}
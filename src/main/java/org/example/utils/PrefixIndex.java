@@ -0,0 +1,198 @@
+package org.example.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Type-ahead over normalized strings: a radix tree (edges carry whole runs
+ * of characters, so a catalog of titles needs about two nodes per title)
+ * where every node caches the best completions in its subtree. Completing a
+ * prefix is a walk down the tree plus a copy of one cached list.
+ *
+ * Each string is backed by one or more ids with a score each (say a book's
+ * available copies); a completion ranks by the sum, ties alphabetically.
+ * Changing an id or its score refreshes only the caches on that string's
+ * path to the root. Not thread-safe.
+ */
+public class PrefixIndex {
+
+    public record Completion(String text, int score) {
+    }
+
+    private static final class Node {
+        String label;
+        Node parent;
+        final TreeMap<Character, Node> children = new TreeMap<>();
+        /** Set on nodes that end a string. */
+        String key;
+        String text;
+        IntHashMap<Integer> scores;
+        int score;
+        Node[] top = new Node[0];
+
+        Node(String label, Node parent) {
+            this.label = label;
+            this.parent = parent;
+        }
+
+        boolean isTerminal() {
+            return scores != null;
+        }
+    }
+
+    private final int cacheSize;
+    private final Node root = new Node("", null);
+    private final IntHashMap<Node> nodesById = new IntHashMap<>();
+
+    /** cacheSize is the most completions a lookup can return. */
+    public PrefixIndex(int cacheSize) {
+        this.cacheSize = cacheSize;
+    }
+
+    /** Sets the string and score for id, moving it if its string changed. */
+    public void put(int id, String text, int score) {
+        String key = TextNormalizer.key(text);
+        Node current = nodesById.get(id);
+        if (current != null && !current.key.equals(key)) {
+            remove(id);
+            current = null;
+        }
+        Node node = current != null ? current : insert(key);
+        if (!node.isTerminal()) {
+            node.scores = new IntHashMap<>(2);
+            node.key = key;
+            node.text = text;
+        }
+        Integer old = node.scores.put(id, score);
+        node.score += score - (old == null ? 0 : old);
+        nodesById.put(id, node);
+        refreshFrom(node);
+    }
+
+    public void remove(int id) {
+        Node node = nodesById.remove(id);
+        if (node == null) {
+            return;
+        }
+        node.score -= node.scores.remove(id);
+        if (!node.scores.isEmpty()) {
+            refreshFrom(node);
+            return;
+        }
+        node.scores = null;
+        node.key = null;
+        node.text = null;
+        node.score = 0;
+        refreshFrom(prune(node));
+    }
+
+    /** The best completions of prefix, at most limit (and at most cacheSize). */
+    public List<Completion> complete(String prefix, int limit) {
+        String key = TextNormalizer.key(prefix);
+        Node node = root;
+        int at = 0;
+        while (at < key.length()) {
+            Node child = node.children.get(key.charAt(at));
+            if (child == null) {
+                return new ArrayList<>();
+            }
+            int common = commonPrefix(child.label, key, at);
+            if (at + common < key.length() && common < child.label.length()) {
+                return new ArrayList<>();
+            }
+            at += common;
+            node = child;
+        }
+        List<Completion> result = new ArrayList<>();
+        for (int i = 0; i < node.top.length && i < limit; i++) {
+            result.add(new Completion(node.top[i].text, node.top[i].score));
+        }
+        return result;
+    }
+
+    private Node insert(String key) {
+        Node node = root;
+        int at = 0;
+        while (at < key.length()) {
+            Node child = node.children.get(key.charAt(at));
+            if (child == null) {
+                Node leaf = new Node(key.substring(at), node);
+                node.children.put(key.charAt(at), leaf);
+                return leaf;
+            }
+            int common = commonPrefix(child.label, key, at);
+            if (common < child.label.length()) {
+                // Split the edge: the shared part becomes a new node above child.
+                Node middle = new Node(child.label.substring(0, common), node);
+                node.children.put(key.charAt(at), middle);
+                child.label = child.label.substring(common);
+                child.parent = middle;
+                middle.children.put(child.label.charAt(0), child);
+                middle.top = child.top.clone();
+                child = middle;
+            }
+            at += common;
+            node = child;
+        }
+        return node;
+    }
+
+    /**
+     * Drops a node that no longer ends a string if it has no children, and
+     * folds a pass-through node into its only child. Returns the deepest node
+     * whose cache needs refreshing.
+     */
+    private Node prune(Node node) {
+        if (node == root) {
+            return root;
+        }
+        if (node.children.isEmpty()) {
+            Node parent = node.parent;
+            parent.children.remove(node.label.charAt(0));
+            if (parent != root && !parent.isTerminal() && parent.children.size() == 1) {
+                return merge(parent);
+            }
+            return parent;
+        }
+        if (node.children.size() == 1) {
+            return merge(node);
+        }
+        return node;
+    }
+
+    /** Replaces a non-terminal node with its only child, which takes over its label. */
+    private Node merge(Node node) {
+        Node child = node.children.firstEntry().getValue();
+        child.label = node.label + child.label;
+        child.parent = node.parent;
+        node.parent.children.put(child.label.charAt(0), child);
+        return child;
+    }
+
+    /** Rebuilds the cached completions of node and every node above it. */
+    private void refreshFrom(Node node) {
+        for (Node current = node; current != null; current = current.parent) {
+            List<Node> candidates = new ArrayList<>();
+            if (current.isTerminal()) {
+                candidates.add(current);
+            }
+            for (Node child : current.children.values()) {
+                for (Node terminal : child.top) {
+                    candidates.add(terminal);
+                }
+            }
+            candidates.sort((a, b) -> a.score != b.score ? Integer.compare(b.score, a.score) : a.key.compareTo(b.key));
+            current.top = candidates.subList(0, Math.min(cacheSize, candidates.size())).toArray(new Node[0]);
+        }
+    }
+
+    private static int commonPrefix(String label, String key, int at) {
+        int max = Math.min(label.length(), key.length() - at);
+        int i = 0;
+        while (i < max && label.charAt(i) == key.charAt(at + i)) {
+            i++;
+        }
+        return i;
+    }
+}
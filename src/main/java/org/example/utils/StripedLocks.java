@@ -0,0 +1,65 @@
+package org.example.utils;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed set of locks shared out by id, so work on one book or member is
+ * serialized while work on different ones (almost always on different
+ * stripes) runs in parallel, without a lock object per row. Two ids on the
+ * same stripe just wait for each other a little.
+ *
+ * Never hold two stripes of the same instance at once unless they are taken
+ * in a fixed order; one stripe per operation is the rule in the DAOs.
+ */
+public class StripedLocks {
+    private final ReentrantLock[] locks;
+    private final int mask;
+
+    /** stripes is rounded up to a power of two. */
+    public StripedLocks(int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        locks = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        mask = size - 1;
+    }
+
+    public ReentrantLock lockFor(int id) {
+        return locks[stripe(id)];
+    }
+
+    /**
+     * Locks the stripes of all the ids, each once and in stripe order, so
+     * two bulk callers can't deadlock each other or a single-id caller.
+     * Returns the locks taken, for unlockAll.
+     */
+    public ReentrantLock[] lockAll(int[] ids) {
+        boolean[] wanted = new boolean[locks.length];
+        for (int id : ids) {
+            wanted[stripe(id)] = true;
+        }
+        ReentrantLock[] taken = new ReentrantLock[locks.length];
+        int count = 0;
+        for (int i = 0; i < locks.length; i++) {
+            if (wanted[i]) {
+                locks[i].lock();
+                taken[count++] = locks[i];
+            }
+        }
+        return Arrays.copyOf(taken, count);
+    }
+
+    public void unlockAll(ReentrantLock[] taken) {
+        for (int i = taken.length - 1; i >= 0; i--) {
+            taken[i].unlock();
+        }
+    }
+
+    private int stripe(int id) {
+        // Spread the bits so ids that differ only in their high bits still land on different stripes.
+        int h = id * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
@@ -0,0 +1,70 @@
+package org.example.utils;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Turns user-typed text into a key for exact matching: NFKC normalization
+ * (so full-width letters and ligatures match their plain forms), case
+ * folding, and runs of any Unicode whitespace collapsed to one space with
+ * the ends trimmed. "  The  HOBBIT " and "the hobbit" give the same key.
+ */
+public class TextNormalizer {
+
+    private TextNormalizer() {
+    }
+
+    public static String key(String text) {
+        if (text == null) {
+            return "";
+        }
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFKC);
+        // Upper then lower case folds the letters a single toLowerCase misses (ß -> ss, final sigma).
+        String folded = normalized.toUpperCase(Locale.ROOT).toLowerCase(Locale.ROOT);
+
+        StringBuilder key = new StringBuilder(folded.length());
+        boolean space = false;
+        for (int i = 0; i < folded.length(); ) {
+            int c = folded.codePointAt(i);
+            i += Character.charCount(c);
+            if (Character.isWhitespace(c) || Character.isSpaceChar(c)) {
+                space = key.length() > 0;
+            } else {
+                if (space) {
+                    key.append(' ');
+                    space = false;
+                }
+                key.appendCodePoint(c);
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * Splits text into normalized words: runs of letters and digits after
+     * the same folding as key(). Everything else separates words.
+     */
+    public static List<String> words(String text) {
+        String folded = key(text);
+        List<String> words = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i < folded.length(); ) {
+            int c = folded.codePointAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (start < 0) {
+                    start = i;
+                }
+            } else if (start >= 0) {
+                words.add(folded.substring(start, i));
+                start = -1;
+            }
+            i += Character.charCount(c);
+        }
+        if (start >= 0) {
+            words.add(folded.substring(start));
+        }
+        return words;
+    }
+}
@@ -0,0 +1,166 @@
+package org.example.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inverted index from every three-character sequence of a lower-cased text
+ * to the documents containing it, for substring search. A query of three or
+ * more characters can only occur in a document that has all of its
+ * trigrams, so intersecting their posting lists gives the candidates, and a
+ * contains() check on those few gives exactly the same answer as scanning.
+ *
+ * Documents are identified by an int id. Each gets an ordinal when first
+ * added; posting lists are sorted by ordinal, so results come back in the
+ * order documents were added. Not thread-safe.
+ */
+public class TrigramIndex {
+    public static final int MIN_QUERY_LENGTH = 3;
+
+    private static final class Doc {
+        final int id;
+        final int ordinal;
+        String text;
+
+        Doc(int id, int ordinal, String text) {
+            this.id = id;
+            this.ordinal = ordinal;
+            this.text = text;
+        }
+    }
+
+    /** Sorted, growable array of ordinals. */
+    private static final class Postings {
+        int[] ordinals = new int[4];
+        int size;
+
+        void add(int ordinal) {
+            if (size > 0 && ordinals[size - 1] >= ordinal) {
+                int at = Arrays.binarySearch(ordinals, 0, size, ordinal);
+                if (at >= 0) {
+                    return;
+                }
+                insertAt(-at - 1, ordinal);
+                return;
+            }
+            insertAt(size, ordinal);
+        }
+
+        void remove(int ordinal) {
+            int at = Arrays.binarySearch(ordinals, 0, size, ordinal);
+            if (at >= 0) {
+                System.arraycopy(ordinals, at + 1, ordinals, at, size - at - 1);
+                size--;
+            }
+        }
+
+        boolean contains(int ordinal) {
+            return Arrays.binarySearch(ordinals, 0, size, ordinal) >= 0;
+        }
+
+        private void insertAt(int at, int ordinal) {
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+            }
+            System.arraycopy(ordinals, at, ordinals, at + 1, size - at);
+            ordinals[at] = ordinal;
+            size++;
+        }
+    }
+
+    private final Map<Long, Postings> postings = new HashMap<>();
+    private final IntHashMap<Doc> docsById = new IntHashMap<>();
+    private final IntHashMap<Doc> docsByOrdinal = new IntHashMap<>();
+    private int nextOrdinal = 0;
+
+    /**
+     * Indexes text (already lower-cased by the caller) for id, replacing what
+     * was indexed for it before. A document keeps its place in the order.
+     */
+    public void put(int id, String text) {
+        Doc doc = docsById.get(id);
+        if (doc == null) {
+            doc = new Doc(id, nextOrdinal++, text);
+            docsById.put(id, doc);
+            docsByOrdinal.put(doc.ordinal, doc);
+        } else if (doc.text.equals(text)) {
+            return;
+        } else {
+            unindex(doc);
+            doc.text = text;
+        }
+        int length = text.length();
+        for (int i = 0; i + MIN_QUERY_LENGTH <= length; i++) {
+            postings.computeIfAbsent(trigram(text, i), key -> new Postings()).add(doc.ordinal);
+        }
+    }
+
+    public void remove(int id) {
+        Doc doc = docsById.remove(id);
+        if (doc != null) {
+            unindex(doc);
+            docsByOrdinal.remove(doc.ordinal);
+        }
+    }
+
+    /**
+     * Ids of the documents whose text contains query (lower-cased by the
+     * caller), in the order they were added. Queries shorter than
+     * MIN_QUERY_LENGTH have no trigrams to look up; the caller must scan.
+     */
+    public List<Integer> search(String query) {
+        if (query.length() < MIN_QUERY_LENGTH) {
+            throw new IllegalArgumentException("Query too short for the trigram index: " + query);
+        }
+        List<Postings> lists = new ArrayList<>();
+        for (int i = 0; i + MIN_QUERY_LENGTH <= query.length(); i++) {
+            Postings list = postings.get(trigram(query, i));
+            if (list == null) {
+                return new ArrayList<>();
+            }
+            if (!lists.contains(list)) {
+                lists.add(list);
+            }
+        }
+        // Walk the shortest list and probe the others, so the cost follows the rarest trigram.
+        lists.sort((a, b) -> Integer.compare(a.size, b.size));
+        Postings shortest = lists.get(0);
+
+        List<Integer> result = new ArrayList<>();
+        for (int i = 0; i < shortest.size; i++) {
+            int ordinal = shortest.ordinals[i];
+            boolean inAll = true;
+            for (int j = 1; j < lists.size() && inAll; j++) {
+                inAll = lists.get(j).contains(ordinal);
+            }
+            if (inAll) {
+                Doc doc = docsByOrdinal.get(ordinal);
+                if (doc.text.contains(query)) {
+                    result.add(doc.id);
+                }
+            }
+        }
+        return result;
+    }
+
+    private void unindex(Doc doc) {
+        String text = doc.text;
+        for (int i = 0; i + MIN_QUERY_LENGTH <= text.length(); i++) {
+            long key = trigram(text, i);
+            Postings list = postings.get(key);
+            if (list != null) {
+                list.remove(doc.ordinal);
+                if (list.size == 0) {
+                    postings.remove(key);
+                }
+            }
+        }
+    }
+
+    private static long trigram(String text, int at) {
+        return ((long) text.charAt(at) << 32) | ((long) text.charAt(at + 1) << 16) | text.charAt(at + 2);
+    }
+}
@@ -0,0 +1,85 @@
+package org.example.backend;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.example.backend.CircuitBreaker.State;
+import org.junit.jupiter.api.Test;
+
+class CircuitBreakerTest {
+    private static final long OPEN_MILLIS = 50;
+
+    private static CircuitBreaker opened() {
+        CircuitBreaker breaker = new CircuitBreaker(2, OPEN_MILLIS);
+        breaker.recordFailure();
+        breaker.recordFailure();
+        return breaker;
+    }
+
+    private static void waitOutOpenPeriod() throws InterruptedException {
+        Thread.sleep(OPEN_MILLIS + 20);
+    }
+
+    @Test
+    void opensOnlyAfterThresholdConsecutiveFailures() {
+        CircuitBreaker breaker = new CircuitBreaker(3, OPEN_MILLIS);
+        breaker.recordFailure();
+        breaker.recordFailure();
+        breaker.recordSuccess();
+        breaker.recordFailure();
+        breaker.recordFailure();
+        assertEquals(State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+
+        breaker.recordFailure();
+        assertEquals(State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+    }
+
+    @Test
+    void letsOneProbeThroughAfterOpenPeriod() throws InterruptedException {
+        CircuitBreaker breaker = opened();
+        waitOutOpenPeriod();
+
+        assertTrue(breaker.allowRequest());
+        assertEquals(State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+    }
+
+    @Test
+    void successfulProbeCloses() throws InterruptedException {
+        CircuitBreaker breaker = opened();
+        waitOutOpenPeriod();
+        breaker.allowRequest();
+
+        breaker.recordSuccess();
+        assertEquals(State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+
+        // The failure count starts over.
+        breaker.recordFailure();
+        assertEquals(State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void failedProbeReopensForAnotherPeriod() throws InterruptedException {
+        CircuitBreaker breaker = opened();
+        waitOutOpenPeriod();
+        breaker.allowRequest();
+
+        breaker.recordFailure();
+        assertEquals(State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+
+        waitOutOpenPeriod();
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    void thresholdBelowOneOpensOnFirstFailure() {
+        CircuitBreaker breaker = new CircuitBreaker(0, OPEN_MILLIS);
+        breaker.recordFailure();
+        assertEquals(State.OPEN, breaker.getState());
+    }
+}
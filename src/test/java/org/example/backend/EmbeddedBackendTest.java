@@ -0,0 +1,235 @@
+package org.example.backend;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.example.models.Book;
+import org.example.models.Borrowing;
+import org.example.models.Member;
+import org.example.storage.LogCompactor;
+import org.example.storage.RecordStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class EmbeddedBackendTest {
+    @TempDir
+    Path dir;
+
+    private EmbeddedBackend backend;
+
+    @BeforeEach
+    void open() {
+        System.setProperty("storage.dir", dir.toString());
+        backend = new EmbeddedBackend();
+    }
+
+    @AfterEach
+    void close() {
+        backend.close();
+        RecordStore.closeAll();
+        LogCompactor.shutdown();
+        System.clearProperty("storage.dir");
+    }
+
+    private void reopen() {
+        backend.close();
+        RecordStore.closeAll();
+        LogCompactor.shutdown();
+        backend = new EmbeddedBackend();
+    }
+
+    private int copies(int bookId) throws StorageException {
+        for (Book book : backend.books().page(bookId - 1, 1)) {
+            if (book.getBookId() == bookId) {
+                return book.getAvailableCopies();
+            }
+        }
+        return -1;
+    }
+
+    @Test
+    void borrowAndReturnSurviveRestart() throws StorageException {
+        backend.books().insert(new Book(1, "Dune", "Herbert", "SF", 2));
+        backend.members().insert(new Member(7, "Ann", "Ann@Example.org", "555"));
+        Borrowing borrowing = new Borrowing(0, 1, 7, new Date(1000), null);
+        assertEquals(1, backend.borrowings().borrow(borrowing));
+
+        reopen();
+        assertEquals(1, copies(1));
+        assertEquals(7, backend.members().findByEmail(" ann@example.org").getId());
+        assertEquals(2, backend.borrowings().returnBook(1, 7, new Date(2000)));
+        assertEquals(-1, backend.borrowings().returnBook(1, 7, new Date(3000)));
+
+        reopen();
+        assertEquals(2, copies(1));
+        Borrowing closed = backend.borrowings().page(0, 10).get(0);
+        assertEquals(borrowing.getId(), closed.getId());
+        assertEquals(new Date(2000), closed.getReturnDate());
+    }
+
+    @Test
+    void tornTransactionIsDroppedAsAWhole() throws Exception {
+        backend.books().insert(new Book(1, "Dune", "Herbert", "SF", 1));
+        backend.members().insert(new Member(7, "Ann", "ann@example.org", "555"));
+        backend.borrowings().borrow(new Borrowing(0, 1, 7, new Date(1000), null));
+        backend.close();
+        RecordStore.closeAll();
+        try (RandomAccessFile file = new RandomAccessFile(dir.resolve("library-db.wal").toFile(), "rw")) {
+            file.setLength(file.length() - 1);
+        }
+
+        backend = new EmbeddedBackend();
+        // Neither the copy nor the loan from the borrow is there.
+        assertEquals(1, copies(1));
+        assertTrue(backend.borrowings().page(0, 10).isEmpty());
+        assertEquals(-1, backend.borrowings().returnBook(1, 7, new Date(2000)));
+    }
+
+    @Test
+    void stateSurvivesCompaction() throws Exception {
+        backend.books().insert(new Book(1, "Dune", "Herbert", "SF", 3));
+        backend.books().insert(new Book(2, "Emma", "Austen", "Novel", 1));
+        backend.books().delete(2);
+        backend.borrowings().borrow(new Borrowing(0, 1, 7, new Date(1000), null));
+        RecordStore.open("library-db", null).compact();
+        backend.books().insert(new Book(3, "Ulysses", "Joyce", "Novel", 1));
+
+        reopen();
+        List<Integer> ids = new ArrayList<>();
+        for (Book book : backend.books().page(0, 10)) {
+            ids.add(book.getBookId());
+        }
+        assertEquals(List.of(1, 3), ids);
+        assertEquals(2, copies(1));
+        assertEquals(3, backend.borrowings().returnBook(1, 7, new Date(2000)));
+    }
+
+    @Test
+    void compactingDuringCommitsLosesNothing() throws Exception {
+        for (int id = 1; id <= 4; id++) {
+            backend.books().insert(new Book(id, "Book " + id, "Author", "Genre", 5));
+        }
+        RecordStore store = RecordStore.open("library-db", null);
+        AtomicBoolean stop = new AtomicBoolean();
+        ExecutorService pool = Executors.newFixedThreadPool(5);
+        try {
+            Future<?> compactor = pool.submit(() -> {
+                while (!stop.get()) {
+                    store.compact();
+                }
+                return null;
+            });
+            List<Future<?>> desks = new ArrayList<>();
+            for (int desk = 0; desk < 4; desk++) {
+                int memberId = desk + 1;
+                desks.add(pool.submit(() -> {
+                    for (int i = 0; i < 200; i++) {
+                        int bookId = 1 + i % 4;
+                        if (backend.borrowings().borrow(new Borrowing(0, bookId, memberId, new Date(), null)) >= 0) {
+                            backend.borrowings().returnBook(bookId, memberId, new Date());
+                        }
+                    }
+                    backend.borrowings().borrow(new Borrowing(0, memberId, memberId, new Date(), null));
+                    return null;
+                }));
+            }
+            for (Future<?> desk : desks) {
+                desk.get();
+            }
+            stop.set(true);
+            compactor.get();
+        } finally {
+            pool.shutdown();
+        }
+
+        String before = dump();
+        reopen();
+        assertEquals(before, dump());
+        for (int id = 1; id <= 4; id++) {
+            assertEquals(4, copies(id));
+        }
+    }
+
+    /** Every book and borrowing as text, to compare the state before and after a restart. */
+    private String dump() throws StorageException {
+        StringBuilder out = new StringBuilder();
+        for (Book book : backend.books().page(0, 100)) {
+            out.append(book.getBookId()).append(':').append(book.getAvailableCopies()).append('\n');
+        }
+        for (Borrowing borrowing : backend.borrowings().page(0, 10_000)) {
+            out.append(borrowing.getId()).append(':').append(borrowing.getBookId()).append(':')
+                    .append(borrowing.getReturnDate() == null).append('\n');
+        }
+        return out.toString();
+    }
+
+    @Test
+    void pullChangesReportsEachChangeOnce() throws StorageException {
+        backend.books().insert(new Book(1, "Dune", "Herbert", "SF", 3));
+        backend.books().insert(new Book(2, "Emma", "Austen", "Novel", 1));
+        List<Integer> changed = new ArrayList<>();
+        List<Integer> deleted = new ArrayList<>();
+        long watermark = backend.books().pullChanges(0, book -> changed.add(book.getBookId()), deleted::add);
+        assertEquals(List.of(1, 2), changed.stream().sorted().toList());
+
+        changed.clear();
+        backend.books().delete(2);
+        backend.books().update(new Book(1, "Dune", "Herbert", "SF", 4));
+        backend.books().pullChanges(watermark, book -> changed.add(book.getBookId()), deleted::add);
+        assertEquals(List.of(1), changed);
+        assertEquals(List.of(2), deleted);
+    }
+
+    @Test
+    void seedsOnlyATableThatNeverHeldRows() throws StorageException {
+        assertTrue(backend.books().seed(List.of(new Book(5, "Dune", "Herbert", "SF", 2))));
+        assertFalse(backend.books().seed(List.of(new Book(6, "Emma", "Austen", "Novel", 1))));
+        backend.books().delete(5);
+        assertFalse(backend.books().seed(List.of(new Book(6, "Emma", "Austen", "Novel", 1))));
+
+        assertTrue(backend.members().seed(List.of(new Member(9, "Bob", "bob@example.org", null))));
+        assertEquals(9, backend.members().findByEmail("BOB@example.org").getId());
+        assertNull(backend.members().findByEmail("ann@example.org"));
+    }
+
+    @Test
+    void concurrentBorrowsTakeEachCopyOnce() throws Exception {
+        backend.books().insert(new Book(1, "Dune", "Herbert", "SF", 20));
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int member = 1; member <= 50; member++) {
+                int memberId = member;
+                results.add(pool.submit(() ->
+                        backend.borrowings().borrow(new Borrowing(0, 1, memberId, new Date(), null))));
+            }
+            int lent = 0;
+            for (Future<Integer> result : results) {
+                if (result.get() >= 0) {
+                    lent++;
+                }
+            }
+            assertEquals(20, lent);
+        } finally {
+            pool.shutdown();
+        }
+
+        reopen();
+        assertEquals(0, copies(1));
+        assertEquals(20, backend.borrowings().page(0, 100).size());
+    }
+}
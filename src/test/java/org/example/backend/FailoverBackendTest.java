@@ -0,0 +1,115 @@
+package org.example.backend;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.List;
+
+import org.example.models.Book;
+import org.example.storage.LogCompactor;
+import org.example.storage.RecordStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FailoverBackendTest {
+    @TempDir
+    Path dir;
+
+    private FakeBackend primary;
+    private FailoverBackend backend;
+
+    @BeforeEach
+    void open() {
+        System.setProperty("storage.dir", dir.toString());
+        // The background retry never fires during a test; drains happen on calls.
+        System.setProperty("db.breaker.openMillis", "600000");
+        System.setProperty("db.breaker.failureThreshold", "3");
+        primary = new FakeBackend();
+        backend = new FailoverBackend(primary);
+    }
+
+    @AfterEach
+    void close() {
+        primary.failure = null;
+        backend.close();
+        RecordStore.closeAll();
+        LogCompactor.shutdown();
+        System.clearProperty("storage.dir");
+        System.clearProperty("db.breaker.openMillis");
+        System.clearProperty("db.breaker.failureThreshold");
+    }
+
+    private static Book book(int id) {
+        return new Book(id, "Book " + id, "Author", "Genre", 1);
+    }
+
+    /** Any read drains the outbox first. */
+    private void drain() throws StorageException {
+        backend.books().pullChanges(0, book -> { }, id -> { });
+    }
+
+    @Test
+    void unreachableDatabaseQueuesWritesAndSendsThemInOrder() throws StorageException {
+        primary.failure = JdbcBackend.failure(new SQLTransientConnectionException("pool exhausted", "08001"));
+        backend.books().insert(book(1));
+        backend.books().update(book(1));
+        assertTrue(primary.writes.isEmpty());
+        assertTrue(backend.isDegraded());
+
+        primary.failure = null;
+        drain();
+        assertEquals(List.of("book.insert:1", "book.update:1"), primary.writes);
+        assertFalse(backend.isDegraded());
+    }
+
+    @Test
+    void undecidedFailureKeepsQueuedWrite() throws StorageException {
+        primary.failure = JdbcBackend.failure(new SQLTransientConnectionException("down", "08006"));
+        backend.books().insert(book(1));
+
+        // Neither unreachable nor a definite refusal: the write must not be given up.
+        primary.failure = new StorageException(new SQLException("permission denied", "42501"));
+        drain();
+        assertTrue(backend.isDegraded());
+
+        primary.failure = null;
+        drain();
+        assertEquals(List.of("book.insert:1"), primary.writes);
+    }
+
+    @Test
+    void constraintViolationDropsOnlyThatWrite() throws StorageException {
+        primary.failure = JdbcBackend.failure(new SQLTransientConnectionException("down", "08006"));
+        backend.books().insert(book(1));
+        backend.books().insert(book(2));
+
+        primary.failure = JdbcBackend.failure(new SQLException("duplicate key", "23505"));
+        primary.failOnly = "book.insert:1";
+        drain();
+
+        assertEquals(List.of("book.insert:2"), primary.writes);
+        assertFalse(backend.isDegraded());
+    }
+
+    @Test
+    void sqlStateDecidesHowAFailureIsTreated() {
+        StorageException timeout = JdbcBackend.failure(new SQLTransientConnectionException("timed out", "08001"));
+        assertTrue(timeout.isUnavailable());
+        assertFalse(timeout.isRejected());
+
+        assertTrue(JdbcBackend.failure(new SQLException("too many connections", "53300")).isUnavailable());
+        assertTrue(JdbcBackend.failure(new SQLException("deadlock", "40P01")).isUnavailable());
+        assertTrue(JdbcBackend.failure(new SQLException("duplicate key", "23505")).isRejected());
+        assertTrue(JdbcBackend.failure(new SQLException("bad date", "22007")).isRejected());
+
+        StorageException undecided = JdbcBackend.failure(new SQLException("no state"));
+        assertFalse(undecided.isUnavailable());
+        assertFalse(undecided.isRejected());
+    }
+}
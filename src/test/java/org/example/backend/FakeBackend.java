@@ -0,0 +1,221 @@
+package org.example.backend;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+import org.example.models.Book;
+import org.example.models.Borrowing;
+import org.example.models.Member;
+
+/**
+ * A backend for tests that records every write it is sent and fails them
+ * (or the one named by failOnly) with a chosen exception while one is set.
+ * Reads return nothing, except members looked up by id or email in
+ * memberRows and the book changes in bookChanges.
+ */
+public class FakeBackend implements StorageBackend {
+    public final List<String> writes = Collections.synchronizedList(new ArrayList<>());
+    public volatile StorageException failure;
+    /** If set, only this write fails. */
+    public volatile String failOnly;
+    /** What borrow() returns when it does not fail. */
+    public volatile int borrowResult = 0;
+    /** Ids insertAll turns down. */
+    public volatile List<Integer> rejectedBooks = List.of();
+    /** How many times insertAll was called. */
+    public final AtomicInteger bookBatches = new AtomicInteger();
+    /** A book written (or deleted, if book is null) at watermark at. */
+    public record BookChange(long at, int bookId, Book book) {
+    }
+
+    /** What books().pullChanges hands out: every change at or after the watermark asked for. */
+    public final List<BookChange> bookChanges = Collections.synchronizedList(new ArrayList<>());
+    /** The watermark each books().pullChanges call asked from. */
+    public final List<Long> bookPulls = Collections.synchronizedList(new ArrayList<>());
+    /** Members findById and findByEmail answer from. */
+    public final Map<Integer, Member> memberRows = new ConcurrentHashMap<>();
+    /** If set, findByEmail answers with this row instead, as a read that raced with a delete would. */
+    public volatile Member staleMember;
+    /** How many times the members were read. */
+    public final AtomicInteger memberReads = new AtomicInteger();
+    private int nextBorrowingId = 100;
+
+    private final BookStore books = new BookStore() {
+        @Override
+        public void insert(Book book) throws StorageException {
+            write("book.insert:" + book.getBookId());
+        }
+
+        @Override
+        public List<Integer> insertAll(List<Book> list) throws StorageException {
+            bookBatches.incrementAndGet();
+            for (Book book : list) {
+                write("book.insert:" + book.getBookId());
+            }
+            return rejectedBooks;
+        }
+
+        @Override
+        public boolean update(Book book) throws StorageException {
+            write("book.update:" + book.getBookId());
+            return true;
+        }
+
+        @Override
+        public boolean delete(int bookId) throws StorageException {
+            write("book.delete:" + bookId);
+            return true;
+        }
+
+        @Override
+        public long pullChanges(long since, Consumer<Book> changed, IntConsumer deleted) {
+            bookPulls.add(since);
+            long next = since;
+            synchronized (bookChanges) {
+                for (BookChange change : bookChanges) {
+                    if (change.at() < since) {
+                        continue;
+                    }
+                    if (change.book() == null) {
+                        deleted.accept(change.bookId());
+                    } else {
+                        changed.accept(change.book());
+                    }
+                    next = Math.max(next, change.at() + 1);
+                }
+            }
+            return next;
+        }
+
+        @Override
+        public List<Book> page(int afterId, int limit) {
+            return new ArrayList<>();
+        }
+    };
+
+    private final MemberStore members = new MemberStore() {
+        @Override
+        public void insert(Member member) throws StorageException {
+            write("member.insert:" + member.getId());
+        }
+
+        @Override
+        public boolean update(Member member) throws StorageException {
+            write("member.update:" + member.getId());
+            return true;
+        }
+
+        @Override
+        public boolean delete(int memberId) throws StorageException {
+            write("member.delete:" + memberId);
+            return true;
+        }
+
+        @Override
+        public Member findById(int memberId) {
+            memberReads.incrementAndGet();
+            return memberRows.get(memberId);
+        }
+
+        @Override
+        public Member findByEmail(String email) {
+            memberReads.incrementAndGet();
+            if (staleMember != null) {
+                return staleMember;
+            }
+            for (Member member : memberRows.values()) {
+                if (member.getEmail().equalsIgnoreCase(email)) {
+                    return member;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public long pullChanges(long since, Consumer<Member> changed, IntConsumer deleted) {
+            memberReads.incrementAndGet();
+            return since;
+        }
+
+        @Override
+        public List<Member> page(int afterId, int limit) {
+            memberReads.incrementAndGet();
+            return new ArrayList<>();
+        }
+    };
+
+    private final BorrowingStore borrowings = new BorrowingStore() {
+        @Override
+        public int borrow(Borrowing borrowing) throws StorageException {
+            write("borrow:" + borrowing.getBookId() + ":" + borrowing.getMemberId());
+            if (borrowResult >= 0) {
+                synchronized (FakeBackend.this) {
+                    borrowing.setId(nextBorrowingId++);
+                }
+            }
+            return borrowResult;
+        }
+
+        @Override
+        public int returnBook(int bookId, int memberId, Date returnDate) throws StorageException {
+            write("return:" + bookId + ":" + memberId);
+            return 1;
+        }
+
+        @Override
+        public boolean delete(int id) throws StorageException {
+            write("borrowing.delete:" + id);
+            return true;
+        }
+
+        @Override
+        public long pullChanges(long since, Consumer<Borrowing> changed, IntConsumer deleted) {
+            return since;
+        }
+
+        @Override
+        public List<Borrowing> page(int afterId, int limit) {
+            return new ArrayList<>();
+        }
+    };
+
+    private void write(String call) throws StorageException {
+        StorageException failing = failure;
+        String only = failOnly;
+        if (failing != null && (only == null || only.equals(call))) {
+            throw failing;
+        }
+        writes.add(call);
+    }
+
+    @Override
+    public String getName() {
+        return "fake";
+    }
+
+    @Override
+    public BookStore books() {
+        return books;
+    }
+
+    @Override
+    public MemberStore members() {
+        return members;
+    }
+
+    @Override
+    public BorrowingStore borrowings() {
+        return borrowings;
+    }
+
+    @Override
+    public void close() {
+    }
+}
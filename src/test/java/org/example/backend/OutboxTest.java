@@ -0,0 +1,95 @@
+package org.example.backend;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.example.storage.LogCompactor;
+import org.example.storage.RecordStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class OutboxTest {
+    @TempDir
+    Path dir;
+
+    @BeforeEach
+    void useTempDir() {
+        System.setProperty("storage.dir", dir.toString());
+    }
+
+    @AfterEach
+    void closeStores() {
+        RecordStore.closeAll();
+        LogCompactor.shutdown();
+        System.clearProperty("storage.dir");
+    }
+
+    private static Outbox reopen() throws IOException {
+        RecordStore.closeAll();
+        LogCompactor.shutdown();
+        return new Outbox("outbox", 1000);
+    }
+
+    private static List<Long> seqs(List<Outbox.Entry> entries) {
+        List<Long> seqs = new ArrayList<>();
+        for (Outbox.Entry entry : entries) {
+            seqs.add(entry.seq());
+        }
+        return seqs;
+    }
+
+    @Test
+    void pendingEntriesSurviveRestartInOrder() throws IOException {
+        Outbox outbox = new Outbox("outbox", 1000);
+        Outbox.Entry borrow = outbox.add("borrow", 0, new String[]{"4", "9", null});
+        outbox.add("update", 4, new String[]{"Dune", "Herbert\twith tab"});
+        outbox.addAll("insert", List.of(5, 6), List.of(new String[]{"Emma"}, new String[]{"Ulysses"}));
+        outbox.remove(outbox.peek());
+
+        assertEquals(-1001, borrow.id());
+
+        Outbox reopened = reopen();
+        assertEquals(List.of(2L, 3L, 4L), seqs(reopened.peek(10)));
+        assertArrayEquals(new String[]{"Dune", "Herbert\twith tab"}, reopened.peek().fields());
+        assertEquals(4, reopened.lastSeq());
+        assertEquals(-1005, reopened.add("borrow", 0, new String[]{"5", "9", null}).id());
+    }
+
+    @Test
+    void removeAllIsDurable() throws IOException {
+        Outbox outbox = new Outbox("outbox", 1000);
+        outbox.addAll("insert", List.of(1, 2, 3), List.of(new String[]{"a"}, new String[]{"b"}, new String[]{"c"}));
+        outbox.removeAll(outbox.peek(2));
+
+        assertEquals(1, outbox.size());
+        Outbox reopened = reopen();
+        assertEquals(List.of(3L), seqs(reopened.peek(10)));
+        reopened.removeAll(reopened.peek(10));
+        assertTrue(reopened.isEmpty());
+        assertNull(reopen().peek());
+    }
+
+    @Test
+    void compactionKeepsOnlyPendingEntries() throws IOException {
+        Outbox outbox = new Outbox("outbox", 1000);
+        for (int id = 1; id <= 5; id++) {
+            outbox.add("insert", id, new String[]{"book " + id});
+        }
+        outbox.removeAll(outbox.peek(3));
+        RecordStore.open("outbox", null).compact();
+        outbox.add("insert", 6, new String[]{"book 6"});
+
+        Outbox reopened = reopen();
+        assertEquals(List.of(4L, 5L, 6L), seqs(reopened.peek(10)));
+        assertArrayEquals(new String[]{"book 4"}, reopened.peek().fields());
+    }
+}
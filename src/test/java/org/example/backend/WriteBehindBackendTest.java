@@ -0,0 +1,143 @@
+package org.example.backend;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.example.models.Book;
+import org.example.models.Borrowing;
+import org.example.models.Member;
+import org.example.storage.LogCompactor;
+import org.example.storage.RecordStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class WriteBehindBackendTest {
+    @TempDir
+    Path dir;
+
+    private FakeBackend database;
+    private StorageBackend backend;
+    private final List<String> events = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    void configure() {
+        System.setProperty("storage.dir", dir.toString());
+        System.setProperty("storage.writeBehind.maxLagMillis", "5");
+        System.setProperty("db.breaker.openMillis", "600000");
+        database = new FakeBackend();
+    }
+
+    @AfterEach
+    void close() {
+        database.failure = null;
+        backend.close();
+        RecordStore.closeAll();
+        LogCompactor.shutdown();
+        System.clearProperty("storage.dir");
+        System.clearProperty("storage.writeBehind.maxLagMillis");
+        System.clearProperty("db.breaker.openMillis");
+    }
+
+    private WriteBehindBackend open(StorageBackend primary) throws IOException {
+        WriteBehindBackend writeBehind = new WriteBehindBackend(primary);
+        writeBehind.borrowings().setQueuedBorrowListener(new BorrowingStore.QueuedBorrowListener() {
+            @Override
+            public void resolved(int provisionalId, Borrowing applied) {
+                events.add("resolved " + provisionalId + " -> " + (applied == null ? "null" : applied.getId()));
+            }
+
+            @Override
+            public void requeued(int provisionalId, int newProvisionalId) {
+                events.add("requeued " + provisionalId + " -> " + newProvisionalId);
+            }
+        });
+        backend = writeBehind;
+        return writeBehind;
+    }
+
+    private static Book book(int id) {
+        return new Book(id, "Book " + id, "Author", "Genre", 1);
+    }
+
+    @Test
+    void writesToOneRowAreMergedInABatch() throws Exception {
+        // Long enough for all of them to go in one batch.
+        System.setProperty("storage.writeBehind.maxLagMillis", "300");
+        WriteBehindBackend writeBehind = open(database);
+        writeBehind.books().insert(book(1));
+        writeBehind.books().update(book(1));
+        writeBehind.books().insert(book(2));
+        writeBehind.books().delete(2);
+        writeBehind.members().insert(new Member(5, "Ann", "ann@example.org", null));
+        writeBehind.members().update(new Member(5, "Ann B", "ann@example.org", null));
+
+        assertTrue(writeBehind.awaitDurable(5_000));
+        assertEquals(List.of("member.insert:5", "book.insert:1"), database.writes);
+    }
+
+    @Test
+    void borrowIsABarrier() throws Exception {
+        WriteBehindBackend writeBehind = open(database);
+        writeBehind.books().insert(book(1));
+        Borrowing borrowing = new Borrowing(0, 1, 5, new Date(), null);
+        assertEquals(BorrowingStore.QUEUED, writeBehind.borrowings().borrow(borrowing));
+        writeBehind.books().update(book(1));
+
+        assertTrue(writeBehind.awaitDurable(5_000));
+        assertEquals(List.of("book.insert:1", "borrow:1:5", "book.update:1"), database.writes);
+        assertEquals(List.of("resolved " + borrowing.getId() + " -> 100"), events);
+    }
+
+    @Test
+    void undecidedFailureKeepsTheWriteQueued() throws Exception {
+        WriteBehindBackend writeBehind = open(database);
+        database.failure = new StorageException(new SQLException("permission denied", "42501"));
+        writeBehind.books().insert(book(1));
+        assertFalse(writeBehind.awaitDurable(100));
+
+        database.failure = null;
+        assertTrue(writeBehind.awaitDurable(5_000));
+        assertEquals(List.of("book.insert:1"), database.writes);
+    }
+
+    @Test
+    void rejectedWriteIsDropped() throws Exception {
+        WriteBehindBackend writeBehind = open(database);
+        database.failure = new StorageException("Member with ID 5 already exists", false, true);
+        database.failOnly = "member.insert:5";
+        writeBehind.members().insert(new Member(5, "Ann", "ann@example.org", null));
+        writeBehind.members().insert(new Member(6, "Bob", "bob@example.org", null));
+
+        assertTrue(writeBehind.awaitDurable(5_000));
+        assertEquals(List.of("member.insert:6"), database.writes);
+    }
+
+    @Test
+    void borrowQueuedAgainByFailoverIsResolvedOnceByIt() throws Exception {
+        FailoverBackend failover = new FailoverBackend(database);
+        WriteBehindBackend writeBehind = open(failover);
+        database.failure = JdbcBackend.failure(new SQLTransientConnectionException("down", "08006"));
+
+        Borrowing borrowing = new Borrowing(0, 1, 5, new Date(), null);
+        writeBehind.borrowings().borrow(borrowing);
+        assertTrue(writeBehind.awaitDurable(5_000));
+        // Handed on and queued again: only the id changes, nothing is decided.
+        assertEquals(List.of("requeued " + borrowing.getId() + " -> -1"), events);
+
+        database.failure = null;
+        writeBehind.books().pullChanges(0, book -> { }, id -> { });
+        assertEquals(List.of("requeued " + borrowing.getId() + " -> -1", "resolved -1 -> 100"), events);
+    }
+}
@@ -0,0 +1,69 @@
+package org.example.context;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.example.services.BookService;
+import org.example.services.BorrowingService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LibraryContextTest {
+    @TempDir
+    Path dir;
+
+    private LibraryContext context;
+
+    @BeforeEach
+    void open() {
+        System.setProperty("storage.dir", dir.toString());
+        System.setProperty("storage.backend", "embedded");
+        context = new LibraryContext();
+    }
+
+    @AfterEach
+    void close() {
+        context.close();
+        System.clearProperty("storage.dir");
+        System.clearProperty("storage.backend");
+    }
+
+    @Test
+    void eachDaoAndServiceIsBuiltOnce() {
+        assertSame(context.getBookDAO(), context.getBookDAO());
+        assertSame(context.getMemberDAO(), context.getMemberDAO());
+        assertSame(context.getBorrowingDAO(), context.getBorrowingDAO());
+        assertSame(context.getBookService(), context.getBookService());
+        assertSame(context.getBorrowingService(), context.getBorrowingService());
+        assertSame(context.getStorageBackend(), context.getStorageBackend());
+    }
+
+    @Test
+    void servicesShareOneCatalog() {
+        BookService books = context.getBookService();
+        BorrowingService borrowings = context.getBorrowingService();
+        int bookId = books.addBook("Dune", "Herbert", "SF", 1);
+        int memberId = context.getMemberService().addMember("Ada", "ada@example.org", "555");
+
+        assertTrue(borrowings.borrowBook(bookId, memberId));
+        // The copy taken through the borrowing service is gone from the book service's catalog too.
+        assertEquals(0, books.getBookById(bookId).getAvailableCopies());
+        assertEquals(memberId, borrowings.findMemberByEmail("ada@example.org"));
+    }
+
+    @Test
+    void nothingIsLoadedUntilItIsAskedFor() throws Exception {
+        context.getMemberDAO();
+
+        assertTrue(Files.exists(dir.resolve("members.wal")));
+        assertFalse(Files.exists(dir.resolve("books.wal")));
+        assertFalse(Files.exists(dir.resolve("borrowings.wal")));
+    }
+}
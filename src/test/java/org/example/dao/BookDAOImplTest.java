@@ -0,0 +1,186 @@
+package org.example.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.example.backend.FakeBackend;
+import org.example.models.Book;
+import org.example.storage.LogCompactor;
+import org.example.storage.RecordStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BookDAOImplTest {
+    @TempDir
+    Path dir;
+
+    private final FakeBackend database = new FakeBackend();
+
+    @BeforeEach
+    void configure() {
+        System.setProperty("storage.dir", dir.toString());
+    }
+
+    @AfterEach
+    void close() {
+        RecordStore.closeAll();
+        LogCompactor.shutdown();
+        System.clearProperty("storage.dir");
+    }
+
+    @Test
+    void titleWithCommasAndTabsSurvivesARestart() {
+        BookDAO books = new BookDAOImpl(database);
+        books.addBook(new Book(1, "Dune, Messiah", "Herbert\tFrank", "SF\\Classic", 3));
+
+        RecordStore.closeAll();
+        Book reloaded = new BookDAOImpl(database).getBookById(1);
+        assertEquals("Dune, Messiah", reloaded.getTitle());
+        assertEquals("Herbert\tFrank", reloaded.getAuthor());
+        assertEquals("SF\\Classic", reloaded.getGenre());
+        assertEquals(3, reloaded.getAvailableCopies());
+    }
+
+    @Test
+    void commaSeparatedBooksFileIsStillRead() throws IOException {
+        Files.writeString(dir.resolve("books.txt"), "7,Emma,Austen,Classic,2\n");
+
+        Book book = new BookDAOImpl(database).getBookById(7);
+        assertEquals("Emma", book.getTitle());
+        assertEquals("Austen", book.getAuthor());
+        assertEquals(2, book.getAvailableCopies());
+    }
+
+    @Test
+    void importSkipsDuplicatesAndSendsOneBatch() {
+        BookDAO books = new BookDAOImpl(database);
+        books.addBook(new Book(1, "Dune", "Herbert", "SF", 3));
+        database.writes.clear();
+
+        int added = books.addBooks(List.of(
+                new Book(1, "Dune Messiah", "Herbert", "SF", 1),
+                new Book(2, "Emma", "Austen", "Classic", 2),
+                new Book(3, "Persuasion", "Austen", "Classic", 1),
+                new Book(3, "Mansfield Park", "Austen", "Classic", 1),
+                new Book(4, "emma", "AUSTEN", "Classic", 5)));
+
+        assertEquals(2, added);
+        assertEquals(1, database.bookBatches.get());
+        assertEquals(List.of("book.insert:2", "book.insert:3"), database.writes);
+        assertEquals("Dune", books.getBookById(1).getTitle());
+        assertThrows(NoSuchElementException.class, () -> books.getBookById(4));
+    }
+
+    @Test
+    void booksTheDatabaseRejectsAreDroppedAgain() {
+        BookDAO books = new BookDAOImpl(database);
+        database.rejectedBooks = List.of(3);
+
+        assertEquals(2, books.addBooks(List.of(
+                new Book(2, "Emma", "Austen", "Classic", 2),
+                new Book(3, "Persuasion", "Austen", "Classic", 1),
+                new Book(4, "Ulysses", "Joyce", "Modern", 1))));
+        assertThrows(NoSuchElementException.class, () -> books.getBookById(3));
+
+        RecordStore.closeAll();
+        BookDAO reloaded = new BookDAOImpl(database);
+        assertThrows(NoSuchElementException.class, () -> reloaded.getBookById(3));
+        assertEquals(2, reloaded.getAllBooks().size());
+    }
+
+    @Test
+    void syncPullsOnlyWhatChangedSinceItsWatermark() {
+        database.bookChanges.add(new FakeBackend.BookChange(1, 1, new Book(1, "Dune", "Herbert", "SF", 3)));
+        database.bookChanges.add(new FakeBackend.BookChange(2, 2, new Book(2, "Emma", "Austen", "Classic", 2)));
+        BookDAO books = new BookDAOImpl(database);
+        assertEquals(2, books.getAllBooks().size());
+
+        database.bookChanges.add(new FakeBackend.BookChange(3, 1, new Book(1, "Dune", "Herbert", "SF", 1)));
+        database.bookChanges.add(new FakeBackend.BookChange(4, 2, null));
+        assertEquals(2, books.sync());
+        assertEquals(3L, database.bookPulls.get(database.bookPulls.size() - 1));
+        assertEquals(1, books.getBookById(1).getAvailableCopies());
+        assertThrows(NoSuchElementException.class, () -> books.getBookById(2));
+        assertEquals(0, books.sync());
+
+        // The watermark and the pulled rows are kept with the log, so a restart picks up where it left off.
+        RecordStore.closeAll();
+        database.bookPulls.clear();
+        BookDAO reloaded = new BookDAOImpl(database);
+        assertEquals(List.of(5L), database.bookPulls);
+        assertEquals(1, reloaded.getAllBooks().size());
+        assertEquals(1, reloaded.getBookById(1).getAvailableCopies());
+    }
+
+    @Test
+    void titleLookupFindsEveryEditionWhateverTheCaseOrSpacing() {
+        BookDAO books = new BookDAOImpl(database);
+        books.addBook(new Book(1, "The Hobbit", "Tolkien", "Fantasy", 2));
+        books.addBook(new Book(2, "the  HOBBIT ", "Anonymous", "Parody", 1));
+        books.addBook(new Book(3, "Dune", "Herbert", "SF", 1));
+
+        List<Book> editions = books.findBooksByTitle("THE hobbit");
+        assertEquals(2, editions.size());
+        assertEquals(List.of(1, 2), editions.stream().map(Book::getBookId).sorted().toList());
+        assertEquals(3, books.searchBookByTitle("  dune").getBookId());
+
+        books.updateBook(new Book(3, "Dune Messiah", "Herbert", "SF", 1));
+        assertTrue(books.findBooksByTitle("dune").isEmpty());
+        assertEquals(3, books.searchBookByTitle("dune messiah").getBookId());
+    }
+
+    @Test
+    void sameTitleAndAuthorIsADuplicate() {
+        BookDAO books = new BookDAOImpl(database);
+        assertTrue(books.addBook(new Book(1, "The Hobbit", "J. R. R. Tolkien", "Fantasy", 2)));
+
+        assertFalse(books.addBook(new Book(2, "THE HOBBIT", "j. r. r.  tolkien", "Fantasy", 1)));
+        assertFalse(books.addBook(new Book(1, "Another", "Someone", "Fantasy", 1)));
+        assertTrue(books.addBook(new Book(3, "The Hobbit", "Anonymous", "Parody", 1)));
+        assertEquals(2, books.getAllBooks().size());
+    }
+
+    @Test
+    void sortedListingsFollowAddsEditsAndDeletes() {
+        BookDAO books = new BookDAOImpl(database);
+        books.addBook(new Book(1, "ulysses", "Joyce", "Modern", 1));
+        books.addBook(new Book(2, "Dune", "Herbert", "SF", 1));
+        books.addBook(new Book(3, "Emma", "Austen", "Classic", 1));
+        books.addBook(new Book(4, "Dune", "Anonymous", "Parody", 1));
+
+        assertEquals(List.of(2, 4, 3, 1), ids(books.sortBooksByTitle()));
+        assertEquals(List.of(3, 1, 4, 2), ids(books.sortBooksByGenre()));
+
+        books.updateBook(new Book(3, "Persuasion", "Austen", "Romance", 1));
+        books.deleteBook(4);
+        assertEquals(List.of(2, 3, 1), ids(books.sortBooksByTitle()));
+        assertEquals(List.of(1, 3, 2), ids(books.sortBooksByGenre()));
+    }
+
+    @Test
+    void listingCanStartAtAnyTitleOrGenre() {
+        BookDAO books = new BookDAOImpl(database);
+        books.addBook(new Book(1, "Ulysses", "Joyce", "Modern", 1));
+        books.addBook(new Book(2, "Dune", "Herbert", "SF", 1));
+        books.addBook(new Book(3, "Emma", "Austen", "Classic", 1));
+
+        assertEquals(List.of(3, 1), ids(books.getBooksByTitleFrom("E", 5)));
+        assertEquals(List.of(3), ids(books.getBooksByTitleFrom("emma", 1)));
+        assertEquals(List.of(), ids(books.getBooksByTitleFrom("Zorba", 5)));
+        assertEquals(List.of(1, 2), ids(books.getBooksByGenreFrom("mod", 5)));
+    }
+
+    private static List<Integer> ids(List<Book> books) {
+        return books.stream().map(Book::getBookId).toList();
+    }
+}
@@ -0,0 +1,174 @@
+package org.example.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.example.backend.EmbeddedBackend;
+import org.example.backend.FailoverBackend;
+import org.example.backend.FakeBackend;
+import org.example.backend.StorageBackend;
+import org.example.backend.StorageException;
+import org.example.backend.WriteBehindBackend;
+import org.example.models.Book;
+import org.example.models.Borrowing;
+import org.example.storage.LogCompactor;
+import org.example.storage.RecordStore;
+import org.example.utils.CopyInventory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BorrowingDAOImplTest {
+    @TempDir
+    Path dir;
+
+    private StorageBackend backend;
+
+    @BeforeEach
+    void configure() {
+        System.setProperty("storage.dir", dir.toString());
+        System.setProperty("storage.writeBehind.maxLagMillis", "5");
+        System.setProperty("db.breaker.openMillis", "600000");
+    }
+
+    @AfterEach
+    void close() {
+        backend.close();
+        RecordStore.closeAll();
+        LogCompactor.shutdown();
+        System.clearProperty("storage.dir");
+        System.clearProperty("storage.writeBehind.maxLagMillis");
+        System.clearProperty("db.breaker.openMillis");
+    }
+
+    @Test
+    void borrowQueuedTwiceKeepsItsReservationUntilTheDatabaseAnswers() throws Exception {
+        FakeBackend database = new FakeBackend();
+        backend = new WriteBehindBackend(new FailoverBackend(database));
+        BookDAO books = new BookDAOImpl(backend);
+        BorrowingDAO borrowings = new BorrowingDAOImpl(books, backend);
+        CopyInventory inventory = books.getInventory();
+        books.addBook(new Book(1, "Dune", "Herbert", "SF", 2));
+        assertTrue(backend.awaitDurable(5_000));
+
+        database.failure = new StorageException("Database down", true);
+        assertTrue(borrowings.borrowBook(1, 7));
+        assertTrue(backend.awaitDurable(5_000));
+
+        // The write-behind queue handed it to the failover outbox, which queued it again.
+        List<Borrowing> loans = borrowings.getAllBorrowings();
+        assertEquals(1, loans.size());
+        assertEquals(-1, loans.get(0).getId());
+        assertEquals(1, inventory.reserved(1));
+        assertEquals(1, inventory.available(1));
+
+        database.failure = null;
+        database.borrowResult = 1;
+        books.sync();
+
+        loans = borrowings.getAllBorrowings();
+        assertEquals(1, loans.size());
+        assertEquals(100, loans.get(0).getId());
+        assertEquals(0, inventory.reserved(1));
+        assertEquals(1, inventory.available(1));
+    }
+
+    @Test
+    void borrowQueuedWithNoCopyLeftIsTakenBack() throws Exception {
+        FakeBackend database = new FakeBackend();
+        backend = new FailoverBackend(database);
+        BookDAO books = new BookDAOImpl(backend);
+        BorrowingDAO borrowings = new BorrowingDAOImpl(books, backend);
+        books.addBook(new Book(1, "Dune", "Herbert", "SF", 1));
+        database.borrowResult = 0;
+        assertTrue(borrowings.borrowBook(1, 7));
+
+        // Not degraded when asked, so it goes to the database, which is down by then.
+        database.failure = new StorageException("Database down", true);
+        assertFalse(borrowings.borrowBook(1, 8));
+        assertFalse(borrowings.isBookBorrowedByMember(1, 8));
+        assertFalse(backend.isDegraded());
+
+        database.failure = null;
+        books.sync();
+        assertFalse(database.writes.contains("borrow:1:8"));
+        assertEquals(0, books.getInventory().reserved(1));
+    }
+
+    @Test
+    void activeLoansAreIndexedByMemberAndByBook() {
+        FakeBackend database = new FakeBackend();
+        backend = database;
+        BookDAO books = new BookDAOImpl(backend);
+        BorrowingDAO borrowings = new BorrowingDAOImpl(books, backend);
+        books.addBook(new Book(1, "Dune", "Herbert", "SF", 2));
+        books.addBook(new Book(2, "Emma", "Austen", "Classic", 1));
+        database.borrowResult = 1;
+
+        assertTrue(borrowings.borrowBook(1, 7));
+        assertTrue(borrowings.borrowBook(2, 7));
+        assertTrue(borrowings.borrowBook(1, 8));
+        assertFalse(borrowings.borrowBook(1, 8));
+        assertEquals(2, borrowings.getActiveBorrowingsByMember(7).size());
+        assertTrue(borrowings.isBookBorrowedByMember(1, 8));
+
+        assertTrue(borrowings.returnBook(1, 7));
+        assertFalse(borrowings.isBookBorrowedByMember(1, 7));
+        assertEquals(2, borrowings.getActiveBorrowingsByMember(7).get(0).getBookId());
+        assertTrue(borrowings.isBookBorrowed(1));
+
+        int loanOfMember8 = borrowings.getActiveBorrowingsByMember(8).get(0).getId();
+        borrowings.deleteBorrowing(loanOfMember8);
+        assertFalse(borrowings.isBookBorrowed(1));
+        assertTrue(borrowings.getActiveBorrowingsByMember(8).isEmpty());
+        // The returned loan stays in the history.
+        assertEquals(2, borrowings.getAllBorrowings().size());
+    }
+
+    @Test
+    void databaseCountDecidesWhenTheLocalOneIsStale() throws Exception {
+        backend = new EmbeddedBackend();
+        BookDAO books = new BookDAOImpl(backend);
+        BorrowingDAO borrowings = new BorrowingDAOImpl(books, backend);
+        books.addBook(new Book(1, "Dune", "Herbert", "SF", 3));
+        // Another terminal lent two copies; this one still counts three.
+        backend.books().update(new Book(1, "Dune", "Herbert", "SF", 1));
+
+        int desks = 3;
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger lent = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int member = 1; member <= desks; member++) {
+            int memberId = member;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (borrowings.borrowBook(1, memberId)) {
+                    lent.incrementAndGet();
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(1, lent.get());
+        assertEquals(1, borrowings.getAllBorrowings().size());
+        assertEquals(0, books.getBookById(1).getAvailableCopies());
+        assertEquals(0, books.getInventory().reserved(1));
+    }
+}
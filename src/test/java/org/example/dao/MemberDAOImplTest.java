@@ -0,0 +1,104 @@
+package org.example.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.nio.file.Path;
+
+import org.example.backend.FakeBackend;
+import org.example.models.Member;
+import org.example.storage.LogCompactor;
+import org.example.storage.RecordStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MemberDAOImplTest {
+    @TempDir
+    Path dir;
+
+    private final FakeBackend database = new FakeBackend();
+    private MemberDAO members;
+
+    @BeforeEach
+    void open() {
+        System.setProperty("storage.dir", dir.toString());
+        members = new MemberDAOImpl(database);
+    }
+
+    @AfterEach
+    void close() {
+        RecordStore.closeAll();
+        LogCompactor.shutdown();
+        System.clearProperty("storage.dir");
+    }
+
+    @Test
+    void memberFoundByEmailIsCached() {
+        Member ada = new Member(5, "Ada", "ada@example.org", "555");
+        database.memberRows.put(5, ada);
+
+        Member found = members.findByEmail("ADA@example.org");
+        assertEquals(5, found.getId());
+
+        database.memberRows.clear();
+        assertSame(found, members.getMemberById(5));
+        assertSame(found, members.findByEmail("ada@example.org"));
+    }
+
+    @Test
+    void memberDeletedAfterTheEmailLookupIsNotCached() {
+        // The email lookup saw the row; by the time its stripe is taken, it is gone.
+        database.staleMember = new Member(6, "Grace", "grace@example.org", "555");
+
+        assertNull(members.findByEmail("grace@example.org"));
+        database.staleMember = null;
+        assertNull(members.getMemberById(6));
+        assertEquals(0, members.getAllMembers().size());
+    }
+
+    @Test
+    void memberWhoseEmailChangedIsNotFoundUnderTheOldOne() {
+        database.staleMember = new Member(7, "Linus", "old@example.org", "555");
+        database.memberRows.put(7, new Member(7, "Linus", "new@example.org", "555"));
+
+        assertNull(members.findByEmail("old@example.org"));
+        assertEquals("new@example.org", members.getMemberById(7).getEmail());
+    }
+
+    @Test
+    void memberWithCommasSurvivesARestart() {
+        members.addMember(new Member(8, "Lovelace, Ada", "ada,countess@example.org", null));
+
+        RecordStore.closeAll();
+        Member reloaded = new MemberDAOImpl(database).getMemberById(8);
+        assertEquals("Lovelace, Ada", reloaded.getName());
+        assertEquals("ada,countess@example.org", reloaded.getEmail());
+        assertNull(reloaded.getPhone());
+    }
+
+    @Test
+    void emailLookupIgnoresCaseAndFollowsEdits() {
+        members.addMember(new Member(3, "Ada", "Ada@Example.org", "555"));
+
+        assertEquals(3, members.findByEmail("ada@example.ORG").getId());
+        members.updateMember(new Member(3, "Ada", "countess@example.org", "555"));
+        assertNull(members.findByEmail("ada@example.org"));
+        assertEquals(3, members.findByEmail("Countess@example.org").getId());
+    }
+
+    @Test
+    void loadedMembersAreServedWithoutReadingTheDatabase() {
+        members.addMember(new Member(3, "Ada", "ada@example.org", "555"));
+        members.addMember(new Member(4, "Grace", "grace@example.org", "555"));
+        int reads = database.memberReads.get();
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(2, members.getAllMembers().size());
+            assertEquals(4, members.findByEmail("GRACE@example.org").getId());
+        }
+        assertEquals(reads, database.memberReads.get());
+    }
+}
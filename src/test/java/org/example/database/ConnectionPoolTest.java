@@ -0,0 +1,132 @@
+package org.example.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ConnectionPoolTest {
+    /** Hands out connections that answer every call with a default, counting how many were opened. */
+    static class FakeDriver implements Driver {
+        final AtomicInteger opened = new AtomicInteger();
+
+        @Override
+        public Connection connect(String url, Properties info) {
+            if (!acceptsURL(url)) {
+                return null;
+            }
+            opened.incrementAndGet();
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, (proxy, method, args) -> switch (method.getName()) {
+                        case "isValid", "getAutoCommit" -> true;
+                        case "isClosed" -> false;
+                        case "hashCode" -> System.identityHashCode(proxy);
+                        case "equals" -> proxy == args[0];
+                        default -> null;
+                    });
+        }
+
+        @Override
+        public boolean acceptsURL(String url) {
+            return url != null && url.startsWith("jdbc:fake:");
+        }
+
+        @Override
+        public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+            return new DriverPropertyInfo[0];
+        }
+
+        @Override
+        public int getMajorVersion() {
+            return 1;
+        }
+
+        @Override
+        public int getMinorVersion() {
+            return 0;
+        }
+
+        @Override
+        public boolean jdbcCompliant() {
+            return false;
+        }
+
+        @Override
+        public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+            throw new SQLFeatureNotSupportedException();
+        }
+    }
+
+    private final FakeDriver driver = new FakeDriver();
+    private ConnectionPool pool;
+
+    @BeforeEach
+    void open() throws SQLException {
+        DriverManager.registerDriver(driver);
+        System.setProperty("db.url", "jdbc:fake:library");
+        System.setProperty("db.pool.maxSize", "1");
+        System.setProperty("db.pool.minSize", "0");
+        System.setProperty("db.pool.acquireTimeoutMillis", "50");
+        pool = new ConnectionPool();
+    }
+
+    @AfterEach
+    void close() throws SQLException {
+        pool.shutdown();
+        DriverManager.deregisterDriver(driver);
+        System.clearProperty("db.url");
+        System.clearProperty("db.pool.maxSize");
+        System.clearProperty("db.pool.minSize");
+        System.clearProperty("db.pool.acquireTimeoutMillis");
+    }
+
+    @Test
+    void closingALeaseHandsTheConnectionBack() throws SQLException {
+        Connection first = pool.acquire();
+        first.close();
+        Connection second = pool.acquire();
+        second.close();
+
+        assertNotSame(first, second);
+        assertEquals(1, driver.opened.get());
+        assertEquals(2, pool.getStats().borrows());
+        assertEquals(0, pool.getStats().inUse());
+        assertThrows(SQLException.class, first::getAutoCommit);
+    }
+
+    @Test
+    void exhaustedPoolTimesOutAsAConnectionFailure() throws SQLException {
+        try (Connection held = pool.acquire()) {
+            SQLTransientConnectionException e = assertThrows(SQLTransientConnectionException.class, pool::acquire);
+            assertEquals("08001", e.getSQLState());
+            assertEquals(1, pool.getStats().timeouts());
+            assertTrue(held.isValid(1));
+        }
+    }
+
+    @Test
+    void interruptedWaitIsAConnectionFailure() throws SQLException {
+        try (Connection held = pool.acquire()) {
+            Thread.currentThread().interrupt();
+            SQLTransientConnectionException e = assertThrows(SQLTransientConnectionException.class, pool::acquire);
+            assertEquals("08001", e.getSQLState());
+            assertTrue(Thread.interrupted());
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package org.example.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class DatabaseConnectionTest {
+    /** Serves a three-row result set and records what the caller asked of the connection. */
+    static final class StreamingDriver extends ConnectionPoolTest.FakeDriver {
+        final List<Boolean> autoCommits = new ArrayList<>();
+        final List<Object> params = new ArrayList<>();
+        int fetchSize;
+        int commits;
+        int rowsFetched;
+        boolean autoCommit = true;
+
+        @Override
+        public Connection connect(String url, Properties info) {
+            if (!acceptsURL(url)) {
+                return null;
+            }
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, (proxy, method, args) -> switch (method.getName()) {
+                        case "setAutoCommit" -> {
+                            autoCommit = (Boolean) args[0];
+                            autoCommits.add(autoCommit);
+                            yield null;
+                        }
+                        case "getAutoCommit" -> autoCommit;
+                        case "commit" -> {
+                            commits++;
+                            yield null;
+                        }
+                        case "prepareStatement" -> statement();
+                        case "isValid" -> true;
+                        case "isClosed" -> false;
+                        default -> null;
+                    });
+        }
+
+        private PreparedStatement statement() {
+            return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> switch (method.getName()) {
+                        case "setFetchSize" -> {
+                            fetchSize = (Integer) args[0];
+                            yield null;
+                        }
+                        case "setObject" -> {
+                            params.add(args[1]);
+                            yield null;
+                        }
+                        case "executeQuery" -> rows();
+                        default -> null;
+                    });
+        }
+
+        private ResultSet rows() {
+            return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                    new Class<?>[]{ResultSet.class}, (proxy, method, args) -> switch (method.getName()) {
+                        case "next" -> rowsFetched < 3 && ++rowsFetched > 0;
+                        case "getInt" -> rowsFetched * 10;
+                        default -> null;
+                    });
+        }
+    }
+
+    private static final StreamingDriver driver = new StreamingDriver();
+
+    @BeforeAll
+    static void register() throws SQLException {
+        DriverManager.registerDriver(driver);
+        System.setProperty("db.url", "jdbc:fake:library");
+        System.setProperty("db.pool.minSize", "0");
+        System.setProperty("db.fetchSize", "50");
+    }
+
+    @AfterAll
+    static void deregister() throws SQLException {
+        DatabaseConnection.shutdown();
+        DriverManager.deregisterDriver(driver);
+        System.clearProperty("db.url");
+        System.clearProperty("db.pool.minSize");
+        System.clearProperty("db.fetchSize");
+    }
+
+    @Test
+    void rowsAreHandedOverAsTheCursorReadsThem() throws SQLException {
+        List<Integer> seen = new ArrayList<>();
+        int rows = DatabaseConnection.streamQuery("SELECT id FROM books WHERE id > ?", rs -> {
+            // One row read per row handled: nothing was buffered ahead.
+            assertEquals(seen.size() + 1, driver.rowsFetched);
+            seen.add(rs.getInt(1));
+        }, 5);
+
+        assertEquals(3, rows);
+        assertEquals(List.of(10, 20, 30), seen);
+        assertEquals(List.of(5), driver.params);
+        assertEquals(50, driver.fetchSize);
+        // The driver only streams inside a transaction; the connection goes back in autocommit.
+        assertFalse(driver.autoCommits.get(0));
+        assertEquals(1, driver.commits);
+        assertTrue(driver.autoCommit);
+        assertEquals(0, DatabaseConnection.getPoolStats().inUse());
+    }
+}
@@ -0,0 +1,39 @@
+package org.example.models;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class PageTest {
+
+    @Test
+    void extraItemOnlySignalsANextPage() {
+        Page<Integer> page = Page.of(List.of(3, 5, 8), 2, id -> id);
+
+        assertEquals(List.of(3, 5), page.getItems());
+        assertTrue(page.hasNext());
+        assertEquals(5, page.getNextCursor());
+    }
+
+    @Test
+    void lastPageHasNoNext() {
+        Page<Integer> page = Page.of(List.of(3, 5), 2, id -> id);
+
+        assertEquals(List.of(3, 5), page.getItems());
+        assertFalse(page.hasNext());
+        assertEquals(5, page.getNextCursor());
+    }
+
+    @Test
+    void emptyPageCursorIsStart() {
+        Page<Integer> page = Page.of(List.of(), 10, id -> id);
+
+        assertTrue(page.getItems().isEmpty());
+        assertFalse(page.hasNext());
+        assertEquals(Page.START, page.getNextCursor());
+    }
+}
@@ -0,0 +1,115 @@
+package org.example.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.example.context.LibraryContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LibraryServerTest {
+    private static final Pattern ID = Pattern.compile("\"id\":(\\d+)");
+
+    @TempDir
+    Path dir;
+
+    private LibraryContext context;
+    private LibraryServer server;
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void start() throws IOException {
+        System.setProperty("storage.dir", dir.toString());
+        System.setProperty("storage.backend", "embedded");
+        context = new LibraryContext();
+        server = new LibraryServer(context, 0);
+        server.start();
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop();
+        context.close();
+        System.clearProperty("storage.dir");
+        System.clearProperty("storage.backend");
+    }
+
+    @Test
+    void booksCanBeAddedAndRead() throws Exception {
+        HttpResponse<String> created = send("POST", "/books", "title=Dune&author=Herbert&genre=SF&copies=2");
+        assertEquals(201, created.statusCode());
+        assertTrue(created.body().contains("\"title\":\"Dune\""));
+        int id = id(created.body());
+
+        HttpResponse<String> read = send("GET", "/books/" + id, null);
+        assertEquals(200, read.statusCode());
+        assertTrue(read.body().contains("\"availableCopies\":2"));
+
+        assertEquals(409, send("POST", "/books", "title=dune&author=HERBERT&genre=SF&copies=1").statusCode());
+        assertEquals(400, send("POST", "/books", "author=Herbert&genre=SF&copies=1").statusCode());
+        assertEquals(404, send("GET", "/books/" + (id + 1000), null).statusCode());
+        assertEquals(405, send("PATCH", "/books", "title=Emma").statusCode());
+    }
+
+    @Test
+    void booksAreBorrowedAndReturnedOverHttp() throws Exception {
+        int book = id(send("POST", "/books", "title=Emma&author=Austen&genre=Classic&copies=1").body());
+        int ada = id(send("POST", "/members", "name=Ada&email=ada%40example.org&phone=555").body());
+        int grace = id(send("POST", "/members", "name=Grace&email=grace%40example.org&phone=555").body());
+
+        assertEquals(200, send("POST", "/borrowings/borrow", "bookId=" + book + "&memberId=" + ada).statusCode());
+        assertEquals(409, send("POST", "/borrowings/borrow", "bookId=" + book + "&memberId=" + grace).statusCode());
+        assertTrue(send("GET", "/members/" + ada + "/books", null).body().contains("\"title\":\"Emma\""));
+
+        assertEquals(200, send("POST", "/borrowings/return", "bookId=" + book + "&memberId=" + ada).statusCode());
+        assertFalse(send("GET", "/borrowings/active", null).body().contains("\"bookId\""));
+        assertEquals(200, send("POST", "/borrowings/borrow", "bookId=" + book + "&memberId=" + grace).statusCode());
+    }
+
+    @Test
+    void manyTerminalsAreServedAtOnce() throws Exception {
+        int book = id(send("POST", "/books", "title=Ulysses&author=Joyce&genre=Modern&copies=1").body());
+
+        List<CompletableFuture<HttpResponse<String>>> answers = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            answers.add(client.sendAsync(request("GET", "/books/" + book, null), HttpResponse.BodyHandlers.ofString()));
+        }
+        for (CompletableFuture<HttpResponse<String>> answer : answers) {
+            assertEquals(200, answer.get().statusCode());
+        }
+    }
+
+    private HttpResponse<String> send(String method, String path, String form) throws Exception {
+        return client.send(request(method, path, form), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpRequest request(String method, String path, String form) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort() + path));
+        if (form == null) {
+            return builder.method(method, HttpRequest.BodyPublishers.noBody()).build();
+        }
+        return builder.header("Content-Type", "application/x-www-form-urlencoded")
+                .method(method, HttpRequest.BodyPublishers.ofString(form)).build();
+    }
+
+    private static int id(String json) {
+        Matcher matcher = ID.matcher(json);
+        assertTrue(matcher.find(), json);
+        return Integer.parseInt(matcher.group(1));
+    }
+}
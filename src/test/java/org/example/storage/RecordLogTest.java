@@ -0,0 +1,122 @@
+package org.example.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class RecordLogTest {
+    @TempDir
+    Path dir;
+
+    private static List<LogRecord> replay(RecordLog log) throws IOException {
+        List<LogRecord> records = new ArrayList<>();
+        log.replay(records::add);
+        return records;
+    }
+
+    @Test
+    void replaysRecordsInOrderAfterReopen() throws IOException {
+        Path path = dir.resolve("books.wal");
+        try (RecordLog log = new RecordLog(path, FsyncPolicy.ALWAYS, 0)) {
+            log.append(RecordType.INSERT, "1,Dune");
+            log.appendAll(List.of(new LogRecord(RecordType.UPDATE, "1,Dune Messiah"),
+                    new LogRecord(RecordType.DELETE, "1")));
+        }
+
+        try (RecordLog log = new RecordLog(path, FsyncPolicy.ALWAYS, 0)) {
+            assertEquals(List.of(new LogRecord(RecordType.INSERT, "1,Dune"),
+                    new LogRecord(RecordType.UPDATE, "1,Dune Messiah"),
+                    new LogRecord(RecordType.DELETE, "1")), replay(log));
+        }
+    }
+
+    @Test
+    void tornTailIsCutOffAndNextAppendStartsClean() throws IOException {
+        Path path = dir.resolve("books.wal");
+        long intactSize;
+        try (RecordLog log = new RecordLog(path, FsyncPolicy.ALWAYS, 0)) {
+            log.append(RecordType.INSERT, "1,Dune");
+            intactSize = log.size();
+            log.append(RecordType.INSERT, "2,Emma");
+        }
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.setLength(file.length() - 3);
+        }
+
+        try (RecordLog log = new RecordLog(path, FsyncPolicy.ALWAYS, 0)) {
+            assertEquals(List.of(new LogRecord(RecordType.INSERT, "1,Dune")), replay(log));
+            assertEquals(intactSize, Files.size(path));
+            log.append(RecordType.INSERT, "3,Ulysses");
+        }
+
+        try (RecordLog log = new RecordLog(path, FsyncPolicy.ALWAYS, 0)) {
+            assertEquals(List.of(new LogRecord(RecordType.INSERT, "1,Dune"),
+                    new LogRecord(RecordType.INSERT, "3,Ulysses")), replay(log));
+        }
+    }
+
+    @Test
+    void recordWithBadChecksumEndsTheLog() throws IOException {
+        Path path = dir.resolve("books.wal");
+        try (RecordLog log = new RecordLog(path, FsyncPolicy.NONE, 0)) {
+            log.append(RecordType.INSERT, "1,Dune");
+            log.append(RecordType.INSERT, "2,Emma");
+            log.append(RecordType.INSERT, "3,Ulysses");
+        }
+        // Flip the last payload byte of the second record.
+        long secondEnd = 8 + 2L * (9 + "1,Dune".length());
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.seek(secondEnd - 1);
+            int b = file.read();
+            file.seek(secondEnd - 1);
+            file.write(b ^ 0x01);
+        }
+
+        try (RecordLog log = new RecordLog(path, FsyncPolicy.NONE, 0)) {
+            assertEquals(List.of(new LogRecord(RecordType.INSERT, "1,Dune")), replay(log));
+        }
+    }
+
+    @Test
+    void truncateBeforeKeepsOnlyLaterRecords() throws IOException {
+        Path path = dir.resolve("books.wal");
+        try (RecordLog log = new RecordLog(path, FsyncPolicy.GROUP, 1)) {
+            log.append(RecordType.INSERT, "1,Dune");
+            long offset = log.checkpoint();
+            log.append(RecordType.INSERT, "2,Emma");
+            log.truncateBefore(offset);
+            log.append(RecordType.DELETE, "2");
+
+            assertEquals(List.of(new LogRecord(RecordType.INSERT, "2,Emma"),
+                    new LogRecord(RecordType.DELETE, "2")), replay(log));
+        }
+    }
+
+    @Test
+    void writeFileAndReadFileRoundTrip() throws IOException {
+        Path path = dir.resolve("books.snap");
+        List<LogRecord> records = List.of(new LogRecord(RecordType.INSERT, "1,Dune"),
+                new LogRecord(RecordType.INSERT, "2,Ünïcode"));
+        RecordLog.writeFile(path, records);
+
+        List<LogRecord> read = new ArrayList<>();
+        RecordLog.readFile(path, read::add);
+        assertEquals(records, read);
+    }
+
+    @Test
+    void refusesFileWithoutMagicHeader() throws IOException {
+        Path path = dir.resolve("other.wal");
+        Files.writeString(path, "not a record log at all");
+        assertThrows(IOException.class, () -> new RecordLog(path, FsyncPolicy.NONE, 0));
+    }
+}
@@ -0,0 +1,132 @@
+package org.example.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class RecordStoreTest {
+    @TempDir
+    Path dir;
+
+    @BeforeEach
+    void useTempDir() {
+        System.setProperty("storage.dir", dir.toString());
+    }
+
+    @AfterEach
+    void closeStores() {
+        RecordStore.closeAll();
+        LogCompactor.shutdown();
+        System.clearProperty("storage.dir");
+    }
+
+    /** Loads a store the way the DAOs do: snapshot rows first, then the log on top. */
+    private static Map<Long, String> load(RecordStore store) throws IOException {
+        Map<Long, String> rows = new TreeMap<>();
+        store.replay(snapshot -> {
+            for (int row = 0; row < snapshot.rowCount(); row++) {
+                rows.put(snapshot.getLong(row, 0), snapshot.getString(row, 0));
+            }
+        }, record -> {
+            String[] fields = record.payload().split(",", 2);
+            long id = Long.parseLong(fields[0]);
+            if (record.type() == RecordType.DELETE) {
+                rows.remove(id);
+            } else {
+                rows.put(id, fields[1]);
+            }
+        });
+        return rows;
+    }
+
+    private static void reopenAll() {
+        RecordStore.closeAll();
+        LogCompactor.shutdown();
+    }
+
+    @Test
+    void compactionKeepsStateAndLaterRecords() throws IOException {
+        RecordStore store = RecordStore.open("books", null);
+        Map<Long, String> state = new TreeMap<>();
+        store.setSnapshotSource(1, 1, writer -> state.forEach((id, title) -> writer.addRow(new long[]{id}, title)));
+
+        store.append(RecordType.INSERT, "1,Dune");
+        store.append(RecordType.INSERT, "2,Emma");
+        store.append(RecordType.DELETE, "1");
+        state.put(2L, "Emma");
+        store.compact();
+        store.append(RecordType.INSERT, "3,Ulysses");
+
+        assertTrue(Files.exists(dir.resolve("books.snap")));
+        reopenAll();
+
+        assertEquals(Map.of(2L, "Emma", 3L, "Ulysses"), load(RecordStore.open("books", null)));
+    }
+
+    @Test
+    void secondSnapshotSourceTurnsCompactionOff() throws IOException {
+        RecordStore store = RecordStore.open("members", null);
+        store.setSnapshotSource(1, 1, writer -> writer.addRow(new long[]{1}, "Ann"));
+        store.setSnapshotSource(1, 1, writer -> writer.addRow(new long[]{2}, "Bob"));
+        store.append(RecordType.INSERT, "1,Ann");
+
+        store.compact();
+
+        assertTrue(Files.notExists(dir.resolve("members.snap")));
+        reopenAll();
+        assertEquals(Map.of(1L, "Ann"), load(RecordStore.open("members", null)));
+    }
+
+    @Test
+    void readsSnapshotInOldLogLayout() throws IOException {
+        RecordLog.writeFile(dir.resolve("books.snap"), List.of(new LogRecord(RecordType.INSERT, "1,Dune")));
+        RecordStore store = RecordStore.open("books", null);
+        store.append(RecordType.INSERT, "2,Emma");
+
+        assertEquals(Map.of(1L, "Dune", 2L, "Emma"), load(store));
+    }
+
+    @Test
+    void importsLegacyFileOnlyIntoFreshStore() throws IOException {
+        Files.writeString(dir.resolve("books.txt"), "1,Dune\n\n2,Emma\n");
+        assertEquals(Map.of(1L, "Dune", 2L, "Emma"), load(RecordStore.open("books", "books.txt")));
+
+        reopenAll();
+        Files.writeString(dir.resolve("books.txt"), "3,Ulysses\n");
+        assertEquals(Map.of(1L, "Dune", 2L, "Emma"), load(RecordStore.open("books", "books.txt")));
+    }
+
+    @Test
+    void watermarkSurvivesReopenAndOnlyMovesForward() throws IOException {
+        RecordStore store = RecordStore.open("borrowings", null);
+        store.append(RecordType.INSERT, "1,x");
+        assertEquals(0, store.getWatermark("jdbc"));
+        store.setWatermark("jdbc", 42);
+        store.setWatermark("jdbc", 7);
+
+        reopenAll();
+        assertEquals(42, RecordStore.open("borrowings", null).getWatermark("jdbc"));
+    }
+
+    @Test
+    void watermarkIsIgnoredWhenStoreFilesWereRemoved() throws IOException {
+        RecordStore store = RecordStore.open("borrowings", null);
+        store.append(RecordType.INSERT, "1,x");
+        store.setWatermark("jdbc", 42);
+
+        reopenAll();
+        Files.delete(dir.resolve("borrowings.wal"));
+        assertEquals(0, RecordStore.open("borrowings", null).getWatermark("jdbc"));
+    }
+}
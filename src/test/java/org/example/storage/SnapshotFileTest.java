@@ -0,0 +1,93 @@
+package org.example.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SnapshotFileTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void rowsComeBackInTheOrderAdded() throws IOException {
+        SnapshotFile.Writer writer = new SnapshotFile.Writer(2, 2);
+        writer.addRow(new long[]{30, 1}, "Ulysses", "Joyce");
+        writer.addRow(new long[]{10, 4}, "Dune", null);
+        writer.addRow(new long[]{20, 0}, "", "Ünïcode");
+        Path path = dir.resolve("books.snap");
+        writer.writeTo(path);
+
+        assertTrue(SnapshotFile.isSnapshot(path));
+        SnapshotFile snapshot = SnapshotFile.open(path);
+        assertEquals(3, snapshot.rowCount());
+        assertEquals(30, snapshot.getLong(0, 0));
+        assertEquals("Joyce", snapshot.getString(0, 1));
+        assertEquals(10, snapshot.getLong(1, 0));
+        assertEquals(4, snapshot.getInt(1, 1));
+        assertEquals("Dune", snapshot.getString(1, 0));
+        assertNull(snapshot.getString(1, 1));
+        assertEquals("", snapshot.getString(2, 0));
+        assertEquals("Ünïcode", snapshot.getString(2, 1));
+    }
+
+    @Test
+    void emptySnapshotHasNoRows() throws IOException {
+        Path path = dir.resolve("empty.snap");
+        new SnapshotFile.Writer(1, 1).writeTo(path);
+        assertEquals(0, SnapshotFile.open(path).rowCount());
+    }
+
+    @Test
+    void truncatedSnapshotIsRejected() throws IOException {
+        SnapshotFile.Writer writer = new SnapshotFile.Writer(1, 1);
+        writer.addRow(new long[]{1}, "Dune");
+        writer.addRow(new long[]{2}, "Emma");
+        Path path = dir.resolve("books.snap");
+        writer.writeTo(path);
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.setLength(file.length() - 2);
+        }
+
+        assertThrows(IOException.class, () -> SnapshotFile.open(path));
+    }
+
+    @Test
+    void damagedSnapshotIsRejected() throws IOException {
+        SnapshotFile.Writer writer = new SnapshotFile.Writer(1, 1);
+        writer.addRow(new long[]{1}, "Dune");
+        writer.addRow(new long[]{2}, "Emma");
+        Path path = dir.resolve("books.snap");
+        writer.writeTo(path);
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            // Same length, one letter of the heap changed: "Emma" becomes "Emmy".
+            file.seek(file.length() - 1);
+            file.write('y');
+        }
+
+        IOException e = assertThrows(IOException.class, () -> SnapshotFile.open(path));
+        assertTrue(e.getMessage().contains("checksum"));
+    }
+
+    @Test
+    void recordLogFileIsNotASnapshot() throws IOException {
+        Path path = dir.resolve("books.snap");
+        RecordLog.writeFile(path, List.of(new LogRecord(RecordType.INSERT, "1,Dune")));
+        assertFalse(SnapshotFile.isSnapshot(path));
+    }
+
+    @Test
+    void rowOfWrongWidthIsRefused() {
+        SnapshotFile.Writer writer = new SnapshotFile.Writer(2, 1);
+        assertThrows(IllegalArgumentException.class, () -> writer.addRow(new long[]{1}, "Dune"));
+    }
+}
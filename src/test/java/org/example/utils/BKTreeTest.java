@@ -0,0 +1,94 @@
+package org.example.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class BKTreeTest {
+
+    private static List<Integer> ids(List<BKTree.Match> matches) {
+        List<Integer> ids = new ArrayList<>();
+        for (BKTree.Match match : matches) {
+            ids.add(match.id());
+        }
+        return ids;
+    }
+
+    @Test
+    void distanceCountsATranspositionAsOneEdit() {
+        assertEquals(1, BKTree.distance("chinau", "chinua"));
+        assertEquals(0, BKTree.distance("austen", "austen"));
+        assertEquals(3, BKTree.distance("", "abc"));
+        assertEquals(2, BKTree.distance("ca", "abc"));
+    }
+
+    @Test
+    void findsKeysWithinDistanceClosestFirst() {
+        BKTree tree = new BKTree();
+        tree.add("austen", 1);
+        tree.add("auster", 2);
+        tree.add("orwell", 3);
+        tree.add("achebe", 4);
+
+        List<BKTree.Match> matches = tree.search("austin", 2);
+        assertEquals(List.of(1, 2), ids(matches));
+        assertEquals(1, matches.get(0).distance());
+        assertTrue(tree.search("tolkien", 1).isEmpty());
+        assertTrue(new BKTree().search("anything", 3).isEmpty());
+    }
+
+    @Test
+    void sharedKeyKeepsRemainingIds() {
+        BKTree tree = new BKTree();
+        tree.add("dune", 1);
+        tree.add("dune", 2);
+        tree.add("dune", 2);
+
+        tree.remove("dune", 1);
+        assertEquals(List.of(2), ids(tree.search("dune", 0)));
+    }
+
+    @Test
+    void rebuildKeepsLiveKeysReachable() {
+        BKTree tree = new BKTree();
+        String[] keys = {"austen", "orwell", "achebe", "tolkien", "woolf", "joyce",
+                "kafka", "camus", "borges", "eliot"};
+        for (int id = 0; id < keys.length; id++) {
+            tree.add(keys[id], id);
+        }
+
+        // Emptying more than half the nodes, the root among them, triggers a rebuild.
+        for (int id = 0; id < 6; id++) {
+            tree.remove(keys[id], id);
+        }
+
+        for (int id = 0; id < keys.length; id++) {
+            List<Integer> found = ids(tree.search(keys[id], 0));
+            assertEquals(id < 6 ? List.of() : List.of(id), found, keys[id]);
+        }
+        assertEquals(List.of(6), ids(tree.search("kafak", 1)));
+
+        tree.add("austen", 0);
+        assertEquals(List.of(0), ids(tree.search("austin", 1)));
+    }
+
+    @Test
+    void readdingAnEmptiedKeyBeforeRebuild() {
+        BKTree tree = new BKTree();
+        tree.add("austen", 1);
+        tree.add("orwell", 2);
+        tree.add("woolf", 3);
+
+        tree.remove("austen", 1);
+        tree.add("austen", 4);
+        tree.remove("orwell", 2);
+
+        assertEquals(List.of(4), ids(tree.search("austen", 0)));
+        assertEquals(List.of(3), ids(tree.search("woolf", 0)));
+        assertTrue(tree.search("orwell", 0).isEmpty());
+    }
+}
@@ -0,0 +1,163 @@
+package org.example.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.junit.jupiter.api.Test;
+
+class CopyInventoryTest {
+    private static final int THREADS = 16;
+
+    /** Runs task on THREADS threads released at the same moment and returns their results. */
+    private static <T> List<T> race(Callable<T> task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<T>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void neverLendsMoreCopiesThanThereAre() throws Exception {
+        CopyInventory inventory = new CopyInventory();
+        inventory.set(1, 500);
+
+        List<Integer> taken = race(() -> {
+            int count = 0;
+            for (int i = 0; i < 100; i++) {
+                if (inventory.tryCheckout(1)) {
+                    count++;
+                }
+            }
+            return count;
+        });
+
+        assertEquals(500, taken.stream().mapToInt(Integer::intValue).sum());
+        assertEquals(0, inventory.available(1));
+        assertEquals(500, inventory.reserved(1));
+    }
+
+    @Test
+    void settleAndCancelRacingEndEveryReservation() throws Exception {
+        CopyInventory inventory = new CopyInventory();
+        inventory.set(1, THREADS * 50);
+        for (int i = 0; i < THREADS * 50; i++) {
+            assertTrue(inventory.tryCheckout(1));
+        }
+
+        List<Integer> cancelled = race(() -> {
+            int count = 0;
+            for (int i = 0; i < 50; i++) {
+                if (ThreadLocalRandom.current().nextBoolean()) {
+                    inventory.settle(1);
+                } else {
+                    inventory.cancel(1);
+                    count++;
+                }
+            }
+            return count;
+        });
+
+        assertEquals(cancelled.stream().mapToInt(Integer::intValue).sum(), inventory.available(1));
+        assertEquals(0, inventory.reserved(1));
+    }
+
+    @Test
+    void checkoutsAndCheckinsBalanceUnderContention() throws Exception {
+        CopyInventory inventory = new CopyInventory();
+        inventory.set(1, 3);
+
+        race(() -> {
+            for (int i = 0; i < 2000; i++) {
+                if (inventory.tryCheckout(1)) {
+                    inventory.settle(1);
+                    inventory.checkin(1);
+                }
+            }
+            return null;
+        });
+
+        assertEquals(3, inventory.available(1));
+        assertEquals(0, inventory.reserved(1));
+    }
+
+    @Test
+    void countFromDatabaseLeavesOpenReservationsTaken() {
+        CopyInventory inventory = new CopyInventory();
+        inventory.set(1, 5);
+        inventory.tryCheckout(1);
+        inventory.tryCheckout(1);
+
+        // The database has not seen either borrow yet.
+        inventory.set(1, 5);
+        assertEquals(3, inventory.available(1));
+        assertEquals(2, inventory.reserved(1));
+
+        // One borrow committed, and a count including it arrives.
+        inventory.settle(1);
+        inventory.set(1, 4);
+        assertEquals(3, inventory.available(1));
+
+        // The other is turned down.
+        assertEquals(4, inventory.cancel(1));
+        assertEquals(0, inventory.reserved(1));
+    }
+
+    @Test
+    void countBelowReservationsIsZeroNotNegative() {
+        CopyInventory inventory = new CopyInventory();
+        inventory.set(1, 2);
+        inventory.tryCheckout(1);
+        inventory.tryCheckout(1);
+        inventory.set(1, 1);
+
+        assertEquals(0, inventory.available(1));
+        assertFalse(inventory.tryCheckout(1));
+    }
+
+    @Test
+    void endingAReservationThatIsNotThereChangesNothing() {
+        CopyInventory inventory = new CopyInventory();
+        inventory.set(1, 2);
+        inventory.settle(1);
+        assertEquals(2, inventory.cancel(1));
+        assertEquals(0, inventory.reserved(1));
+    }
+
+    @Test
+    void unknownBookHasNoCopies() {
+        CopyInventory inventory = new CopyInventory();
+        inventory.set(1, 1);
+        inventory.remove(1);
+
+        assertEquals(-1, inventory.available(1));
+        assertEquals(0, inventory.reserved(1));
+        assertFalse(inventory.tryCheckout(1));
+        assertEquals(-1, inventory.checkin(1));
+        assertEquals(-1, inventory.cancel(1));
+    }
+}
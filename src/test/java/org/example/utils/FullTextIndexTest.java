@@ -0,0 +1,95 @@
+package org.example.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class FullTextIndexTest {
+
+    private static List<Integer> ids(List<FullTextIndex.Hit> hits) {
+        List<Integer> ids = new ArrayList<>();
+        for (FullTextIndex.Hit hit : hits) {
+            ids.add(hit.id());
+        }
+        return ids;
+    }
+
+    @Test
+    void titleMatchOutranksGenreMatch() {
+        FullTextIndex index = new FullTextIndex(3.0, 1.0);
+        index.put(1, "A History of Rome", "history");
+        index.put(2, "Rome", "history");
+        index.put(3, "Cooking at Home", "food");
+
+        assertEquals(List.of(2, 1), ids(index.search("rome", 10)));
+        assertEquals(List.of(1, 2), ids(index.search("history", 10)));
+        assertTrue(index.search("paris", 10).isEmpty());
+    }
+
+    @Test
+    void phraseMustAppearInOrderWithinOneField() {
+        FullTextIndex index = new FullTextIndex(1.0, 1.0);
+        index.put(1, "the lord of the rings", "fantasy");
+        index.put(2, "rings of the lord", "fantasy");
+        index.put(3, "the lord", "of the rings");
+
+        assertEquals(List.of(1), ids(index.search("\"lord of the rings\"", 10)));
+    }
+
+    @Test
+    void trailingStarMatchesWordPrefixes() {
+        FullTextIndex index = new FullTextIndex(1.0);
+        index.put(1, "programming pearls");
+        index.put(2, "the pragmatic programmer");
+        index.put(3, "paradise lost");
+
+        assertEquals(List.of(1, 2), ids(index.search("program*", 10)).stream().sorted().toList());
+        assertTrue(index.search("zz*", 10).isEmpty());
+    }
+
+    @Test
+    void removeAndReplaceUpdateResults() {
+        FullTextIndex index = new FullTextIndex(1.0);
+        index.put(1, "dune");
+        index.put(2, "dune messiah");
+        index.put(1, "emma");
+
+        assertEquals(List.of(2), ids(index.search("dune", 10)));
+        index.remove(2);
+        index.remove(2);
+        assertTrue(index.search("dune", 10).isEmpty());
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void earlyStopGivesTheSameTopHitsAsAFullSearch() {
+        Random random = new Random(7);
+        String[] vocabulary = {"war", "peace", "love", "time", "river", "night", "king", "sea"};
+        FullTextIndex index = new FullTextIndex(2.0, 1.0);
+        for (int id = 0; id < 500; id++) {
+            index.put(id, randomWords(random, vocabulary, 1 + random.nextInt(6)),
+                    randomWords(random, vocabulary, random.nextInt(3)));
+        }
+
+        String[] queries = {"war", "war peace", "night sea king", "love time river", "ki*"};
+        for (String query : queries) {
+            List<FullTextIndex.Hit> all = index.search(query, 1000);
+            for (int limit : new int[]{1, 5, 20}) {
+                assertEquals(all.subList(0, Math.min(limit, all.size())), index.search(query, limit), query);
+            }
+        }
+    }
+
+    private static String randomWords(Random random, String[] vocabulary, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            text.append(vocabulary[random.nextInt(vocabulary.length)]).append(' ');
+        }
+        return text.toString();
+    }
+}
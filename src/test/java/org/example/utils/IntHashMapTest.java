@@ -0,0 +1,65 @@
+package org.example.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class IntHashMapTest {
+
+    @Test
+    void putReturnsPreviousValue() {
+        IntHashMap<String> map = new IntHashMap<>(2);
+        assertNull(map.put(-5, "a"));
+        assertEquals("a", map.put(-5, "b"));
+        assertEquals("b", map.get(-5));
+        assertEquals(1, map.size());
+        assertNull(map.get(0));
+    }
+
+    @Test
+    void removingAnyKeyKeepsTheOthersReachable() {
+        // A nearly full table, so removals land in the middle of probe chains.
+        int count = 9;
+        for (int victim = 0; victim < count; victim++) {
+            IntHashMap<Integer> map = new IntHashMap<>(count);
+            for (int key = 0; key < count; key++) {
+                map.put(key * 31, key);
+            }
+            map.remove(victim * 31);
+            for (int key = 0; key < count; key++) {
+                assertEquals(key == victim ? null : key, map.get(key * 31));
+            }
+        }
+    }
+
+    @Test
+    void agreesWithHashMapUnderRandomOperations() {
+        Random random = new Random(3);
+        IntHashMap<Integer> map = new IntHashMap<>();
+        Map<Integer, Integer> expected = new HashMap<>();
+        for (int step = 0; step < 50_000; step++) {
+            int key = random.nextInt(2000) - 1000;
+            switch (random.nextInt(3)) {
+                case 0 -> assertEquals(expected.remove(key), map.remove(key));
+                case 1 -> assertEquals(expected.get(key), map.get(key));
+                default -> assertEquals(expected.put(key, step), map.put(key, step));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+
+        Map<Integer, Integer> seen = new HashMap<>();
+        map.forEach(seen::put);
+        assertEquals(expected, seen);
+        assertEquals(expected.size(), map.values().size());
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(expected.keySet().iterator().next()));
+    }
+}
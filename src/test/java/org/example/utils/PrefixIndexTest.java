@@ -0,0 +1,109 @@
+package org.example.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.example.utils.PrefixIndex.Completion;
+import org.junit.jupiter.api.Test;
+
+class PrefixIndexTest {
+
+    @Test
+    void ranksByScoreThenAlphabetically() {
+        PrefixIndex index = new PrefixIndex(10);
+        index.put(1, "Dune", 2);
+        index.put(2, "Dubliners", 5);
+        index.put(3, "Dracula", 2);
+        index.put(4, "Emma", 9);
+
+        assertEquals(List.of(new Completion("Dubliners", 5), new Completion("Dune", 2)),
+                index.complete("du", 10));
+        assertEquals(List.of(new Completion("Dubliners", 5), new Completion("Dracula", 2)),
+                index.complete("D", 2));
+    }
+
+    @Test
+    void prefixEndingInsideAnEdgeMatches() {
+        PrefixIndex index = new PrefixIndex(10);
+        index.put(1, "Harry Potter", 1);
+        index.put(2, "Harp", 1);
+
+        assertEquals(2, index.complete("har", 10).size());
+        assertEquals(List.of(new Completion("Harry Potter", 1)), index.complete("harry p", 10));
+        assertTrue(index.complete("harpy", 10).isEmpty());
+        assertTrue(index.complete("hb", 10).isEmpty());
+    }
+
+    @Test
+    void removingALeafMergesItsParentEdge() {
+        PrefixIndex index = new PrefixIndex(10);
+        index.put(1, "car", 1);
+        index.put(2, "cart", 1);
+        index.put(3, "carbon", 1);
+
+        index.remove(2);
+        assertTrue(index.complete("cart", 10).isEmpty());
+        assertEquals(List.of(new Completion("car", 1), new Completion("carbon", 1)), index.complete("car", 10));
+
+        // "car" now has a single child and no string of its own: the edges fold together.
+        index.remove(1);
+        assertEquals(List.of(new Completion("carbon", 1)), index.complete("c", 10));
+        assertEquals(List.of(new Completion("carbon", 1)), index.complete("carbo", 10));
+
+        index.put(4, "cargo", 3);
+        assertEquals(List.of(new Completion("cargo", 3), new Completion("carbon", 1)), index.complete("car", 10));
+    }
+
+    @Test
+    void removingEverythingLeavesAnEmptyIndex() {
+        PrefixIndex index = new PrefixIndex(10);
+        index.put(1, "abc", 1);
+        index.put(2, "abd", 1);
+        index.remove(1);
+        index.remove(2);
+        index.remove(3);
+
+        assertTrue(index.complete("", 10).isEmpty());
+        assertTrue(index.complete("ab", 10).isEmpty());
+    }
+
+    @Test
+    void idsSharingAStringAddUpTheirScores() {
+        PrefixIndex index = new PrefixIndex(10);
+        index.put(1, "Emma", 2);
+        index.put(2, "emma", 3);
+        index.put(3, "Emil", 4);
+
+        assertEquals(List.of(new Completion("Emma", 5), new Completion("Emil", 4)), index.complete("em", 10));
+
+        index.remove(2);
+        assertEquals(List.of(new Completion("Emil", 4), new Completion("Emma", 2)), index.complete("em", 10));
+    }
+
+    @Test
+    void putWithNewTextMovesTheId() {
+        PrefixIndex index = new PrefixIndex(10);
+        index.put(1, "Dune", 1);
+        index.put(1, "Emma", 1);
+
+        assertTrue(index.complete("du", 10).isEmpty());
+        assertEquals(List.of(new Completion("Emma", 1)), index.complete("e", 10));
+
+        index.put(1, "Emma", 6);
+        assertEquals(List.of(new Completion("Emma", 6)), index.complete("", 10));
+    }
+
+    @Test
+    void cacheSizeCapsEveryLookup() {
+        PrefixIndex index = new PrefixIndex(2);
+        for (int id = 0; id < 5; id++) {
+            index.put(id, "book " + id, id);
+        }
+        assertEquals(List.of(new Completion("book 4", 4), new Completion("book 3", 3)), index.complete("book", 10));
+
+        index.remove(4);
+        assertEquals(List.of(new Completion("book 3", 3), new Completion("book 2", 2)), index.complete("book", 10));
+    }
+}
@@ -0,0 +1,35 @@
+package org.example.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class TextNormalizerTest {
+    @Test
+    void caseAndSpacingDoNotMatter() {
+        assertEquals("the hobbit", TextNormalizer.key("  The \t HOBBIT\n"));
+        assertEquals(TextNormalizer.key("the hobbit"), TextNormalizer.key("The Hobbit"));
+    }
+
+    @Test
+    void unicodeFormsFoldTogether() {
+        // Full-width letters, a ligature and sharp s fold to their plain spellings.
+        assertEquals(TextNormalizer.key("dune"), TextNormalizer.key("ＤＵＮＥ"));
+        assertEquals(TextNormalizer.key("office"), TextNormalizer.key("oﬃce"));
+        assertEquals(TextNormalizer.key("strasse"), TextNormalizer.key("Straße"));
+    }
+
+    @Test
+    void nullIsTheEmptyKey() {
+        assertEquals("", TextNormalizer.key(null));
+        assertEquals("", TextNormalizer.key("   "));
+    }
+
+    @Test
+    void wordsSplitOnAnythingButLettersAndDigits() {
+        assertEquals(List.of("dune", "messiah", "1969"), TextNormalizer.words("Dune: MESSIAH (1969)"));
+        assertEquals(List.of(), TextNormalizer.words(" -- "));
+    }
+}
@@ -0,0 +1,97 @@
+package org.example.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class TrigramIndexTest {
+
+    @Test
+    void findsSubstringsInAddOrder() {
+        TrigramIndex index = new TrigramIndex();
+        index.put(7, "the hobbit");
+        index.put(3, "the lord of the rings");
+        index.put(5, "hobbies and crafts");
+
+        assertEquals(List.of(7, 5), index.search("hobb"));
+        assertEquals(List.of(7, 3), index.search("the "));
+        assertTrue(index.search("xyz").isEmpty());
+    }
+
+    @Test
+    void candidatesWithAllTrigramsAreStillChecked() {
+        TrigramIndex index = new TrigramIndex();
+        // Has "abc" and "bcd" but not "abcd".
+        index.put(1, "abc bcd");
+        index.put(2, "xabcdx");
+
+        assertEquals(List.of(2), index.search("abcd"));
+    }
+
+    @Test
+    void updateReplacesOldTextAndKeepsPosition() {
+        TrigramIndex index = new TrigramIndex();
+        index.put(1, "dune");
+        index.put(2, "dune messiah");
+        index.put(1, "children of dune");
+
+        assertEquals(List.of(1, 2), index.search("dune"));
+        index.put(1, "emma");
+        assertEquals(List.of(2), index.search("dune"));
+
+        index.remove(2);
+        index.remove(2);
+        assertTrue(index.search("dune").isEmpty());
+        assertEquals(List.of(1), index.search("emm"));
+    }
+
+    @Test
+    void shortQueryIsRefused() {
+        assertThrows(IllegalArgumentException.class, () -> new TrigramIndex().search("ab"));
+    }
+
+    @Test
+    void agreesWithScanningAfterRandomEdits() {
+        Random random = new Random(42);
+        TrigramIndex index = new TrigramIndex();
+        Map<Integer, String> texts = new LinkedHashMap<>();
+        for (int step = 0; step < 2000; step++) {
+            int id = random.nextInt(100);
+            if (random.nextInt(4) == 0) {
+                index.remove(id);
+                texts.remove(id);
+            } else {
+                String text = randomText(random, 4 + random.nextInt(12));
+                index.put(id, text);
+                texts.put(id, text);
+            }
+        }
+
+        for (int q = 0; q < 200; q++) {
+            String query = randomText(random, 3 + random.nextInt(2));
+            List<Integer> expected = new ArrayList<>();
+            texts.forEach((id, text) -> {
+                if (text.contains(query)) {
+                    expected.add(id);
+                }
+            });
+            assertEquals(expected.stream().sorted().toList(), index.search(query).stream().sorted().toList(), query);
+        }
+    }
+
+    private static String randomText(Random random, int length) {
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            text.append("abcd ".charAt(random.nextInt(5)));
+        }
+        return text.toString();
+    }
+}